@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import org.codehaus.mojo.idlj.IdlCorpusGenerator
+
+// Generates the IDL tree described by corpus.properties; verify.groovy generates it again to know what to expect.
+Properties settings = new Properties()
+new File(basedir, 'corpus.properties').withInputStream { settings.load(it) }
+
+def corpus = new IdlCorpusGenerator(settings.seed as long)
+        .setFileCount(settings.fileCount as int)
+        .setIncludeDepth(settings.includeDepth as int)
+        .setFanOut(settings.fanOut as int)
+        .generate()
+
+File idlDirectory = new File(basedir, 'src/main/idl')
+corpus.files.each { path, contents ->
+    File file = new File(idlDirectory, path)
+    file.parentFile.mkdirs()
+    file.setText(contents, 'ISO-8859-1')
+}
+println "Generated ${corpus.files.size()} IDL files in ${idlDirectory}"
+return true
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import org.codehaus.mojo.idlj.IdlCorpusGenerator
+
+Properties settings = new Properties()
+new File(basedir, 'corpus.properties').withInputStream { settings.load(it) }
+
+def corpus = new IdlCorpusGenerator(settings.seed as long)
+        .setFileCount(settings.fileCount as int)
+        .setIncludeDepth(settings.includeDepth as int)
+        .setFanOut(settings.fanOut as int)
+        .generate()
+File idlDirectory = new File(basedir, 'src/main/idl').canonicalFile
+
+// The IDL files passed to the compiler, relative to the source directory, as logged in debug mode
+def compiledFiles = { File log ->
+    def compiled = []
+    log.eachLine { line ->
+        def match = line =~ /\[DEBUG\] Processing: (.*\.idl)$/
+        if (match) {
+            compiled << idlDirectory.toPath().relativize(new File(match[0][1]).canonicalFile.toPath()).toString()
+                    .replace(File.separator, '/')
+        }
+    }
+    compiled
+}
+
+def assertCompiled = { String build, List<String> compiled, Collection<String> expected ->
+    assert compiled.size() == expected.size() :
+            "${build}: ${compiled.size()} compiler invocations, expected ${expected.size()}"
+    assert compiled as Set == expected as Set : "${build}: compiled ${compiled as Set - expected as Set}, " +
+            "missed ${expected as Set - compiled as Set}"
+}
+
+def assertWithinBudget = { String build, double seconds, String budget ->
+    println "${build} took ${seconds} s"
+    assert seconds <= (settings[budget] as double) :
+            "${build} took ${seconds} s, over the budget of ${settings[budget]} s"
+}
+
+// Runs the generate goal again, offline, with the Maven installation and local repository of the invoker
+def runBuild = { String name ->
+    boolean windows = System.getProperty('os.name').toLowerCase().contains('windows')
+    File mvn = new File(System.getProperty('maven.home'), windows ? 'bin/mvn.cmd' : 'bin/mvn')
+    File log = new File(basedir, "build-${name}.log")
+    long start = System.nanoTime()
+    Process process = new ProcessBuilder(mvn.path, '-B', '-o', '-X', "-Dmaven.repo.local=${localRepositoryPath}",
+            'generate-sources')
+            .directory(basedir)
+            .redirectErrorStream(true)
+            .redirectOutput(log)
+            .start()
+    assert process.waitFor() == 0 : "${name} build failed, see ${log}"
+    [compiledFiles(log), (System.nanoTime() - start) / 1e9]
+}
+
+// Edits a file, late enough that it is newer than its copy in the timestamp directory on any file system
+def edit = { String path ->
+    Thread.sleep(2000)
+    new File(idlDirectory, path).append('// edited\n', 'ISO-8859-1')
+}
+
+// the clean build, run by the invoker
+File cleanLog = new File(basedir, 'build.log')
+assertCompiled('clean build', compiledFiles(cleanLog), corpus.files.keySet())
+def totalTime = cleanLog.text =~ /Total time:\s+(?:(\d+):)?([\d.,]+) (?:s|min)/
+assert totalTime : 'clean build reported no total time'
+double cleanSeconds =
+        (totalTime[0][1] ? (totalTime[0][1] as int) * 60 : 0) + (totalTime[0][2].replace(',', '.') as double)
+assertWithinBudget('clean build', cleanSeconds, 'cleanBuildSeconds')
+int lastLayer = settings.includeDepth as int
+String leaf = corpus.getLayer(lastLayer)[0]
+String leafModule = leaf.replaceAll('.*/', '') - '.idl' + '_m0'
+File generated = new File(basedir, "target/generated-sources/idl/${leafModule}/I0.java")
+assert generated.isFile() : "${generated} not generated"
+
+// nothing changed
+def (noOpCompiled, noOpSeconds) = runBuild('no-op')
+assertCompiled('no-op build', noOpCompiled, [])
+assertWithinBudget('no-op build', noOpSeconds, 'noOpBuildSeconds')
+
+// a file which nothing includes
+assert corpus.getDependents(leaf).isEmpty()
+edit(leaf)
+def (leafCompiled, leafSeconds) = runBuild('leaf-edit')
+assertCompiled('leaf edit build', leafCompiled, [leaf])
+assertWithinBudget('leaf edit build', leafSeconds, 'leafEditBuildSeconds')
+
+// the file included, directly or indirectly, by the most others
+String shared = corpus.getLayer(0).max { corpus.getDependents(it).size() }
+Set<String> affected = [shared] as Set
+affected.addAll(corpus.getDependents(shared))
+assert affected.size() > 10 : "only ${affected.size()} files affected by ${shared}"
+edit(shared)
+def (sharedCompiled, sharedSeconds) = runBuild('include-edit')
+assertCompiled('include edit build', sharedCompiled, affected)
+assertWithinBudget('include edit build', sharedSeconds, 'includeEditBuildSeconds')
+
+return true
@@ -0,0 +1,220 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.sonatype.plexus.build.incremental.DefaultBuildContext;
+
+/**
+ * A generate mojo working on a synthetic tree of IDL files, either on disk or in a file system held in memory. Unless
+ * a compiler is specified, the mojo runs a compiler which does nothing, so that the benchmarks measure only the work
+ * the plugin does around the compiler.
+ */
+class BenchmarkFixture implements AutoCloseable {
+    private static final long CORPUS_SEED = 20240501L;
+
+    private final String compiler;
+    private final Path root;
+    private final FileSystem memoryFileSystem;
+    private final Path archive;
+    private final DependenciesFacade dependencies;
+
+    /**
+     * Creates a fixture which runs a compiler doing nothing.
+     *
+     * @param inMemory true to hold the files in memory, false to write them to a temporary directory
+     * @throws IOException if the file system cannot be created
+     */
+    BenchmarkFixture(boolean inMemory) throws IOException {
+        this(inMemory, null);
+    }
+
+    /**
+     * Creates a fixture.
+     *
+     * @param inMemory true to hold the files in memory, false to write them to a temporary directory. The compilers
+     *                 themselves write to the default file system, so a fixture running a compiler must use the disk.
+     * @param compiler the selector of the compiler to run, or <code>null</code> to run a compiler which does nothing
+     * @throws IOException if the file system cannot be created
+     */
+    BenchmarkFixture(boolean inMemory, String compiler) throws IOException {
+        this.compiler = compiler;
+        if (compiler == null) {
+            AbstractTranslator.setClassLoaderFacade(new NoOpClassLoaderFacade());
+        }
+        if (inMemory) {
+            archive = Files.createTempFile("idlj-benchmark", ".zip");
+            Files.delete(archive);
+            memoryFileSystem = FileSystems.newFileSystem(
+                    URI.create("jar:" + archive.toUri()), Collections.singletonMap("create", "true"));
+            root = Files.createTempDirectory("idlj-benchmark").toAbsolutePath();
+            Files.delete(root);
+            dependencies = new DependenciesFacadeImpl(memoryFileSystem);
+        } else {
+            archive = null;
+            memoryFileSystem = null;
+            root = Files.createTempDirectory("idlj-benchmark").toAbsolutePath();
+            dependencies = new DependenciesFacadeImpl();
+        }
+    }
+
+    File getSourceDirectory() {
+        return new File(root.toFile(), "src/main/idl");
+    }
+
+    File getOutputDirectory() {
+        return new File(root.toFile(), "target/generated-sources/idl");
+    }
+
+    File getTimestampDirectory() {
+        return new File(root.toFile(), "target/idlj-timestamp");
+    }
+
+    DependenciesFacade getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Writes a tree of IDL files, generated from a fixed seed, into the source directory. The files include each other
+     * over two levels, each including three files of the level below.
+     *
+     * @param fileCount the number of files to write
+     * @return the files written, with those included by others first
+     * @throws IOException if a file cannot be written
+     */
+    List<File> writeCorpus(int fileCount) throws IOException {
+        return new IdlCorpusGenerator(CORPUS_SEED)
+                .setFileCount(fileCount)
+                .generate()
+                .write(dependencies, getSourceDirectory());
+    }
+
+    /**
+     * Removes the timestamp directory, so that every IDL file is stale again.
+     *
+     * @throws IOException if a file cannot be removed
+     */
+    void clearTimestamps() throws IOException {
+        for (File file : dependencies.listFiles(getTimestampDirectory())) {
+            dependencies.deleteFile(file);
+        }
+    }
+
+    /**
+     * @return a generate mojo configured to compile the tree
+     * @throws ReflectiveOperationException if the mojo cannot be configured
+     */
+    IDLJMojo createMojo() throws ReflectiveOperationException {
+        IDLJMojo mojo = new IDLJMojo(dependencies);
+        mojo.setSourceDirectory(getSourceDirectory());
+        mojo.setLog(new QuietLog());
+        setField(mojo, "outputDirectory", getOutputDirectory());
+        setField(mojo, "timestampDirectory", getTimestampDirectory());
+        setField(mojo, "compiler", compiler == null ? "idlj" : compiler);
+        setField(mojo, "normalizeGeneratedSources", false);
+        setField(mojo, "buildContext", new DefaultBuildContext());
+        setField(mojo, "project", new MavenProject((Model) null));
+        return mojo;
+    }
+
+    static void setField(Object target, String name, Object value) throws ReflectiveOperationException {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // look in the superclass
+            }
+        }
+        throw new NoSuchFieldException(name);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (memoryFileSystem != null) {
+            memoryFileSystem.close();
+            Files.deleteIfExists(archive);
+        } else {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path directory, IOException e) throws IOException {
+                    Files.delete(directory);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+    /**
+     * A compiler which accepts any arguments and generates nothing.
+     */
+    public static class NoOpIdlCompiler {
+        public static void main(String... args) {}
+
+        public static void compile(String... args) {}
+    }
+
+    /**
+     * Supplies the no-op compiler whichever compiler class the translator asks for.
+     */
+    static class NoOpClassLoaderFacade implements AbstractTranslator.ClassLoaderFacade {
+        @Override
+        public void prependUrls(URL... urls) {}
+
+        @Override
+        public Class<?> loadClass(String idlCompilerClass) {
+            return NoOpIdlCompiler.class;
+        }
+    }
+
+    /**
+     * A log which only reports warnings and errors, so that the benchmark output is not swamped.
+     */
+    static class QuietLog extends SystemStreamLog {
+        @Override
+        public void debug(CharSequence content) {}
+
+        @Override
+        public void debug(CharSequence content, Throwable error) {}
+
+        @Override
+        public void debug(Throwable error) {}
+
+        @Override
+        public boolean isInfoEnabled() {
+            return false;
+        }
+
+        @Override
+        public void info(CharSequence content) {}
+
+        @Override
+        public void info(CharSequence content, Throwable error) {}
+
+        @Override
+        public void info(Throwable error) {}
+    }
+}
@@ -0,0 +1,61 @@
+package org.codehaus.mojo.idlj;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a build in which every IDL file is stale, with a compiler which does nothing: scanning, scheduling, invoking
+ * the compiler once per file and copying each file into the timestamp directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class CleanBuildBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    int fileCount;
+
+    @Param({"memory", "disk"})
+    String fileSystem;
+
+    private BenchmarkFixture fixture;
+    private IDLJMojo mojo;
+
+    @Setup(Level.Trial)
+    public void createTree() throws Exception {
+        fixture = new BenchmarkFixture("memory".equals(fileSystem));
+        fixture.writeCorpus(fileCount);
+        mojo = fixture.createMojo();
+    }
+
+    @Setup(Level.Iteration)
+    public void makeAllFilesStale() throws Exception {
+        fixture.clearTimestamps();
+    }
+
+    @TearDown(Level.Trial)
+    public void removeTree() throws Exception {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void cleanBuild() throws Exception {
+        mojo.execute();
+    }
+}
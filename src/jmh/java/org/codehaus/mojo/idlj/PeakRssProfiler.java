@@ -0,0 +1,51 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+/**
+ * Reports the peak resident set size of the benchmark JVM, as recorded by Linux, after each iteration. Compilers run
+ * in a separate process are not included. Nothing is reported on other systems.
+ */
+public class PeakRssProfiler implements InternalProfiler {
+    private static final Path STATUS = Paths.get("/proc/self/status");
+    private static final String PEAK_RSS = "VmHWM:";
+
+    @Override
+    public String getDescription() {
+        return "Peak resident set size of the benchmark JVM, from " + STATUS;
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {}
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+            BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
+        try {
+            for (String line : Files.readAllLines(STATUS, StandardCharsets.ISO_8859_1)) {
+                if (line.startsWith(PEAK_RSS)) {
+                    String kilobytes = line.substring(PEAK_RSS.length()).trim().split("\\s+")[0];
+                    return Collections.singletonList(new ScalarResult(
+                            "peak.rss", Double.parseDouble(kilobytes), "KiB", AggregationPolicy.MAX));
+                }
+            }
+        } catch (IOException e) {
+            // not Linux
+        }
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,73 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what a translator does for each file besides compiling it: building the compiler arguments from the source
+ * options and include directories, and invoking the compiler in process with its output captured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TranslatorArgumentsBenchmark {
+
+    @Param({"idlj", "glassfish", "jacorb"})
+    String compiler;
+
+    @Param({"0", "10", "100"})
+    int includeDirCount;
+
+    private CompilerTranslator translator;
+    private File[] includeDirs;
+    private Source source;
+
+    @Setup
+    public void createTranslator() throws Exception {
+        AbstractTranslator.setClassLoaderFacade(new BenchmarkFixture.NoOpClassLoaderFacade());
+        translator = TranslatorType.selectTranslator(compiler);
+        translator.setLog(new BenchmarkFixture.QuietLog());
+        translator.setFailOnError(true);
+
+        includeDirs = new File[includeDirCount];
+        for (int i = 0; i < includeDirCount; i++) {
+            includeDirs[i] = new File("/idl/include" + i);
+        }
+
+        Define define = new Define();
+        setField(define, "symbol", "DEBUG");
+        source = new Source();
+        setField(source, "defines", Collections.singletonList(define));
+        setField(source, "additionalArguments", Arrays.asList("-verbose"));
+        setField(source, "emitSkeletons", Boolean.FALSE);
+    }
+
+    private static void setField(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @Benchmark
+    public void invokeCompiler() throws Exception {
+        translator.invokeCompiler("/idl/src", includeDirs, "/idl/out", "/idl/src/Service.idl", source);
+    }
+}
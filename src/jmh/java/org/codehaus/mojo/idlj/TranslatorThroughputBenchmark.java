@@ -0,0 +1,132 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the real compilers on a generated tree of IDL files including each other, for choosing between them and
+ * their execution strategies. Each configuration names a compiler selector, followed by <code>-forked</code> to run
+ * the compiler in a separate process; only JacORB can be forked. The built-in <code>idlj</code> compiler is absent
+ * from the JDKs able to build the plugin, but may be measured with <code>-p configuration=idlj</code> on a JDK which
+ * still has it.
+ *
+ * <ul>
+ *   <li><code>filesPerSecond</code> and <code>fileLatency</code> compile one file per operation with a warm compiler,
+ *   giving the throughput and the distribution of the time per file, including its 50th and 99th percentiles</li>
+ *   <li><code>coldFile</code> compiles the first file in a fresh JVM, including loading the compiler</li>
+ *   <li><code>scheduledBuild</code> runs the generate goal over the whole tree, so that the files are compiled in
+ *   the batches of files sharing includes in which a build compiles them; it reports the time per file</li>
+ * </ul>
+ *
+ * The peak resident set size and the allocation rate are reported by running with the profilers configured in the
+ * <code>benchmarks</code> profile.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TranslatorThroughputBenchmark {
+    private static final int CORPUS_SIZE = 200;
+    private static final String FORKED_SUFFIX = "-forked";
+
+    @Param({"glassfish", "jacorb", "jacorb-forked"})
+    String configuration;
+
+    private BenchmarkFixture fixture;
+    private List<File> corpus;
+    private CompilerTranslator translator;
+    private Source source;
+    private IDLJMojo mojo;
+    private int nextFile;
+
+    @Setup(Level.Trial)
+    public void writeCorpus() throws Exception {
+        boolean forked = configuration.endsWith(FORKED_SUFFIX);
+        String compiler =
+                forked ? configuration.substring(0, configuration.length() - FORKED_SUFFIX.length()) : configuration;
+
+        fixture = new BenchmarkFixture(false, compiler);
+        corpus = fixture.writeCorpus(CORPUS_SIZE);
+
+        translator = TranslatorType.selectTranslator(compiler);
+        translator.setLog(new BenchmarkFixture.QuietLog());
+        translator.setFailOnError(true);
+        ((AbstractTranslator) translator).setForked(forked);
+        source = new Source();
+
+        mojo = fixture.createMojo();
+        BenchmarkFixture.setField(
+                mojo,
+                "executionStrategy",
+                (forked ? ExecutionStrategy.FORKED : ExecutionStrategy.IN_PROCESS).getSelector());
+    }
+
+    @Setup(Level.Iteration)
+    public void makeAllFilesStale() throws Exception {
+        fixture.clearTimestamps();
+    }
+
+    @TearDown(Level.Trial)
+    public void removeCorpus() throws Exception {
+        fixture.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void filesPerSecond() throws Exception {
+        compileNextFile();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void fileLatency() throws Exception {
+        compileNextFile();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(5)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public void coldFile() throws Exception {
+        compileNextFile();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void scheduledBuild() throws Exception {
+        mojo.execute();
+    }
+
+    private void compileNextFile() throws Exception {
+        File idlFile = corpus.get(nextFile);
+        nextFile = (nextFile + 1) % corpus.size();
+        translator.invokeCompiler(
+                fixture.getSourceDirectory().getPath(),
+                new File[0],
+                fixture.getOutputDirectory().getPath(),
+                idlFile.getPath(),
+                source);
+    }
+}
@@ -22,18 +22,32 @@ package org.codehaus.mojo.idlj;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectDependenciesResolver;
 import org.codehaus.plexus.compiler.util.scan.InclusionScanException;
 import org.codehaus.plexus.compiler.util.scan.SourceInclusionScanner;
 import org.codehaus.plexus.compiler.util.scan.mapping.SuffixMapping;
+import org.codehaus.plexus.util.Scanner;
+import org.codehaus.plexus.util.SelectorUtils;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.sonatype.plexus.build.incremental.BuildContext;
 
 import static org.codehaus.mojo.idlj.TranslatorType.AUTO;
 
@@ -56,6 +70,69 @@ public abstract class AbstractIDLJMojo extends AbstractMojo {
     @Parameter
     private File[] includeDirs;
 
+    /**
+     * Whether to pass the compiler only those include directories which contain files included, directly or
+     * indirectly, by the file being compiled, so that it does not search directories which cannot satisfy any of its
+     * includes. Includes whose names are built from macros are not recognized, so this should not be enabled if any
+     * are used.
+     */
+    @Parameter(property = "pruneIncludeDirs", defaultValue = "false")
+    private boolean pruneIncludeDirs;
+
+    /**
+     * Dependencies whose IDL files are used as additional include directories, after those in
+     * <code>includeDirs</code>. The IDL files of each archive are extracted once into
+     * <code>artifactCacheDirectory</code>; a dependency resolved to a directory, as in a reactor build, is used in
+     * place. Only these dependencies, and the <code>stubArtifacts</code>, are resolved, when a build needs them.
+     */
+    @Parameter
+    private List<IncludeArtifact> includeArtifacts;
+
+    /**
+     * The directory into which the IDL files of <code>includeArtifacts</code> are extracted. Each archive is extracted
+     * into a directory named after its checksum, so the directory may be shared by all builds and modules.
+     */
+    @Parameter(
+            property = "idlj.artifactCacheDirectory",
+            defaultValue = "${settings.localRepository}/.cache/idlj-maven-plugin/includes")
+    private File artifactCacheDirectory;
+
+    /**
+     * How to run the compiler: <code>in-process</code> or, for the jacorb compiler, <code>forked</code>. With
+     * <code>auto</code>, the time taken by each strategy is recorded in the timestamp directory, and each build uses
+     * the strategy which was fastest for a similar number of stale files. By default, the compiler's own choice is
+     * used and nothing is recorded.
+     */
+    @Parameter(property = "idlj.executionStrategy")
+    private String executionStrategy;
+
+    /**
+     * The maximum number of IDL files compiled at the same time when the compiler runs in separate processes, as the
+     * jacorb compiler does by default. Files which include the same files are still compiled one after the other.
+     * With 0, the default, one process is run per available processor; 1 compiles one file at a time.
+     */
+    @Parameter(property = "idlj.forkCount", defaultValue = "0")
+    private int forkCount;
+
+    /**
+     * Whether to skip the compilation entirely when the IDL files, the files they include and the options are the same
+     * as when the sources in the output directory were generated, and those sources are all present. A manifest of
+     * the inputs and outputs is kept in the output directory, so that it is restored together with the generated
+     * sources, for instance by a build cache.
+     */
+    @Parameter(property = "idlj.skipUnchangedInputs", defaultValue = "false")
+    private boolean skipUnchangedInputs;
+
+    /**
+     * Dependencies holding sources generated and published by another build, with <code>publishStubs</code>. If one
+     * was generated from the same IDL files, with the same options, its sources are used instead of running the
+     * compiler; if it also holds the compiled classes, nothing is generated, since the dependency provides them.
+     * Each is identified like an include artifact, by its <code>groupId</code>, <code>artifactId</code> and
+     * <code>classifier</code>.
+     */
+    @Parameter
+    private List<IncludeArtifact> stubArtifacts;
+
     /**
      * Activate more detailed debug messages.
      */
@@ -77,6 +154,14 @@ public abstract class AbstractIDLJMojo extends AbstractMojo {
     @Parameter(property = "lastModGranularityMs", defaultValue = "0")
     private int staleMillis;
 
+    /**
+     * Whether the generated sources should be made reproducible: dates are removed from the comments written by the
+     * compilers, paths of IDL files are made relative to the source directory and lines end with '\n'. Sources
+     * which are regenerated with unchanged content keep their previous modification time.
+     */
+    @Parameter(property = "idlj.normalizeGeneratedSources", defaultValue = "false")
+    private boolean normalizeGeneratedSources;
+
     /**
      * The directory to store the processed grammars. Used so that grammars are not constantly regenerated.
      */
@@ -91,6 +176,52 @@ public abstract class AbstractIDLJMojo extends AbstractMojo {
     @Parameter(defaultValue = "auto")
     private String compiler;
 
+    /**
+     * The number of shards across which the compilation of the stale IDL files is spread, for example over several
+     * CI machines. When greater than one, only the stale files assigned to <code>shardIndex</code> by a stable hash of
+     * their relative path are compiled, and the generated sources are written below <code>shardDirectory</code>
+     * rather than to the output directory; the <code>merge-shards</code> goal then assembles the results.
+     */
+    @Parameter(property = "shardCount", defaultValue = "1")
+    private int shardCount;
+
+    /**
+     * The index of the shard to compile, from 0 to <code>shardCount - 1</code>.
+     */
+    @Parameter(property = "shardIndex", defaultValue = "0")
+    private int shardIndex;
+
+    /**
+     * The directory below which each shard writes its generated sources and manifest.
+     */
+    @Parameter(property = "shardDirectory", defaultValue = "${project.build.directory}/idlj-shards")
+    private File shardDirectory;
+
+    /**
+     * The build context, through which an IDE reports the changed files, and learns of the generated files and of
+     * compiler diagnostics. Outside an IDE, every file is considered changed.
+     */
+    @Component
+    private BuildContext buildContext;
+
+    /**
+     * The system through which include and stub artifacts are resolved.
+     */
+    @Component
+    private RepositorySystem repositorySystem;
+
+    /**
+     * The resolver of the compile class path, when the generated sources are compiled.
+     */
+    @Component
+    private ProjectDependenciesResolver projectDependenciesResolver;
+
+    /**
+     * The repository session of the build.
+     */
+    @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
+    private RepositorySystemSession repositorySession;
+
     /**
      * The interface between this class and the rest of the world - unit tests replace the default implementation.
      */
@@ -101,6 +232,56 @@ public abstract class AbstractIDLJMojo extends AbstractMojo {
      */
     private static final DependenciesFacade DEPENDENCIES_FACADE = new DependenciesFacadeImpl();
 
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * The execution strategy setting which selects the strategy from the recorded history.
+     */
+    private static final String AUTO_EXECUTION_STRATEGY = "auto";
+
+    /**
+     * The directory, within the timestamp directory, which holds the per-module units of split IDL files.
+     */
+    private static final String MODULE_UNITS_DIRECTORY = "idlj-modules";
+
+    /**
+     * The file, in the directory of the units of a split IDL file, which holds the digest of the inputs the units
+     * were last compiled with.
+     */
+    private static final String UNIT_INPUTS_FILE = "unit-inputs.sha256";
+
+    /**
+     * The directory, within the timestamp directory, to which the plugin's preprocessor writes the files to compile.
+     */
+    private static final String PREPROCESSED_DIRECTORY = "idlj-preprocessed";
+
+    /**
+     * The preprocessors of this execution, by the macros they were created for, so that included files are
+     * preprocessed once for all the files which include them.
+     */
+    private final Map<String, IdlPreprocessor> preprocessors = new HashMap<>();
+
+    /**
+     * The preprocessed files and per-module units written by this execution, so that the diagnostics of the compiler
+     * are reported against the IDL files they were derived from.
+     */
+    private final StagedSources stagedSources = new StagedSources();
+
+    /**
+     * The omitted classes which this execution kept because it compiles a single shard, to be pruned by the merge.
+     */
+    private final List<ShardManifest.Omission> shardOmissions = new ArrayList<>();
+
+    /**
+     * The index of the files in the source and include directories, built once per execution.
+     */
+    private IncludeIndex includeIndex;
+
+    /**
+     * The include directories holding the IDL files of <code>includeArtifacts</code>.
+     */
+    private File[] artifactIncludeDirs = new File[0];
+
     /**
      * Creates the abstract class using a production implementation of the dependencies.
      */
@@ -131,7 +312,15 @@ public abstract class AbstractIDLJMojo extends AbstractMojo {
      * @return a <code>List</code> of directory to use as <i>include</i>
      */
     final File[] getIncludeDirs() {
-        return includeDirs;
+        if (artifactIncludeDirs.length == 0) {
+            return includeDirs;
+        }
+        List<File> directories = new ArrayList<>();
+        if (includeDirs != null) {
+            Collections.addAll(directories, includeDirs);
+        }
+        Collections.addAll(directories, artifactIncludeDirs);
+        return directories.toArray(new File[0]);
     }
 
     /**
@@ -140,43 +329,389 @@ public abstract class AbstractIDLJMojo extends AbstractMojo {
      * @throws MojoExecutionException if the compilation fails or the compiler crashes
      */
     public void execute() throws MojoExecutionException {
-        prepareGeneratedSourceDirectory(getOutputDirectory());
-        createIfAbsent(timestampDirectory);
+        translate(createTranslator());
+    }
 
-        if (isSourceSpecified()) {
-            translateSources(createTranslator(), sources);
+    /**
+     * Compiles the stale IDL files using the specified translator.
+     *
+     * @param translator the translator to use
+     * @throws MojoExecutionException if the compilation fails or the compiler crashes
+     */
+    final void translate(CompilerTranslator translator) throws MojoExecutionException {
+        if (isSharded()) {
+            prepareShardDirectory();
         } else {
-            translateInferredSource(createTranslator());
+            prepareGeneratedSourceDirectory(getOutputDirectory());
+        }
+        createIfAbsent(timestampDirectory);
+        artifactIncludeDirs = resolveIncludeArtifacts();
+        preprocessors.clear();
+        stagedSources.clear();
+        shardOmissions.clear();
+        includeIndex = new IncludeIndex(dependencies, getIdlDirectories());
+
+        boolean checkInputs = skipUnchangedInputs && !isSharded() && !buildContext.isIncremental();
+        boolean hasStubArtifacts = stubArtifacts != null && !stubArtifacts.isEmpty() && !isSharded();
+        StubFingerprint inputs = checkInputs || hasStubArtifacts ? fingerprintInputs(translator) : null;
+        if (checkInputs && isUpToDate(inputs)) {
+            getLog().info("IDL files and options unchanged since the sources in " + getOutputDirectory()
+                    + " were generated");
+            return;
+        }
+
+        if (!hasStubArtifacts || !usePublishedStubs(inputs.getValue())) {
+            List<File> processedFiles;
+            if (buildContext.isIncremental() && !isSharded()) {
+                processedFiles = translateChangedFiles(translator);
+            } else if (isSourceSpecified()) {
+                processedFiles = translateSources(translator, sources);
+            } else {
+                processedFiles = translateInferredSource(translator);
+            }
+
+            if (isSharded()) {
+                writeShardManifest(processedFiles);
+            }
+        }
+
+        if (checkInputs) {
+            writeInputManifest(inputs);
+        }
+    }
+
+    private boolean isUpToDate(StubFingerprint inputs) throws MojoExecutionException {
+        try {
+            return InputManifest.isUpToDate(dependencies, getOutputDirectory(), inputs.getValue());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to read the IDL input manifest", e);
         }
     }
 
+    private void writeInputManifest(StubFingerprint inputs) throws MojoExecutionException {
+        try {
+            InputManifest.create(dependencies, getOutputDirectory(), inputs.getValue(), inputs.getFiles())
+                    .write(dependencies, getOutputDirectory());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write the IDL input manifest", e);
+        }
+    }
+
+    /**
+     * Looks for a stub artifact generated from the same inputs as this compilation, and extracts its sources if so.
+     *
+     * @return true if such an artifact was found, and no compiler needs to run
+     */
+    private boolean usePublishedStubs(String fingerprint) throws MojoExecutionException {
+        DependencyResolver resolver = createDependencyResolver();
+        for (IncludeArtifact stubArtifact : stubArtifacts) {
+            File artifactFile = resolver.resolve(stubArtifact);
+            try {
+                StubArtifact stubs = artifactFile == null ? null : StubArtifact.read(dependencies, artifactFile);
+                if (stubs == null) {
+                    getLog().warn("Stub artifact " + stubArtifact + " holds no published stubs");
+                } else if (!stubs.getFingerprint().equals(fingerprint)) {
+                    getLog().info("Stub artifact " + stubArtifact + " was generated from other IDL files or options");
+                } else if (stubs.containsClasses()) {
+                    getLog().info("Using the classes of stub artifact " + stubArtifact + " instead of compiling");
+                    return true;
+                } else {
+                    int numWritten = stubs.extractSources(dependencies, getOutputDirectory());
+                    getLog().info("Using the sources of stub artifact " + stubArtifact + " instead of compiling, "
+                            + numWritten + " files updated");
+                    return true;
+                }
+            } catch (IOException e) {
+                throw new MojoExecutionException("Unable to use stub artifact " + stubArtifact, e);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the fingerprint of this compilation: the compiler it runs, its options, and the content of every
+     * selected IDL file and of the files it includes, identified by their paths relative to the directory in which
+     * they were found.
+     *
+     * @return the fingerprint
+     * @throws MojoExecutionException if an IDL file cannot be read, or the compiler is not available
+     */
+    final String computeStubFingerprint() throws MojoExecutionException {
+        return fingerprintInputs(createTranslator()).getValue();
+    }
+
+    /**
+     * Fingerprints the inputs of a compilation by the specified translator. The compiler is identified by the
+     * translator it resolved to and the version of the compiler loaded, rather than by its selector, since
+     * <code>auto</code> selects different compilers on different JDKs.
+     */
+    private StubFingerprint fingerprintInputs(CompilerTranslator translator) throws MojoExecutionException {
+        StubFingerprint fingerprint = new StubFingerprint();
+        fingerprint.addOption("translator", translator.getClass().getName());
+        if (translator instanceof AbstractTranslator) {
+            fingerprint.addOption("compilerVersion", ((AbstractTranslator) translator).describeCompiler());
+        }
+        fingerprint.addOption("normalizeGeneratedSources", normalizeGeneratedSources);
+        List<Source> sourceList = isSourceSpecified() ? sources : Collections.singletonList(new Source());
+        IncludeGraph includeGraph = createIncludeGraph();
+        Set<File> idlFiles = new LinkedHashSet<>();
+        for (int i = 0; i < sourceList.size(); i++) {
+            fingerprint.addOption("source" + i, sourceList.get(i).describe());
+            for (File idlFile : getSelectedGrammars(sourceList.get(i))) {
+                idlFiles.add(idlFile);
+                idlFiles.addAll(includeGraph.getIncludeClosure(idlFile));
+            }
+        }
+
+        try {
+            List<String> hashes = IoExecutor.map(idlFiles, idlFile -> ContentHash.of(dependencies.readBytes(idlFile)));
+            Iterator<String> hash = hashes.iterator();
+            for (File idlFile : idlFiles) {
+                fingerprint.addFileHash(getFingerprintPath(idlFile), hash.next());
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to read the IDL files to fingerprint", e);
+        }
+        return fingerprint;
+    }
+
+    private String getFingerprintPath(File idlFile) {
+        String path = idlFile.getName();
+        for (File directory : getIdlDirectories()) {
+            String relativePath = getRelativePath(directory, idlFile);
+            if (!relativePath.equals(idlFile.getAbsolutePath().replace(File.separatorChar, '/'))) {
+                path = relativePath;
+                break;
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Resolves the include artifacts among the dependencies of the project, and returns the directories holding their
+     * IDL files, extracting them if necessary.
+     */
+    private File[] resolveIncludeArtifacts() throws MojoExecutionException {
+        if (includeArtifacts == null || includeArtifacts.isEmpty()) {
+            return new File[0];
+        }
+
+        ArtifactIncludeCache cache = new ArtifactIncludeCache(dependencies, artifactCacheDirectory, getLog());
+        DependencyResolver resolver = createDependencyResolver();
+        List<File> directories = new ArrayList<>();
+        for (IncludeArtifact includeArtifact : includeArtifacts) {
+            File artifactFile = resolver.resolve(includeArtifact);
+            try {
+                File root = cache.getIncludeRoot(artifactFile);
+                directories.add(
+                        includeArtifact.getDirectory() == null ? root : new File(root, includeArtifact.getDirectory()));
+            } catch (IOException e) {
+                throw new MojoExecutionException("Unable to extract the IDL files of " + includeArtifact, e);
+            }
+        }
+        return directories.toArray(new File[0]);
+    }
+
+    /**
+     * @return a resolver of the dependencies of the project, which resolves them only when asked to
+     */
+    final DependencyResolver createDependencyResolver() {
+        return new DependencyResolver(project, repositorySystem, projectDependenciesResolver, repositorySession);
+    }
+
     private void prepareGeneratedSourceDirectory(File directory) throws MojoExecutionException {
         createIfAbsent(directory);
         failIfNotWriteable(directory);
         addCompileSourceRoot(directory);
     }
 
+    /**
+     * @return true if this execution compiles only one shard of the IDL files, into its own directory
+     */
+    final boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    private void prepareShardDirectory() throws MojoExecutionException {
+        if (shardIndex < 0 || shardIndex >= shardCount) {
+            throw new MojoExecutionException(
+                    "shardIndex must be between 0 and " + (shardCount - 1) + ", but was " + shardIndex);
+        }
+        getLog().info("Compiling shard " + shardIndex + " of " + shardCount + " into " + getTargetDirectory());
+        createIfAbsent(getTargetDirectory());
+        failIfNotWriteable(getTargetDirectory());
+    }
+
+    /**
+     * @return the directory into which the compilers write: the output directory, or the sources directory of the
+     *         current shard
+     */
+    private File getTargetDirectory() {
+        if (isSharded()) {
+            return new File(
+                    ShardManifest.getShardDirectory(shardDirectory, shardIndex), ShardManifest.SOURCES_DIRECTORY);
+        } else {
+            return getOutputDirectory();
+        }
+    }
+
+    private void writeShardManifest(List<File> processedFiles) throws MojoExecutionException {
+        List<String> idlFiles = new ArrayList<>();
+        for (File idlFile : processedFiles) {
+            idlFiles.add(getRelativePath(getSourceDirectory(), idlFile));
+        }
+
+        File shardSources = getTargetDirectory();
+        try {
+            List<String> generatedFiles = new ArrayList<>();
+            for (File generatedFile : dependencies.listFiles(shardSources)) {
+                generatedFiles.add(getRelativePath(shardSources, generatedFile));
+            }
+            Collections.sort(generatedFiles);
+
+            new ShardManifest(shardIndex, shardCount, idlFiles, generatedFiles, shardOmissions)
+                    .write(dependencies, shardSources.getParentFile());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write the manifest for shard " + shardIndex, e);
+        }
+    }
+
     private boolean isSourceSpecified() {
         return sources != null;
     }
 
-    private void translateInferredSource(CompilerTranslator translator) throws MojoExecutionException {
-        processSource(new Source(), translator);
+    private List<File> translateInferredSource(CompilerTranslator translator) throws MojoExecutionException {
+        return processSource(new Source(), translator);
     }
 
-    private void translateSources(CompilerTranslator translator, List<Source> sourceList)
+    private List<File> translateSources(CompilerTranslator translator, List<Source> sourceList)
             throws MojoExecutionException {
+        List<File> processedFiles = new ArrayList<>();
         for (Source source : sourceList) {
-            processSource(source, translator);
+            processedFiles.addAll(processSource(source, translator));
+        }
+        return processedFiles;
+    }
+
+    /**
+     * Recompiles the IDL files affected by changes to the specified files: each changed file which is selected by a
+     * source, and each selected file which includes a changed file, directly or indirectly. Staleness is not
+     * considered, since a changed include leaves the files which include it with their old timestamps.
+     *
+     * @param translator   the translator to use
+     * @param changedFiles the files which have changed, in the source directory or the include directories
+     * @return the files which were compiled, in the order in which they were compiled
+     * @throws MojoExecutionException if the compilation fails or the compiler crashes
+     */
+    final List<File> translateAffectedFiles(CompilerTranslator translator, Set<File> changedFiles)
+            throws MojoExecutionException {
+        preprocessors.clear();
+        stagedSources.clear();
+        includeIndex = new IncludeIndex(dependencies, getIdlDirectories());
+        Set<File> normalizedChanges = new HashSet<>();
+        for (File changedFile : changedFiles) {
+            normalizedChanges.add(IncludeGraph.normalize(changedFile));
+        }
+
+        IncludeGraph includeGraph = createIncludeGraph();
+        List<File> processedFiles = new ArrayList<>();
+        for (Source source : isSourceSpecified() ? sources : Collections.singletonList(new Source())) {
+            Set<File> affectedGrammars = new HashSet<>();
+            for (File idlFile : getSelectedGrammars(source)) {
+                if (normalizedChanges.contains(IncludeGraph.normalize(idlFile))
+                        || !Collections.disjoint(includeGraph.getIncludeClosure(idlFile), normalizedChanges)) {
+                    affectedGrammars.add(idlFile);
+                }
+            }
+            if (!affectedGrammars.isEmpty()) {
+                processedFiles.addAll(compileGrammars(source, translator, affectedGrammars, includeGraph));
+            }
+        }
+        return processedFiles;
+    }
+
+    /**
+     * Compiles the IDL files affected by the changes which the build context reports in the source and include
+     * directories, during an incremental IDE build.
+     */
+    private List<File> translateChangedFiles(CompilerTranslator translator) throws MojoExecutionException {
+        Set<File> changedFiles = new HashSet<>();
+        for (File directory : getIdlDirectories()) {
+            if (buildContext.hasDelta(directory)) {
+                addScannedFiles(buildContext.newScanner(directory), changedFiles);
+                addScannedFiles(buildContext.newDeleteScanner(directory), changedFiles);
+            }
+        }
+
+        if (changedFiles.isEmpty()) {
+            getLog().info("Nothing to compile - no idl files changed");
+            return Collections.emptyList();
+        }
+        getLog().debug("Changed files: " + changedFiles);
+        return translateAffectedFiles(translator, changedFiles);
+    }
+
+    private static void addScannedFiles(Scanner scanner, Set<File> files) {
+        scanner.scan();
+        for (String path : scanner.getIncludedFiles()) {
+            files.add(new File(scanner.getBasedir(), path));
         }
     }
 
-    private CompilerTranslator createTranslator() throws MojoExecutionException {
+    /**
+     * @return the directories which hold the IDL files read by the compilers: the source directory, followed by the
+     *         include directories
+     */
+    final List<File> getIdlDirectories() {
+        List<File> directories = new ArrayList<>();
+        directories.add(getSourceDirectory());
+        if (getIncludeDirs() != null) {
+            Collections.addAll(directories, getIncludeDirs());
+        }
+        return directories;
+    }
+
+    private List<File> getSelectedGrammars(Source source) throws MojoExecutionException {
+        File sourceDir = getSourceDirectory();
+        if (!isExistingDirectory(sourceDir)) {
+            return Collections.emptyList();
+        }
+
+        Set<String> includes = getNonNullSet("includes", source.getIncludes(), "**/*.idl");
+        Set<String> excludes = getNonNullSet("excludes", source.getExcludes());
+        List<File> selected = new ArrayList<>();
+        try {
+            for (File file : dependencies.listFiles(sourceDir)) {
+                String relativePath = getRelativePath(sourceDir, file);
+                if (matchesAny(includes, relativePath) && !matchesAny(excludes, relativePath)) {
+                    selected.add(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error scanning source root: '" + sourceDir + "'", e);
+        }
+        return selected;
+    }
+
+    private static boolean matchesAny(Set<String> patterns, String relativePath) {
+        for (String pattern : patterns) {
+            if (SelectorUtils.matchPath(pattern.replace('\\', '/'), relativePath, "/", true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    final CompilerTranslator createTranslator() throws MojoExecutionException {
         CompilerTranslator translator = TranslatorType.selectTranslator(compiler);
 
         translator.setDebug(debug);
         translator.setFailOnError(failOnError);
         translator.setLog(getLog());
+        if (translator instanceof AbstractTranslator) {
+            ((AbstractTranslator) translator).setBuildContext(buildContext);
+            ((AbstractTranslator) translator).setStagedSources(stagedSources);
+        }
         return translator;
     }
 
@@ -197,47 +732,656 @@ public abstract class AbstractIDLJMojo extends AbstractMojo {
      *
      * @param source     the <code>Source</code> that specify which file compile with arguments to use for the source
      * @param translator the <code>CompilerTranslator</code> that raprresents idl compiler backend that will be used
+     * @return the files which were compiled, in the order in which they were compiled
      * @throws MojoExecutionException if the compilation fails or the compiler crashes
      */
-    private void processSource(Source source, CompilerTranslator translator) throws MojoExecutionException {
-        Set<File> staleGrammars = computeStaleGrammars(source);
+    private List<File> processSource(Source source, CompilerTranslator translator) throws MojoExecutionException {
+        IncludeGraph includeGraph = createIncludeGraph();
+        Set<File> staleGrammars =
+                selectShard(addIncludingGrammars(source, computeStaleGrammars(source), includeGraph));
         reportProcessingNeeded(staleGrammars);
+        if (staleGrammars.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return compileGrammars(source, translator, staleGrammars, includeGraph);
+    }
 
+    /**
+     * Adds to the stale IDL files each selected file which includes one of them, directly or indirectly, since the
+     * code generated for it may depend on what has changed.
+     *
+     * @param source        the source set whose files are considered
+     * @param staleGrammars the files which changed since they were last compiled
+     * @param includeGraph  the graph used to determine the include closure of each file
+     * @return the files to compile
+     * @throws MojoExecutionException if the source directory cannot be listed
+     */
+    private Set<File> addIncludingGrammars(Source source, Set<File> staleGrammars, IncludeGraph includeGraph)
+            throws MojoExecutionException {
+        if (staleGrammars.isEmpty()) {
+            return staleGrammars;
+        }
+
+        Set<File> changedFiles = new HashSet<>();
         for (File idlFile : staleGrammars) {
-            processIdlFile(source, translator, idlFile);
+            changedFiles.add(IncludeGraph.normalize(idlFile));
+        }
+        Set<File> affectedGrammars = new HashSet<>(staleGrammars);
+        for (File idlFile : getSelectedGrammars(source)) {
+            if (!changedFiles.contains(IncludeGraph.normalize(idlFile))
+                    && !Collections.disjoint(includeGraph.getIncludeClosure(idlFile), changedFiles)) {
+                affectedGrammars.add(idlFile);
+            }
         }
+        if (affectedGrammars.size() > staleGrammars.size()) {
+            getLog().debug("Recompiling " + (affectedGrammars.size() - staleGrammars.size())
+                    + " unchanged grammar files which include changed ones");
+        }
+        return affectedGrammars;
     }
 
-    private void processIdlFile(Source source, CompilerTranslator translator, File idlFile)
+    private List<File> compileGrammars(
+            Source source, CompilerTranslator translator, Set<File> grammars, IncludeGraph includeGraph)
             throws MojoExecutionException {
+        CompilationCostModel costModel = createCostModel(includeGraph);
+        List<CompilationBatch> batches = scheduleCompilation(grammars, includeGraph, costModel);
+        List<File> schedule = new ArrayList<>();
+        for (CompilationBatch batch : batches) {
+            schedule.addAll(batch.getIdlFiles());
+        }
+        Map<File, Long> previousOutputs = getModificationTimes(getTargetDirectory());
+        OutputNormalizer normalizer = normalizeGeneratedSources
+                ? new OutputNormalizer(dependencies, getSourceDirectory(), timestampDirectory)
+                : null;
+        ExecutionHistory history = executionStrategy == null ? null : createExecutionHistory();
+        ExecutionStrategy strategy =
+                history == null ? null : selectExecutionStrategy(translator, history, schedule.size());
+        List<File> compiledFiles = Collections.synchronizedList(new ArrayList<File>());
+        Set<File> writtenFiles = null;
         try {
-            translateIdlFile(idlFile, source, translator);
-            copyToTimestampDirectory(idlFile);
+            long startTime = System.nanoTime();
+            int numThreads = getConcurrentCompilations(source, translator, batches.size());
+            if (numThreads > 1) {
+                compileConcurrently(source, translator, batches, numThreads, includeGraph, costModel, compiledFiles);
+            } else {
+                for (File idlFile : schedule) {
+                    processIdlFile(source, translator, idlFile, includeGraph, costModel);
+                    compiledFiles.add(idlFile);
+                }
+            }
+            if (history != null) {
+                history.record(strategy, schedule.size(), (System.nanoTime() - startTime) / NANOS_PER_MILLI);
+                saveExecutionHistory(history);
+            }
+            Map<File, Long> currentOutputs = getModificationTimes(getTargetDirectory());
+            writtenFiles = getWrittenFiles(currentOutputs, previousOutputs);
+            if (normalizer != null) {
+                normalizeWrittenFiles(normalizer, writtenFiles);
+            }
+            if (source.getOmittedClasses() != null && !source.getOmittedClasses().isEmpty()) {
+                if (isSharded()) {
+                    getLog().info("Keeping omitted classes until the shards are merged: a class of another shard may"
+                            + " use them");
+                    recordShardOmission(source, writtenFiles);
+                } else {
+                    pruneOmittedClasses(source, currentOutputs.keySet(), writtenFiles);
+                }
+            }
+            if (isOptionEnabled(source.optimizeHelpers())) {
+                optimizeHelpers(writtenFiles);
+            }
+            if (normalizer != null) {
+                restoreUnchangedFiles(normalizer, previousOutputs, writtenFiles);
+            }
+        } finally {
+            copyToTimestampDirectory(compiledFiles);
+            if (writtenFiles == null) {
+                writtenFiles = getWrittenFiles(getModificationTimes(getTargetDirectory()), previousOutputs);
+            }
+            refreshWrittenFiles(writtenFiles);
+        }
+        saveCostModel(costModel);
+        return schedule;
+    }
+
+    private Map<File, Long> getModificationTimes(File directory) throws MojoExecutionException {
+        try {
+            return dependencies.getModificationTimes(directory);
         } catch (IOException e) {
-            getLog().warn("Failed to copy IDL file to timestamp directory: " + e);
+            throw new MojoExecutionException("Unable to list " + directory, e);
+        }
+    }
+
+    /**
+     * @return the files which have been created or modified between the two listings of modification times
+     */
+    private static Set<File> getWrittenFiles(
+            Map<File, Long> currentModificationTimes, Map<File, Long> previousModificationTimes) {
+        Set<File> writtenFiles = new LinkedHashSet<>();
+        for (Map.Entry<File, Long> entry : currentModificationTimes.entrySet()) {
+            if (!entry.getValue().equals(previousModificationTimes.get(entry.getKey()))) {
+                writtenFiles.add(entry.getKey());
+            }
+        }
+        return writtenFiles;
+    }
+
+    private void normalizeWrittenFiles(OutputNormalizer normalizer, Set<File> writtenFiles)
+            throws MojoExecutionException {
+        try {
+            int numRewritten = normalizer.normalize(writtenFiles);
+            getLog().debug("Normalized " + numRewritten + " generated files");
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to normalize the generated sources in " + getTargetDirectory(), e);
+        }
+    }
+
+    /**
+     * Gives back their previous modification time to the written files whose content has not changed, so that
+     * incremental builds, and the build context, do not consider them changed. The restored files are removed from
+     * the written files.
+     */
+    private void restoreUnchangedFiles(
+            OutputNormalizer normalizer, Map<File, Long> previousModificationTimes, Set<File> writtenFiles)
+            throws MojoExecutionException {
+        try {
+            List<File> restored = normalizer.restoreUnchanged(previousModificationTimes, writtenFiles);
+            writtenFiles.removeAll(restored);
+            getLog().debug(restored.size() + " regenerated files were unchanged");
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to record the generated sources in " + getTargetDirectory(), e);
+        }
+    }
+
+    /**
+     * Removes the classes written by this compilation which the source asked to omit and no other class uses. The
+     * removed files are also removed from the written files.
+     */
+    private void pruneOmittedClasses(Source source, Set<File> generatedFiles, Set<File> writtenFiles)
+            throws MojoExecutionException {
+        GeneratedArtifactPruner pruner = new GeneratedArtifactPruner(source.getOmittedClasses());
+        try {
+            List<File> removed = pruner.prune(dependencies, getTargetDirectory(), generatedFiles, writtenFiles);
+            getLog().debug("Omitted " + removed.size() + " of " + writtenFiles.size() + " generated classes");
+            writtenFiles.removeAll(removed);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to remove the omitted classes from " + getTargetDirectory(), e);
+        }
+    }
+
+    /**
+     * Records the classes written by this compilation which the source asked to omit, so that the merge of the shards
+     * prunes them once it can tell whether a class of another shard uses them.
+     */
+    private void recordShardOmission(Source source, Set<File> writtenFiles) {
+        List<String> candidates = new ArrayList<>();
+        for (File file : writtenFiles) {
+            candidates.add(getRelativePath(getTargetDirectory(), file));
+        }
+        Collections.sort(candidates);
+        List<String> patterns = new ArrayList<>(new TreeSet<>(source.getOmittedClasses()));
+        shardOmissions.add(new ShardManifest.Omission(patterns, candidates));
+    }
+
+    /**
+     * Rewrites the helper classes which were written by this compilation, as described in {@link HelperOptimizer}.
+     */
+    private void optimizeHelpers(Set<File> writtenFiles) throws MojoExecutionException {
+        int numOptimized = 0;
+        for (File file : writtenFiles) {
+            if (!file.getName().endsWith(HelperOptimizer.HELPER_SUFFIX)) {
+                continue;
+            }
+            String className = file.getName().substring(0, file.getName().length() - ".java".length());
+            try {
+                String optimized = HelperOptimizer.optimize(dependencies.readFile(file), className);
+                if (optimized != null) {
+                    dependencies.writeFile(file, optimized);
+                    numOptimized++;
+                }
+            } catch (IOException e) {
+                throw new MojoExecutionException("Unable to optimize " + file, e);
+            }
+        }
+        getLog().debug("Optimized " + numOptimized + " generated helper classes");
+    }
+
+    /**
+     * Tells the build context which generated files have been created or modified, so that an IDE refreshes only
+     * those rather than the whole generated tree.
+     */
+    private void refreshWrittenFiles(Set<File> writtenFiles) {
+        for (File file : writtenFiles) {
+            buildContext.refresh(file);
+        }
+    }
+
+    private Set<File> selectShard(Set<File> staleGrammars) {
+        if (!isSharded()) {
+            return staleGrammars;
+        }
+
+        Set<File> selected = new HashSet<>();
+        for (File idlFile : staleGrammars) {
+            String relativePath = getRelativePath(getSourceDirectory(), idlFile);
+            if (ShardManifest.selectShard(relativePath, shardCount) == shardIndex) {
+                selected.add(idlFile);
+            }
+        }
+        getLog().debug("Shard " + shardIndex + " selected " + selected.size() + " of " + staleGrammars.size()
+                + " stale grammar files");
+        return selected;
+    }
+
+    private IncludeGraph createIncludeGraph() {
+        return new IncludeGraph(dependencies, includeIndex, getLog());
+    }
+
+    private CompilationCostModel createCostModel(IncludeGraph includeGraph) {
+        CompilationCostModel costModel = new CompilationCostModel(
+                dependencies, getSourceDirectory(), timestampDirectory, includeGraph, getLog());
+        costModel.load();
+        return costModel;
+    }
+
+    /**
+     * Determines the order in which the stale files are compiled: files whose include closures overlap are grouped
+     * into batches so that their shared includes are processed together, and both the batches and the files within
+     * them are ordered from the most to the least expensive.
+     */
+    private List<CompilationBatch> scheduleCompilation(
+            Set<File> staleGrammars, IncludeGraph includeGraph, CompilationCostModel costModel) {
+        List<CompilationBatch> batches = CompilationBatch.createBatches(
+                costModel.orderByDescendingCost(staleGrammars),
+                includeGraph,
+                costModel.estimateCosts(staleGrammars));
+
+        for (int i = 0; i < batches.size(); i++) {
+            getLog().debug("Include batch " + (i + 1) + " of " + batches.size() + ": " + batches.get(i));
+        }
+        return batches;
+    }
+
+    /**
+     * Determines how many batches may be compiled at the same time. Only compilers running in separate processes are
+     * run concurrently, since those running in-process keep their state in static fields; the plugin's preprocessor
+     * and the splitting into modules share state between files, so files are then compiled one at a time.
+     */
+    private int getConcurrentCompilations(Source source, CompilerTranslator translator, int numBatches) {
+        if (!(translator instanceof AbstractTranslator)
+                || !((AbstractTranslator) translator).isForked()
+                || isOptionEnabled(source.preprocess())
+                || isOptionEnabled(source.splitModules())) {
+            return 1;
+        }
+        int maxThreads = forkCount > 0 ? forkCount : Runtime.getRuntime().availableProcessors();
+        return Math.min(maxThreads, numBatches);
+    }
+
+    /**
+     * Compiles the batches in separate threads, each running the compiler in its own process. Everything the
+     * compilations share is prepared beforehand, so that the threads only run the compiler.
+     */
+    private void compileConcurrently(
+            final Source source,
+            final CompilerTranslator translator,
+            List<CompilationBatch> batches,
+            int numThreads,
+            IncludeGraph includeGraph,
+            final CompilationCostModel costModel,
+            final List<File> compiledFiles)
+            throws MojoExecutionException {
+        final Map<File, File[]> includeDirs = new HashMap<>();
+        for (CompilationBatch batch : batches) {
+            for (File idlFile : batch.getIdlFiles()) {
+                buildContext.removeMessages(idlFile);
+                includeDirs.put(idlFile, getIncludeDirs(idlFile, includeGraph));
+            }
+        }
+
+        getLog().debug("Compiling " + batches.size() + " include batches in " + numThreads + " processes");
+        CompilationBatch.compileConcurrently(batches, numThreads, idlFile -> {
+            long startTime = System.nanoTime();
+            invokeCompiler(idlFile, includeDirs.get(idlFile), source, translator);
+            costModel.recordDuration(idlFile, (System.nanoTime() - startTime) / NANOS_PER_MILLI);
+            compiledFiles.add(idlFile);
+        });
+    }
+
+    private ExecutionHistory createExecutionHistory() {
+        ExecutionHistory history = new ExecutionHistory(dependencies, timestampDirectory, getLog());
+        history.load();
+        return history;
+    }
+
+    /**
+     * Chooses how the translator runs the compiler for the specified number of stale files, and configures it
+     * accordingly.
+     */
+    private ExecutionStrategy selectExecutionStrategy(
+            CompilerTranslator translator, ExecutionHistory history, int numFiles) throws MojoExecutionException {
+        List<ExecutionStrategy> available = ExecutionStrategy.getAvailableStrategies(translator);
+        ExecutionStrategy strategy;
+        if (AUTO_EXECUTION_STRATEGY.equals(executionStrategy)) {
+            strategy = history.choose(available, numFiles);
+        } else {
+            strategy = ExecutionStrategy.select(executionStrategy);
+            if (!available.contains(strategy)) {
+                throw new MojoExecutionException(
+                        "Execution strategy " + executionStrategy + " not supported by compiler " + compiler);
+            }
+        }
+
+        if (translator instanceof AbstractTranslator) {
+            ((AbstractTranslator) translator).setForked(strategy == ExecutionStrategy.FORKED);
+        }
+        getLog().debug("Compiling " + numFiles + " grammar files " + strategy.getSelector());
+        return strategy;
+    }
+
+    private void saveExecutionHistory(ExecutionHistory history) {
+        try {
+            history.save();
+        } catch (IOException e) {
+            getLog().warn("Failed to record IDL execution history: " + e);
+        }
+    }
+
+    private void saveCostModel(CompilationCostModel costModel) {
+        try {
+            costModel.save();
+        } catch (IOException e) {
+            getLog().warn("Failed to record IDL compilation costs: " + e);
         }
     }
 
-    private void translateIdlFile(File idlFile, Source source, CompilerTranslator translator)
+    private void processIdlFile(
+            Source source,
+            CompilerTranslator translator,
+            File idlFile,
+            IncludeGraph includeGraph,
+            CompilationCostModel costModel)
+            throws MojoExecutionException {
+        long startTime = System.nanoTime();
+        translateIdlFile(idlFile, source, translator, includeGraph);
+        costModel.recordDuration(idlFile, (System.nanoTime() - startTime) / NANOS_PER_MILLI);
+    }
+
+    private void translateIdlFile(
+            File idlFile, Source source, CompilerTranslator translator, IncludeGraph includeGraph)
+            throws MojoExecutionException {
+        buildContext.removeMessages(idlFile);
+        if (isOptionEnabled(source.preprocess())) {
+            translatePreprocessedFile(idlFile, source, translator);
+            return;
+        }
+
+        List<ModuleSplitter.Unit> units = isOptionEnabled(source.splitModules()) ? splitIntoModules(idlFile) : null;
+        if (units != null) {
+            translateModuleUnits(idlFile, units, source, translator, includeGraph);
+        } else {
+            invokeCompiler(idlFile, getIncludeDirs(idlFile, includeGraph), source, translator);
+        }
+    }
+
+    private void invokeCompiler(File idlFile, File[] includeDirs, Source source, CompilerTranslator translator)
             throws MojoExecutionException {
         getLog().debug("Processing: " + idlFile.toString());
         translator.invokeCompiler(
                 getSourceDirectory().getAbsolutePath(),
-                getIncludeDirs(),
-                getOutputDirectory().getAbsolutePath(),
+                includeDirs,
+                getTargetDirectory().getAbsolutePath(),
                 idlFile.toString(),
                 source);
     }
 
-    private void copyToTimestampDirectory(File idlFile) throws IOException {
+    /**
+     * @return the include directories to pass to the compiler for the specified file
+     */
+    private File[] getIncludeDirs(File idlFile, IncludeGraph includeGraph) {
+        if (!pruneIncludeDirs) {
+            return getIncludeDirs();
+        }
+        File[] selected =
+                IncludeIndex.selectIncludeDirectories(getIncludeDirs(), includeGraph.getIncludeClosure(idlFile));
+        getLog().debug("Using " + selected.length + " of " + (getIncludeDirs() == null ? 0 : getIncludeDirs().length)
+                + " include directories for " + idlFile);
+        return selected;
+    }
+
+    /**
+     * Preprocesses an IDL file with the plugin's own preprocessor and compiles the result. The defines have then
+     * already been applied, so they are not passed to the compiler, and the preprocessed included files are the only
+     * ones it needs to find.
+     */
+    private void translatePreprocessedFile(File idlFile, Source source, CompilerTranslator translator)
+            throws MojoExecutionException {
+        IdlPreprocessor preprocessor = getPreprocessor(source);
+        File preprocessedFile;
+        try {
+            preprocessedFile = preprocessor.preprocess(idlFile, getRelativePath(getSourceDirectory(), idlFile));
+        } catch (IdlParseException e) {
+            getLog().error(e.getMessage());
+            File file = e.getFile() == null ? idlFile : e.getFile();
+            buildContext.addMessage(file, e.getLine(), 0, e.getDescription(), BuildContext.SEVERITY_ERROR, null);
+            if (failOnError) {
+                throw new MojoExecutionException("IDL preprocessing failed");
+            }
+            return;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write the preprocessed form of " + idlFile, e);
+        }
+
+        getLog().debug("Processing: " + idlFile + " as " + preprocessedFile + ", " + preprocessor.getExpansionCount()
+                + " included files preprocessed and " + preprocessor.getReuseCount() + " reused so far");
+        translator.invokeCompiler(
+                getSourceDirectory().getAbsolutePath(),
+                new File[] {preprocessor.getIncludeDirectory()},
+                getTargetDirectory().getAbsolutePath(),
+                preprocessedFile.toString(),
+                source.withoutDefines());
+    }
+
+    private IdlPreprocessor getPreprocessor(Source source) {
+        Map<String, String> macros = new TreeMap<>();
+        if (source.getDefines() != null) {
+            for (Define define : source.getDefines()) {
+                macros.put(define.getSymbol(), define.getValue() == null ? "1" : define.getValue());
+            }
+        }
+
+        IdlPreprocessor preprocessor = preprocessors.get(macros.toString());
+        if (preprocessor == null) {
+            preprocessor = new IdlPreprocessor(
+                    dependencies,
+                    new File(timestampDirectory, PREPROCESSED_DIRECTORY),
+                    getIdlDirectories(),
+                    macros,
+                    stagedSources);
+            preprocessors.put(macros.toString(), preprocessor);
+        }
+        return preprocessor;
+    }
+
+    private List<ModuleSplitter.Unit> splitIntoModules(File idlFile) throws MojoExecutionException {
+        String relativePath = getRelativePath(getSourceDirectory(), idlFile);
+        File unitDirectory = new File(new File(timestampDirectory, MODULE_UNITS_DIRECTORY), removeSuffix(relativePath));
+        try {
+            List<ModuleSplitter.Unit> units =
+                    ModuleSplitter.split(dependencies.readFile(idlFile), unitDirectory, relativePath);
+            if (units == null) {
+                getLog().debug("Not splitting " + idlFile + ": it does not consist solely of modules");
+            }
+            return units;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to read " + idlFile, e);
+        }
+    }
+
+    /**
+     * Compiles those per-module units of an IDL file whose content differs from the one last compiled, or which
+     * include a unit that is recompiled. Every unit is compiled if the files included by the IDL file, the include
+     * directories or the options of the source have changed since the units were last compiled, since the code
+     * generated for a unit also depends on them. The directory of the original file is added to the include path, so
+     * that its quoted includes still resolve.
+     */
+    private void translateModuleUnits(
+            File idlFile,
+            List<ModuleSplitter.Unit> units,
+            Source source,
+            CompilerTranslator translator,
+            IncludeGraph includeGraph)
+            throws MojoExecutionException {
+        File[] unitIncludeDirs = prepend(idlFile.getAbsoluteFile().getParentFile(), getIncludeDirs());
+        File inputsFile = new File(units.get(0).getFile().getParentFile(), UNIT_INPUTS_FILE);
+        String inputs = digestUnitInputs(idlFile, unitIncludeDirs, source, includeGraph);
+        boolean inputsUnchanged = inputs.equals(readUnitInputs(inputsFile));
+        if (!inputsUnchanged) {
+            getLog().debug("Recompiling all modules of " + idlFile + ": its includes or options have changed");
+        }
+
+        for (ModuleSplitter.Unit unit : units) {
+            stagedSources.add(unit.getFile(), unit.getModuleLine(), idlFile, unit.getOriginalModuleLine());
+        }
+
+        Set<ModuleSplitter.Unit> recompiledUnits = new HashSet<>();
+        for (ModuleSplitter.Unit unit : units) {
+            if (inputsUnchanged
+                    && isUnchanged(unit)
+                    && Collections.disjoint(unit.getReferencedUnits(), recompiledUnits)) {
+                getLog().debug("Module " + unit.getModuleName() + " of " + idlFile + " is unchanged");
+                continue;
+            }
+
+            getLog().debug("Processing module " + unit.getModuleName() + " of " + idlFile);
+            recompiledUnits.add(unit);
+            writeUnit(unit);
+            try {
+                translator.invokeCompiler(
+                        getSourceDirectory().getAbsolutePath(),
+                        unitIncludeDirs,
+                        getTargetDirectory().getAbsolutePath(),
+                        unit.getFile().toString(),
+                        source);
+            } catch (MojoExecutionException e) {
+                dependencies.deleteFile(unit.getFile());
+                throw e;
+            }
+        }
+        writeUnitInputs(inputsFile, inputs);
+    }
+
+    /**
+     * Digests the inputs which affect the code generated for the units of an IDL file, other than their own content:
+     * the content of every file it includes, directly or indirectly, the include directories and the options of the
+     * source.
+     */
+    private String digestUnitInputs(File idlFile, File[] unitIncludeDirs, Source source, IncludeGraph includeGraph)
+            throws MojoExecutionException {
+        StringBuilder inputs = new StringBuilder(source.describe()).append('\n');
+        for (File includeDir : unitIncludeDirs) {
+            inputs.append(includeDir.getAbsolutePath()).append('\n');
+        }
+        try {
+            for (File includedFile : new TreeSet<>(includeGraph.getIncludeClosure(idlFile))) {
+                inputs.append(includedFile.getAbsolutePath()).append('=');
+                inputs.append(ContentHash.of(dependencies.readBytes(includedFile))).append('\n');
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to read the files included by " + idlFile, e);
+        }
+        return ContentHash.of(inputs.toString());
+    }
+
+    private String readUnitInputs(File inputsFile) {
+        try {
+            return dependencies.exists(inputsFile) ? dependencies.readFile(inputsFile) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeUnitInputs(File inputsFile, String inputs) throws MojoExecutionException {
+        try {
+            dependencies.writeFile(inputsFile, inputs);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write " + inputsFile, e);
+        }
+    }
+
+    private boolean isUnchanged(ModuleSplitter.Unit unit) {
+        try {
+            return dependencies.exists(unit.getFile())
+                    && unit.getContent().equals(dependencies.readFile(unit.getFile()));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void writeUnit(ModuleSplitter.Unit unit) throws MojoExecutionException {
+        try {
+            dependencies.writeFile(unit.getFile(), unit.getContent());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write module unit " + unit.getFile(), e);
+        }
+    }
+
+    private static File[] prepend(File directory, File[] directories) {
+        List<File> result = new ArrayList<>();
+        result.add(directory);
+        if (directories != null) {
+            Collections.addAll(result, directories);
+        }
+        return result.toArray(new File[0]);
+    }
+
+    private static String removeSuffix(String path) {
+        return path.endsWith(".idl") ? path.substring(0, path.length() - ".idl".length()) : path;
+    }
+
+    private static boolean isOptionEnabled(Boolean option) {
+        return option != null && option;
+    }
+
+    /**
+     * Returns the path of a file relative to a directory, using forward slashes as separators. If the file is not
+     * located within the directory, its absolute path is returned instead.
+     *
+     * @param directory the base directory
+     * @param file      the file whose path is wanted
+     * @return the relative path
+     */
+    static String getRelativePath(File directory, File file) {
+        String basePath = directory.getAbsolutePath() + File.separator;
+        String path = file.getAbsolutePath();
+        if (path.startsWith(basePath)) {
+            path = path.substring(basePath.length());
+        }
+        return path.replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Records the compilation of the specified files by copying them into the timestamp directory, concurrently.
+     */
+    private void copyToTimestampDirectory(List<File> idlFiles) {
+        try {
+            IoExecutor.map(idlFiles, this::copyToTimestampDirectory);
+        } catch (IOException e) {
+            getLog().warn("Failed to copy IDL file to timestamp directory: " + e);
+        }
+    }
+
+    private File copyToTimestampDirectory(File idlFile) throws IOException {
         URI relativeURI = getSourceDirectory().toURI().relativize(idlFile.toURI());
         File timestampFile = new File(timestampDirectory.toURI().resolve(relativeURI));
         dependencies.copyFile(idlFile, timestampFile);
+        return timestampFile;
     }
 
     private void reportProcessingNeeded(Set<File> staleGrammars) {
         if (staleGrammars.size() > 0) {
-            getLog().info("Processing " + staleGrammars.size() + " grammar files to " + getOutputDirectory());
+            getLog().info("Processing " + staleGrammars.size() + " grammar files to " + getTargetDirectory());
         } else {
             getLog().info("Nothing to compile - all idl files are up to date");
         }
@@ -311,4 +1455,11 @@ public abstract class AbstractIDLJMojo extends AbstractMojo {
     protected MavenProject getProject() {
         return project;
     }
+
+    /**
+     * @return the facade through which this mojo accesses the file system
+     */
+    final DependenciesFacade getDependencies() {
+        return dependencies;
+    }
 }
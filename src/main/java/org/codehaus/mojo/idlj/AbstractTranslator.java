@@ -20,14 +20,19 @@ package org.codehaus.mojo.idlj;
  */
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.PrintStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.security.CodeSource;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
+import org.sonatype.plexus.build.incremental.BuildContext;
 
 /**
  * Shared capabilities for translators.
@@ -52,6 +57,23 @@ abstract class AbstractTranslator implements CompilerTranslator {
      */
     private Log log;
 
+    /**
+     * The build context to which compiler diagnostics are reported, or <code>null</code> if none is in use.
+     */
+    private BuildContext buildContext;
+
+    /**
+     * The files written by the plugin in place of the IDL files they were derived from, or <code>null</code> if the
+     * compiler only reads the original files.
+     */
+    private StagedSources stagedSources;
+
+    /**
+     * A compiler diagnostic, as written by the IDL compilers: the file, the line and the message.
+     */
+    private static final Pattern DIAGNOSTIC =
+            Pattern.compile("^\\s*(\\S.*?) \\(line (\\d+)\\):\\s*(.*)$", Pattern.MULTILINE);
+
     /* A facade to enable unit testing to control compiler access. */
     private static ClassLoaderFacade classLoaderFacade = new ClassLoaderFacadeImpl();
 
@@ -60,6 +82,11 @@ abstract class AbstractTranslator implements CompilerTranslator {
      */
     private static boolean fork = true;
 
+    /**
+     * Whether this translator should run the compiler in a separate process, if it is able to.
+     */
+    private boolean forked = true;
+
     /**
      * @return the debug
      */
@@ -102,6 +129,20 @@ abstract class AbstractTranslator implements CompilerTranslator {
         this.failOnError = failOnError;
     }
 
+    /**
+     * @param buildContext the build context to which compiler diagnostics are reported
+     */
+    void setBuildContext(BuildContext buildContext) {
+        this.buildContext = buildContext;
+    }
+
+    /**
+     * @param stagedSources the files whose diagnostics are to be reported against the files they were derived from
+     */
+    void setStagedSources(StagedSources stagedSources) {
+        this.stagedSources = stagedSources;
+    }
+
     /**
      * Returns true if the translator is allowed to create a new forked process.
      * @return true if forking is permitted
@@ -110,6 +151,57 @@ abstract class AbstractTranslator implements CompilerTranslator {
         return fork;
     }
 
+    /**
+     * Returns true if this translator is able to run the compiler in a separate process.
+     * @return true if the translator supports forking
+     */
+    boolean canFork() {
+        return false;
+    }
+
+    /**
+     * Returns true if this translator will run the compiler in a separate process.
+     * @return true if the compiler is to be forked
+     */
+    boolean isForked() {
+        return forked && canFork() && isFork();
+    }
+
+    /**
+     * @param forked whether the compiler should run in a separate process, where possible
+     */
+    void setForked(boolean forked) {
+        this.forked = forked;
+    }
+
+    /**
+     * Describes the compiler which this translator runs, so that the fingerprint of a compilation changes with the
+     * compiler: another compiler, or another version of the same one, may generate other sources from the same files.
+     *
+     * @return the name and version of the compiler
+     * @throws MojoExecutionException if the compiler is not available
+     */
+    abstract String describeCompiler() throws MojoExecutionException;
+
+    /**
+     * Describes a compiler loaded from a jar: the name of its class, followed by the implementation version of its
+     * package or, if it has none, the name of the jar or directory from which it was loaded.
+     *
+     * @param compilerClass the class which implements the compiler
+     * @return the description of the compiler
+     */
+    static String describeCompilerClass(Class<?> compilerClass) {
+        Package compilerPackage = compilerClass.getPackage();
+        String version = compilerPackage == null ? null : compilerPackage.getImplementationVersion();
+        if (version == null) {
+            CodeSource codeSource = compilerClass.getProtectionDomain().getCodeSource();
+            version = codeSource == null || codeSource.getLocation() == null
+                    ? "unknown"
+                    : new File(codeSource.getLocation().getPath()).getName();
+        }
+        return compilerClass.getName() + " " + version;
+    }
+
     /**
      * Specifies the implementation of the classloader facade to use
      * @param classLoaderFacade a wrapper for class loading.
@@ -144,6 +236,7 @@ abstract class AbstractTranslator implements CompilerTranslator {
 
         int exitCode = runCompilerAndRecordOutput(compilerClass, arguments, err, out);
         logOutputMessages(err, out);
+        reportDiagnostics(err.toString());
 
         if (isFailOnError() && isCompilationFailed(err, exitCode)) {
             throw new MojoExecutionException("IDL compilation failed");
@@ -209,6 +302,29 @@ abstract class AbstractTranslator implements CompilerTranslator {
         }
     }
 
+    /**
+     * Attaches each diagnostic written by the compiler to the line of the IDL file it refers to, so that an IDE can
+     * show it as a marker.
+     */
+    private void reportDiagnostics(String errors) {
+        if (buildContext == null) {
+            return;
+        }
+
+        Matcher matcher = DIAGNOSTIC.matcher(errors);
+        while (matcher.find()) {
+            String message = matcher.group(3).trim();
+            int severity = message.contains("WARNING") ? BuildContext.SEVERITY_WARNING : BuildContext.SEVERITY_ERROR;
+            File file = new File(matcher.group(1)).getAbsoluteFile();
+            int line = Integer.parseInt(matcher.group(2));
+            if (stagedSources != null) {
+                line = stagedSources.getOriginalLine(file, line);
+                file = stagedSources.getOriginalFile(file);
+            }
+            buildContext.addMessage(file, line, 0, message, severity, null);
+        }
+    }
+
     private boolean isNotEmpty(ByteArrayOutputStream outputStream) {
         return !"".equals(outputStream.toString());
     }
@@ -0,0 +1,127 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Extracts the IDL files of dependency artifacts into a cache directory, once for each distinct artifact content.
+ * Each artifact is extracted into a directory named after the checksum of the archive, which is marked complete once
+ * all its files are written; as the name depends only on the content, the directory may be shared by all builds and
+ * modules using the same cache, and an interrupted extraction is simply repeated.
+ */
+class ArtifactIncludeCache {
+    /**
+     * The file written into an extraction directory once all the IDL files have been extracted.
+     */
+    static final String COMPLETE_MARKER = ".complete";
+
+    private static final String IDL_SUFFIX = ".idl";
+
+    private final DependenciesFacade dependencies;
+    private final File cacheDirectory;
+    private final Log log;
+
+    /**
+     * Creates a cache.
+     *
+     * @param dependencies   the facade used to access the file system
+     * @param cacheDirectory the directory holding the extracted artifacts
+     * @param log            the log for diagnostic messages
+     */
+    ArtifactIncludeCache(DependenciesFacade dependencies, File cacheDirectory, Log log) {
+        this.dependencies = dependencies;
+        this.cacheDirectory = cacheDirectory;
+        this.log = log;
+    }
+
+    /**
+     * Returns a directory holding the IDL files of an artifact, extracting them if they are not already cached.
+     *
+     * @param artifactFile the file of the artifact: an archive, or a directory such as the output of a module in the
+     *                     same reactor build, which is used in place
+     * @return the directory holding the IDL files of the artifact
+     * @throws IOException if the artifact cannot be read or its files cannot be written
+     */
+    File getIncludeRoot(File artifactFile) throws IOException {
+        if (dependencies.isDirectory(artifactFile)) {
+            return artifactFile;
+        }
+
+        byte[] archive = dependencies.readBytes(artifactFile);
+        File directory = new File(cacheDirectory, ContentHash.of(archive));
+        File marker = new File(directory, COMPLETE_MARKER);
+        if (dependencies.exists(marker)) {
+            log.debug("Using the IDL files of " + artifactFile + " cached in " + directory);
+            return directory;
+        }
+
+        int count = extract(archive, directory);
+        dependencies.writeFile(marker, artifactFile.getName());
+        log.info("Extracted " + count + " IDL files from " + artifactFile.getName() + " into " + directory);
+        return directory;
+    }
+
+    private int extract(byte[] archive, File directory) throws IOException {
+        int count = 0;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String name = entry.getName();
+                if (!entry.isDirectory() && isIdlFile(name) && isSafe(name)) {
+                    dependencies.writeBytes(new File(directory, name), readEntry(zip));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static boolean isIdlFile(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(IDL_SUFFIX);
+    }
+
+    /**
+     * @return true if the entry name cannot refer to a file outside the extraction directory
+     */
+    private static boolean isSafe(String name) {
+        String path = name.replace('\\', '/');
+        return !path.startsWith("/") && !path.contains(":") && !("/" + path + "/").contains("/../");
+    }
+
+    private static byte[] readEntry(ZipInputStream zip) throws IOException {
+        ByteArrayOutputStream contents = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = zip.read(buffer)) > 0) {
+            contents.write(buffer, 0, count);
+        }
+        return contents.toByteArray();
+    }
+}
@@ -55,6 +55,15 @@ class BuiltInTranslator extends IdljTranslator {
         invokeCompiler(compilerClass, args);
     }
 
+    /**
+     * The built-in compiler is part of the JDK, so its version is that of the JDK.
+     */
+    @Override
+    String describeCompiler() {
+        return getIDLCompilerClassName() + " " + System.getProperty("java.vendor") + " "
+                + System.getProperty("java.version");
+    }
+
     /**
      * @return the <code>Class</code> that implements the idlj compiler
      * @throws MojoExecutionException if the search for the class fails
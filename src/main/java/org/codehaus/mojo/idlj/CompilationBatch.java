@@ -0,0 +1,235 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * A group of IDL files whose include closures overlap, and which are therefore compiled one after the other, so that
+ * the shared includes are read while still warm. Distinct batches share no includes, so they may be compiled at the
+ * same time by compilers running in separate processes.
+ */
+class CompilationBatch {
+    /**
+     * Compiles a single IDL file.
+     */
+    interface Compilation {
+        void compile(File idlFile) throws MojoExecutionException;
+    }
+
+    private final List<File> idlFiles = new ArrayList<>();
+    private final Set<File> sharedIncludes = new TreeSet<>();
+    private double cost;
+
+    private CompilationBatch() {}
+
+    /**
+     * Groups the specified files into batches. Two files belong to the same batch if their include closures overlap,
+     * directly or through other files of the batch. The batches are returned most expensive first; within a batch, the
+     * files keep the order in which they were specified.
+     *
+     * @param orderedFiles the files to group, in the order in which they should be compiled
+     * @param includeGraph the graph used to determine the include closure of each file
+     * @param costs        the estimated cost of compiling each file
+     * @return the batches
+     */
+    static List<CompilationBatch> createBatches(
+            List<File> orderedFiles, IncludeGraph includeGraph, Map<File, Double> costs) {
+        int[] parents = new int[orderedFiles.size()];
+        Map<File, Integer> firstIncluders = new HashMap<>();
+        for (int i = 0; i < orderedFiles.size(); i++) {
+            parents[i] = i;
+            for (File include : includeGraph.getIncludeClosure(orderedFiles.get(i))) {
+                Integer firstIncluder = firstIncluders.putIfAbsent(include, i);
+                if (firstIncluder != null) {
+                    union(parents, firstIncluder, i);
+                }
+            }
+        }
+
+        Map<Integer, CompilationBatch> batches = new LinkedHashMap<>();
+        for (int i = 0; i < orderedFiles.size(); i++) {
+            File idlFile = orderedFiles.get(i);
+            CompilationBatch batch = batches.computeIfAbsent(find(parents, i), root -> new CompilationBatch());
+            batch.idlFiles.add(idlFile);
+            batch.cost += costs.containsKey(idlFile) ? costs.get(idlFile) : 0;
+        }
+
+        List<CompilationBatch> result = new ArrayList<>(batches.values());
+        for (CompilationBatch batch : result) {
+            batch.recordSharedIncludes(includeGraph);
+        }
+        result.sort(Comparator.comparingDouble(CompilationBatch::getCost).reversed());
+        return result;
+    }
+
+    /**
+     * Compiles the files of the specified batches, running up to the specified number of batches at the same time.
+     * The batches are started in the order given, most expensive first, so that the longest ones do not end up
+     * running alone at the end; the files of a batch are compiled one after the other, in order. Once a compilation
+     * fails, no further file is compiled, but those already being compiled are waited for, so that no compiler process
+     * is left running.
+     *
+     * @param batches     the batches to compile
+     * @param numThreads  the maximum number of files compiled at the same time
+     * @param compilation the operation which compiles a file
+     * @throws MojoExecutionException if a compilation fails, or the thread is interrupted
+     */
+    static void compileConcurrently(List<CompilationBatch> batches, int numThreads, final Compilation compilation)
+            throws MojoExecutionException {
+        final AtomicBoolean failed = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+            Thread thread = new Thread(runnable, "idlj-compiler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (final CompilationBatch batch : batches) {
+                futures.add(executor.submit(() -> {
+                    for (File idlFile : batch.idlFiles) {
+                        if (failed.get()) {
+                            return null;
+                        }
+                        try {
+                            compilation.compile(idlFile);
+                        } catch (MojoExecutionException | RuntimeException | Error e) {
+                            failed.set(true);
+                            throw e;
+                        }
+                    }
+                    return null;
+                }));
+            }
+            awaitAll(futures);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            throw new MojoExecutionException("Interrupted while compiling IDL files", e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> futures) throws InterruptedException, MojoExecutionException {
+        Throwable failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure instanceof MojoExecutionException) {
+            throw (MojoExecutionException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new MojoExecutionException("IDL compilation failed", failure);
+        }
+    }
+
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parents, int i, int j) {
+        int rootI = find(parents, i);
+        int rootJ = find(parents, j);
+        if (rootI != rootJ) {
+            parents[Math.max(rootI, rootJ)] = Math.min(rootI, rootJ);
+        }
+    }
+
+    private void recordSharedIncludes(IncludeGraph includeGraph) {
+        Set<File> seen = new TreeSet<>();
+        for (File idlFile : idlFiles) {
+            for (File include : includeGraph.getIncludeClosure(idlFile)) {
+                if (!seen.add(include)) {
+                    sharedIncludes.add(include);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the files in this batch, in compilation order
+     */
+    List<File> getIdlFiles() {
+        return Collections.unmodifiableList(idlFiles);
+    }
+
+    /**
+     * @return the files included by more than one file of this batch
+     */
+    Set<File> getSharedIncludes() {
+        return Collections.unmodifiableSet(sharedIncludes);
+    }
+
+    /**
+     * @return the estimated cost of compiling all files of this batch, in milliseconds
+     */
+    double getCost() {
+        return cost;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(idlFiles.size()).append(" file(s)");
+        if (!sharedIncludes.isEmpty()) {
+            sb.append(", sharing ").append(getNames(sharedIncludes));
+        }
+        sb.append(": ").append(getNames(idlFiles));
+        return sb.toString();
+    }
+
+    private static List<String> getNames(Iterable<File> files) {
+        List<String> names = new ArrayList<>();
+        for (File file : files) {
+            names.add(file.getName());
+        }
+        return names;
+    }
+}
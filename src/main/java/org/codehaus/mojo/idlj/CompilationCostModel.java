@@ -0,0 +1,196 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Estimates the cost of compiling individual IDL files, so that the most expensive files can be processed first.
+ * The estimate is based on the size of the file and the number of files it includes; once a file has been compiled,
+ * the measured duration is recorded in the timestamp directory and used by subsequent builds instead.
+ */
+class CompilationCostModel {
+    /**
+     * The name of the file, in the timestamp directory, which holds the recorded compilation durations.
+     */
+    static final String COST_FILE_NAME = "idlj-costs.properties";
+
+    /**
+     * The weight, in bytes, added to the size of an IDL file for each file that it includes.
+     */
+    private static final long INCLUDE_WEIGHT = 4096;
+
+    /**
+     * The assumed cost in milliseconds per weighted byte, used when no durations have been recorded.
+     */
+    private static final double DEFAULT_MILLIS_PER_BYTE = 0.001;
+
+    private final DependenciesFacade dependencies;
+    private final File sourceDirectory;
+    private final File costFile;
+    private final IncludeGraph includeGraph;
+    private final Log log;
+    private final Properties durations = new Properties();
+    private final Map<File, Long> weights = new HashMap<>();
+
+    CompilationCostModel(
+            DependenciesFacade dependencies,
+            File sourceDirectory,
+            File timestampDirectory,
+            IncludeGraph includeGraph,
+            Log log) {
+        this.dependencies = dependencies;
+        this.sourceDirectory = sourceDirectory;
+        this.costFile = new File(timestampDirectory, COST_FILE_NAME);
+        this.includeGraph = includeGraph;
+        this.log = log;
+    }
+
+    /**
+     * Reads the durations recorded by earlier builds, if any.
+     */
+    void load() {
+        if (!dependencies.exists(costFile)) {
+            return;
+        }
+
+        try {
+            durations.load(new StringReader(dependencies.readFile(costFile)));
+        } catch (IOException e) {
+            log.debug("Unable to read compilation costs from " + costFile + ": " + e);
+        }
+    }
+
+    /**
+     * Writes the recorded durations to the timestamp directory, leaving out those of files which no longer exist, so
+     * that the file does not grow with every IDL file ever renamed or removed.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    void save() throws IOException {
+        for (String key : durations.stringPropertyNames()) {
+            File idlFile = new File(key);
+            if (!dependencies.exists(idlFile.isAbsolute() ? idlFile : new File(sourceDirectory, key))) {
+                durations.remove(key);
+            }
+        }
+        StringWriter writer = new StringWriter();
+        durations.store(writer, "IDL compilation durations in milliseconds");
+        dependencies.writeFile(costFile, writer.toString());
+    }
+
+    /**
+     * Records the time taken to compile the specified file.
+     *
+     * @param idlFile the file which was compiled
+     * @param millis  the elapsed time in milliseconds
+     */
+    void recordDuration(File idlFile, long millis) {
+        durations.setProperty(getKey(idlFile), Long.toString(millis));
+    }
+
+    /**
+     * Returns the specified files ordered so that the most expensive one comes first. Files with the same estimated
+     * cost are ordered by path, so that the schedule is repeatable.
+     *
+     * @param idlFiles the files to order
+     * @return a new list containing the files in descending order of estimated cost
+     */
+    List<File> orderByDescendingCost(Collection<File> idlFiles) {
+        final Map<File, Double> costs = estimateCosts(idlFiles);
+
+        List<File> ordered = new ArrayList<>(idlFiles);
+        ordered.sort(Comparator.comparing((File file) -> costs.get(file))
+                .reversed()
+                .thenComparing(File::getPath));
+        return ordered;
+    }
+
+    /**
+     * Estimates the cost of compiling each of the specified files, in milliseconds. Recorded durations are used where
+     * present; the remaining files are estimated from their weight, scaled by the cost per weighted byte observed for
+     * those files which do have history.
+     *
+     * @param idlFiles the files whose costs are to be estimated
+     * @return a map of each file to its estimated cost
+     */
+    Map<File, Double> estimateCosts(Collection<File> idlFiles) {
+        double millisPerByte = getObservedMillisPerByte(idlFiles);
+
+        Map<File, Double> costs = new HashMap<>();
+        for (File idlFile : idlFiles) {
+            Long recorded = getRecordedDuration(idlFile);
+            costs.put(idlFile, recorded != null ? recorded : getWeight(idlFile) * millisPerByte);
+        }
+        return costs;
+    }
+
+    private double getObservedMillisPerByte(Collection<File> idlFiles) {
+        long totalMillis = 0;
+        long totalWeight = 0;
+        for (File idlFile : idlFiles) {
+            Long recorded = getRecordedDuration(idlFile);
+            if (recorded != null) {
+                totalMillis += recorded;
+                totalWeight += getWeight(idlFile);
+            }
+        }
+        return totalMillis == 0 || totalWeight == 0 ? DEFAULT_MILLIS_PER_BYTE : (double) totalMillis / totalWeight;
+    }
+
+    private Long getRecordedDuration(File idlFile) {
+        String value = durations.getProperty(getKey(idlFile));
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private long getWeight(File idlFile) {
+        Long weight = weights.get(idlFile);
+        if (weight == null) {
+            weight = 1 + dependencies.length(idlFile) + INCLUDE_WEIGHT * includeGraph.getIncludeNames(idlFile).size();
+            weights.put(idlFile, weight);
+        }
+        return weight;
+    }
+
+    private String getKey(File idlFile) {
+        return AbstractIDLJMojo.getRelativePath(sourceDirectory, idlFile);
+    }
+
+}
@@ -0,0 +1,126 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.plexus.compiler.util.scan.InclusionScanException;
+import org.codehaus.plexus.compiler.util.scan.SourceInclusionScanner;
+import org.codehaus.plexus.compiler.util.scan.mapping.SourceMapping;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.SelectorUtils;
+
+/**
+ * Selects the source files which are newer than their targets, as the plexus <code>StaleSourceScanner</code> does, but
+ * through a {@link DependenciesFacade}. The modification times of the sources are read while listing them, and those
+ * of the targets concurrently, through an {@link IoExecutor}. On a file system with a high latency, that time is what
+ * dominates a build in which nothing needs compiling.
+ */
+class ConcurrentStaleSourceScanner implements SourceInclusionScanner {
+    private final DependenciesFacade dependencies;
+    private final long lastUpdatedWithinMsecs;
+    private final List<String> includes;
+    private final List<String> excludes;
+    private final List<SourceMapping> sourceMappings = new ArrayList<>();
+
+    ConcurrentStaleSourceScanner(
+            DependenciesFacade dependencies, long lastUpdatedWithinMsecs, Set<String> includes, Set<String> excludes) {
+        this.dependencies = dependencies;
+        this.lastUpdatedWithinMsecs = lastUpdatedWithinMsecs;
+        this.includes = normalizePatterns(includes);
+        this.excludes = normalizePatterns(excludes);
+        this.excludes.addAll(normalizePatterns(Arrays.asList(DirectoryScanner.DEFAULTEXCLUDES)));
+    }
+
+    private static List<String> normalizePatterns(Collection<String> patterns) {
+        List<String> normalized = new ArrayList<>();
+        for (String pattern : patterns) {
+            String path = pattern.trim().replace('\\', '/');
+            normalized.add(path.endsWith("/") ? path + "**" : path);
+        }
+        return normalized;
+    }
+
+    @Override
+    public void addSourceMapping(SourceMapping sourceMapping) {
+        sourceMappings.add(sourceMapping);
+    }
+
+    @Override
+    public Set<File> getIncludedSources(File sourceDir, File targetDir) throws InclusionScanException {
+        Set<File> staleSources = new LinkedHashSet<>();
+        if (sourceMappings.isEmpty()) {
+            return staleSources;
+        }
+
+        try {
+            List<String> sourcePaths = new ArrayList<>();
+            List<Long> sourceTimes = new ArrayList<>();
+            for (Map.Entry<File, Long> entry : dependencies.getModificationTimes(sourceDir).entrySet()) {
+                String path = AbstractIDLJMojo.getRelativePath(sourceDir, entry.getKey());
+                if (matchesAny(includes, path) && !matchesAny(excludes, path)) {
+                    sourcePaths.add(path);
+                    sourceTimes.add(entry.getValue());
+                }
+            }
+
+            List<File> targets = new ArrayList<>();
+            List<Integer> firstTargets = new ArrayList<>();
+            for (String path : sourcePaths) {
+                firstTargets.add(targets.size());
+                for (SourceMapping mapping : sourceMappings) {
+                    targets.addAll(mapping.getTargetFiles(targetDir, path));
+                }
+            }
+            firstTargets.add(targets.size());
+
+            List<Long> targetTimes = IoExecutor.map(targets, dependencies::lastModified);
+            for (int i = 0; i < sourcePaths.size(); i++) {
+                for (int j = firstTargets.get(i); j < firstTargets.get(i + 1); j++) {
+                    if (targetTimes.get(j) == 0L || targetTimes.get(j) + lastUpdatedWithinMsecs < sourceTimes.get(i)) {
+                        staleSources.add(new File(sourceDir, sourcePaths.get(i)));
+                        break;
+                    }
+                }
+            }
+            return staleSources;
+        } catch (IOException e) {
+            throw new InclusionScanException("Unable to read the modification times below " + sourceDir, e);
+        }
+    }
+
+    private static boolean matchesAny(List<String> patterns, String path) {
+        for (String pattern : patterns) {
+            if (SelectorUtils.matchPath(pattern, path, "/", true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
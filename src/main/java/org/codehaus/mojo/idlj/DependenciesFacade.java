@@ -2,6 +2,8 @@ package org.codehaus.mojo.idlj;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.codehaus.plexus.compiler.util.scan.SourceInclusionScanner;
@@ -19,4 +21,24 @@ interface DependenciesFacade {
     boolean isWriteable(File directory);
 
     boolean isDirectory(File file);
+
+    long length(File file);
+
+    long lastModified(File file);
+
+    void setLastModified(File file, long time);
+
+    String readFile(File file) throws IOException;
+
+    void writeFile(File file, String contents) throws IOException;
+
+    byte[] readBytes(File file) throws IOException;
+
+    void writeBytes(File file, byte[] contents) throws IOException;
+
+    void deleteFile(File file);
+
+    List<File> listFiles(File directory) throws IOException;
+
+    Map<File, Long> getModificationTimes(File directory) throws IOException;
 }
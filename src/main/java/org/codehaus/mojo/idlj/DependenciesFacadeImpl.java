@@ -2,35 +2,222 @@ package org.codehaus.mojo.idlj;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.codehaus.plexus.compiler.util.scan.SourceInclusionScanner;
-import org.codehaus.plexus.compiler.util.scan.StaleSourceScanner;
-import org.codehaus.plexus.util.FileUtils;
 
+/**
+ * Accesses the files of the plugin through a {@link FileSystem}: by default the platform file system, or, for tests
+ * and benchmarks, any other, such as one held in memory. Files are written to a temporary sibling and then moved into
+ * place, atomically where the file system allows it, so that a build which is interrupted, or one running
+ * concurrently, never sees a partially written file.
+ */
 class DependenciesFacadeImpl implements DependenciesFacade {
+    private static final Charset FILE_ENCODING = StandardCharsets.ISO_8859_1;
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final FileSystem fileSystem;
+
+    /**
+     * Creates a facade for the platform file system.
+     */
+    DependenciesFacadeImpl() {
+        this(FileSystems.getDefault());
+    }
+
+    /**
+     * Creates a facade for the specified file system, in which the paths of the files passed to it are resolved.
+     *
+     * @param fileSystem the file system to use
+     */
+    DependenciesFacadeImpl(FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+    }
+
+    private Path toPath(File file) {
+        return fileSystem.getPath(file.getPath());
+    }
+
+    private static File toFile(Path path) {
+        return new File(path.toString());
+    }
+
     public void copyFile(File sourceFile, File targetFile) throws IOException {
-        FileUtils.copyFile(sourceFile, targetFile);
+        Path target = toPath(targetFile);
+        createParentDirectories(target);
+        Path temporary = getTemporaryPath(target);
+        try {
+            Path source = toPath(sourceFile);
+            Files.copy(source, temporary, StandardCopyOption.REPLACE_EXISTING);
+            moveIntoPlace(temporary, target);
+            // the stale source scanner compares the copy's modification time with that of its source
+            Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
     }
 
     public SourceInclusionScanner createSourceInclusionScanner(
             int updatedWithinMsecs, Set<String> includes, Set<String> excludes) {
-        return new StaleSourceScanner(updatedWithinMsecs, includes, excludes);
+        return new ConcurrentStaleSourceScanner(this, updatedWithinMsecs, includes, excludes);
     }
 
     public boolean exists(File file) {
-        return file.exists();
+        return Files.exists(toPath(file));
     }
 
     public void createDirectory(File directory) {
-        directory.mkdirs();
+        try {
+            Files.createDirectories(toPath(directory));
+        } catch (IOException e) {
+            // reported when the directory is used
+        }
     }
 
     public boolean isWriteable(File directory) {
-        return directory.canWrite();
+        return Files.isWritable(toPath(directory));
     }
 
     public boolean isDirectory(File file) {
-        return file.isDirectory();
+        return Files.isDirectory(toPath(file));
+    }
+
+    public long length(File file) {
+        try {
+            return Files.size(toPath(file));
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    public long lastModified(File file) {
+        try {
+            return Files.getLastModifiedTime(toPath(file)).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    public void setLastModified(File file, long time) {
+        try {
+            Files.setLastModifiedTime(toPath(file), FileTime.fromMillis(time));
+        } catch (IOException e) {
+            // the file will merely be considered changed
+        }
+    }
+
+    public String readFile(File file) throws IOException {
+        return new String(readBytes(file), FILE_ENCODING);
+    }
+
+    public void writeFile(File file, String contents) throws IOException {
+        writeBytes(file, contents.getBytes(FILE_ENCODING));
+    }
+
+    public byte[] readBytes(File file) throws IOException {
+        return Files.readAllBytes(toPath(file));
+    }
+
+    public void writeBytes(File file, byte[] contents) throws IOException {
+        Path target = toPath(file);
+        createParentDirectories(target);
+        Path temporary = getTemporaryPath(target);
+        try {
+            Files.write(temporary, contents);
+            moveIntoPlace(temporary, target);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public void deleteFile(File file) {
+        try {
+            Files.deleteIfExists(toPath(file));
+        } catch (IOException e) {
+            // the file will be overwritten or reported later
+        }
+    }
+
+    public List<File> listFiles(File directory) throws IOException {
+        return new ArrayList<>(getModificationTimes(directory).keySet());
+    }
+
+    /**
+     * Lists the files below the specified directory, following symbolic links. A link leading back to one of its own
+     * parent directories is skipped rather than followed forever, as are files deleted while the tree is walked.
+     */
+    public Map<File, Long> getModificationTimes(File directory) throws IOException {
+        Map<File, Long> modificationTimes = new HashMap<>();
+        Path root = toPath(directory);
+        if (!Files.isDirectory(root)) {
+            return modificationTimes;
+        }
+
+        Files.walkFileTree(
+                root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                        if (!attributes.isSymbolicLink() && !isTemporary(file)) {
+                            modificationTimes.put(toFile(file), attributes.lastModifiedTime().toMillis());
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                        if (e instanceof FileSystemLoopException || e instanceof NoSuchFileException) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                        throw e;
+                    }
+                });
+        return modificationTimes;
+    }
+
+    private static boolean isTemporary(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(".") && name.endsWith(TEMPORARY_SUFFIX);
+    }
+
+    private static void createParentDirectories(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+    }
+
+    private static Path getTemporaryPath(Path target) {
+        String suffix = Long.toHexString(ThreadLocalRandom.current().nextLong()) + TEMPORARY_SUFFIX;
+        return target.resolveSibling("." + target.getFileName() + "." + suffix);
+    }
+
+    private static void moveIntoPlace(Path temporary, Path target) throws IOException {
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 }
@@ -0,0 +1,158 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.maven.RepositoryUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.DefaultDependencyResolutionRequest;
+import org.apache.maven.project.DependencyResolutionException;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectDependenciesResolver;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.graph.DependencyFilter;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+
+/**
+ * Resolves the dependencies of the project which a build needs, when it first needs them: those named as include or
+ * stub artifacts, and the compile class path when the generated sources are compiled. The goals therefore need not
+ * require the resolution of all the dependencies of the project, which would fail in a reactor whose other modules
+ * are not built yet.
+ */
+class DependencyResolver {
+    private static final Collection<String> COMPILE_SCOPES = Arrays.asList("compile", "provided", "system");
+
+    private final MavenProject project;
+    private final RepositorySystem repositorySystem;
+    private final ProjectDependenciesResolver projectDependenciesResolver;
+    private final RepositorySystemSession session;
+
+    /**
+     * Creates a resolver.
+     *
+     * @param project                     the project whose dependencies are resolved
+     * @param repositorySystem            the system through which single artifacts are resolved
+     * @param projectDependenciesResolver the resolver of the dependencies of a project, and of theirs
+     * @param session                     the session of the build
+     */
+    DependencyResolver(
+            MavenProject project,
+            RepositorySystem repositorySystem,
+            ProjectDependenciesResolver projectDependenciesResolver,
+            RepositorySystemSession session) {
+        this.project = project;
+        this.repositorySystem = repositorySystem;
+        this.projectDependenciesResolver = projectDependenciesResolver;
+        this.session = session;
+    }
+
+    /**
+     * Resolves the compile class path of the project: the files of its compile, provided and system dependencies, and
+     * of their own dependencies.
+     *
+     * @return the files of the dependencies
+     * @throws MojoExecutionException if a dependency cannot be resolved
+     */
+    List<File> resolveCompileClasspath() throws MojoExecutionException {
+        DefaultDependencyResolutionRequest request = new DefaultDependencyResolutionRequest(project, session);
+        request.setResolutionFilter(new DependencyFilter() {
+            @Override
+            public boolean accept(DependencyNode node, List<DependencyNode> parents) {
+                return node.getDependency() == null || COMPILE_SCOPES.contains(node.getDependency().getScope());
+            }
+        });
+
+        List<File> classpath = new ArrayList<>();
+        try {
+            for (org.eclipse.aether.graph.Dependency dependency :
+                    projectDependenciesResolver.resolve(request).getDependencies()) {
+                if (dependency.getArtifact().getFile() != null) {
+                    classpath.add(dependency.getArtifact().getFile());
+                }
+            }
+        } catch (DependencyResolutionException e) {
+            throw new MojoExecutionException("Unable to resolve the compile dependencies of the project", e);
+        }
+        return classpath;
+    }
+
+    /**
+     * Returns the file of a dependency: an archive, or a directory of classes for a module of the reactor which has
+     * not been packaged. A dependency already resolved by an earlier goal of the build is not resolved again.
+     *
+     * @param includeArtifact the coordinates of the dependency, without its version
+     * @return the file of the dependency
+     * @throws MojoExecutionException if the project declares no such dependency, or it cannot be resolved
+     */
+    File resolve(IncludeArtifact includeArtifact) throws MojoExecutionException {
+        for (Artifact artifact : project.getArtifacts()) {
+            if (matches(includeArtifact, artifact.getGroupId(), artifact.getArtifactId(), artifact.getClassifier())
+                    && artifact.getFile() != null) {
+                return artifact.getFile();
+            }
+        }
+
+        ArtifactRequest request = new ArtifactRequest(
+                RepositoryUtils.toDependency(findDependency(includeArtifact), session.getArtifactTypeRegistry())
+                        .getArtifact(),
+                project.getRemoteProjectRepositories(),
+                null);
+        try {
+            return repositorySystem.resolveArtifact(session, request).getArtifact().getFile();
+        } catch (ArtifactResolutionException e) {
+            throw new MojoExecutionException("Unable to resolve artifact " + includeArtifact, e);
+        }
+    }
+
+    private Dependency findDependency(IncludeArtifact includeArtifact) throws MojoExecutionException {
+        for (Dependency dependency : project.getDependencies()) {
+            if (matches(
+                    includeArtifact,
+                    dependency.getGroupId(),
+                    dependency.getArtifactId(),
+                    dependency.getClassifier())) {
+                return dependency;
+            }
+        }
+        throw new MojoExecutionException("Artifact " + includeArtifact + " is not a dependency of the project");
+    }
+
+    private static boolean matches(
+            IncludeArtifact includeArtifact, String groupId, String artifactId, String classifier) {
+        return includeArtifact.getGroupId().equals(groupId)
+                && includeArtifact.getArtifactId().equals(artifactId)
+                && Objects.equals(emptyToNull(includeArtifact.getClassifier()), emptyToNull(classifier));
+    }
+
+    private static String emptyToNull(String text) {
+        return text == null || text.isEmpty() ? null : text;
+    }
+}
@@ -0,0 +1,217 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Records how long each execution strategy took to compile the stale files of a module, and selects the strategy
+ * expected to be fastest for the next set of stale files. Durations are kept per size class of stale set, where size
+ * class <i>n</i> holds the sets of 2<sup><i>n</i></sup> to 2<sup><i>n</i>+1</sup>-1 files, since the cost of starting
+ * a compiler matters for a few files but not for thousands. Every {@link #PROBE_INTERVAL}th run of a size class
+ * uses the strategy which has gone longest without being measured, so that the choice follows changes in the IDL
+ * files or the JDK.
+ */
+class ExecutionHistory {
+    /**
+     * The name of the file, in the timestamp directory, which holds the recorded durations.
+     */
+    static final String HISTORY_FILE_NAME = "idlj-strategies.properties";
+
+    /**
+     * The number of runs in a size class after which a strategy other than the fastest is measured again.
+     */
+    static final int PROBE_INTERVAL = 8;
+
+    /**
+     * The weight of the latest measurement in the recorded average.
+     */
+    private static final double SMOOTHING = 0.5;
+
+    private static final String RUN_COUNT = "runs";
+
+    private final DependenciesFacade dependencies;
+    private final File historyFile;
+    private final Log log;
+    private final Properties history = new Properties();
+
+    ExecutionHistory(DependenciesFacade dependencies, File timestampDirectory, Log log) {
+        this.dependencies = dependencies;
+        this.historyFile = new File(timestampDirectory, HISTORY_FILE_NAME);
+        this.log = log;
+    }
+
+    /**
+     * Reads the durations recorded by earlier builds, if any.
+     */
+    void load() {
+        if (!dependencies.exists(historyFile)) {
+            return;
+        }
+
+        try {
+            history.load(new StringReader(dependencies.readFile(historyFile)));
+        } catch (IOException e) {
+            log.debug("Unable to read execution history from " + historyFile + ": " + e);
+        }
+    }
+
+    /**
+     * Writes the recorded durations to the timestamp directory.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    void save() throws IOException {
+        StringWriter writer = new StringWriter();
+        history.store(writer, "IDL compilation milliseconds per file, by strategy and size class");
+        dependencies.writeFile(historyFile, writer.toString());
+    }
+
+    /**
+     * @param numFiles the number of files to compile, at least one
+     * @return the size class of a set of that many files
+     */
+    static int getSizeClass(int numFiles) {
+        return 31 - Integer.numberOfLeadingZeros(Math.max(1, numFiles));
+    }
+
+    /**
+     * Selects the strategy with which to compile a set of stale files. A strategy which has never been measured is
+     * tried first; otherwise the strategy with the lowest recorded time per file in the nearest measured size class
+     * is chosen, except when it is time to probe again.
+     *
+     * @param candidates the strategies available, in order of preference when their times are equal
+     * @param numFiles   the number of files to compile
+     * @return the selected strategy
+     */
+    ExecutionStrategy choose(List<ExecutionStrategy> candidates, int numFiles) {
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+
+        for (ExecutionStrategy candidate : candidates) {
+            if (getLastRun(candidate) < 0) {
+                return candidate;
+            }
+        }
+
+        int sizeClass = getSizeClass(numFiles);
+        long runs = getLong(RUN_COUNT + "." + sizeClass, 0);
+        if (runs > 0 && runs % PROBE_INTERVAL == 0) {
+            return getLeastRecentlyMeasured(candidates);
+        }
+
+        ExecutionStrategy fastest = candidates.get(0);
+        double fastestMillis = estimateMillisPerFile(fastest, sizeClass);
+        for (ExecutionStrategy candidate : candidates) {
+            double millis = estimateMillisPerFile(candidate, sizeClass);
+            if (millis < fastestMillis) {
+                fastest = candidate;
+                fastestMillis = millis;
+            }
+        }
+        return fastest;
+    }
+
+    private ExecutionStrategy getLeastRecentlyMeasured(List<ExecutionStrategy> candidates) {
+        ExecutionStrategy selected = candidates.get(0);
+        for (ExecutionStrategy candidate : candidates) {
+            if (getLastRun(candidate) < getLastRun(selected)) {
+                selected = candidate;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @return the time per file recorded for the strategy in the nearest size class for which it has been measured,
+     *         preferring the smaller class when two are equally near
+     */
+    double estimateMillisPerFile(ExecutionStrategy strategy, int sizeClass) {
+        for (int distance = 0; distance < Integer.SIZE; distance++) {
+            for (int candidateClass : new int[] {sizeClass - distance, sizeClass + distance}) {
+                String value = history.getProperty(getKey(strategy, candidateClass));
+                if (candidateClass >= 0 && value != null) {
+                    try {
+                        return Double.parseDouble(value);
+                    } catch (NumberFormatException e) {
+                        log.debug("Ignoring invalid execution history entry " + value);
+                    }
+                }
+            }
+        }
+        return Double.MAX_VALUE;
+    }
+
+    /**
+     * Records the time taken to compile a set of stale files.
+     *
+     * @param strategy the strategy used
+     * @param numFiles the number of files compiled
+     * @param millis   the elapsed time in milliseconds
+     */
+    void record(ExecutionStrategy strategy, int numFiles, long millis) {
+        if (numFiles == 0) {
+            return;
+        }
+
+        int sizeClass = getSizeClass(numFiles);
+        double millisPerFile = (double) millis / numFiles;
+        String key = getKey(strategy, sizeClass);
+        if (history.getProperty(key) != null) {
+            millisPerFile = SMOOTHING * millisPerFile + (1 - SMOOTHING) * estimateMillisPerFile(strategy, sizeClass);
+        }
+        history.setProperty(key, Double.toString(millisPerFile));
+
+        long run = getLong(RUN_COUNT, 0) + 1;
+        history.setProperty(RUN_COUNT, Long.toString(run));
+        history.setProperty(RUN_COUNT + "." + sizeClass, Long.toString(getLong(RUN_COUNT + "." + sizeClass, 0) + 1));
+        history.setProperty(strategy.getSelector() + ".lastRun", Long.toString(run));
+    }
+
+    private long getLastRun(ExecutionStrategy strategy) {
+        return getLong(strategy.getSelector() + ".lastRun", -1);
+    }
+
+    private long getLong(String key, long defaultValue) {
+        String value = history.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static String getKey(ExecutionStrategy strategy, int sizeClass) {
+        return strategy.getSelector() + "." + sizeClass;
+    }
+}
@@ -0,0 +1,74 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * The ways in which a translator may run the compiler for a set of stale IDL files.
+ */
+enum ExecutionStrategy {
+    IN_PROCESS("in-process"),
+    FORKED("forked");
+
+    private final String selector;
+
+    ExecutionStrategy(String selector) {
+        this.selector = selector;
+    }
+
+    String getSelector() {
+        return selector;
+    }
+
+    /**
+     * @param setting the configured strategy
+     * @return the strategy with the specified selector
+     * @throws MojoExecutionException if no strategy has that selector
+     */
+    static ExecutionStrategy select(String setting) throws MojoExecutionException {
+        for (ExecutionStrategy strategy : values()) {
+            if (strategy.selector.equals(setting)) {
+                return strategy;
+            }
+        }
+
+        throw new MojoExecutionException("Execution strategy not supported: " + setting);
+    }
+
+    /**
+     * @param translator the translator which is to run the compiler
+     * @return the strategies which the translator supports, in declaration order
+     */
+    static List<ExecutionStrategy> getAvailableStrategies(CompilerTranslator translator) {
+        List<ExecutionStrategy> strategies = new ArrayList<>();
+        strategies.add(IN_PROCESS);
+        if (translator instanceof AbstractTranslator
+                && ((AbstractTranslator) translator).canFork()
+                && AbstractTranslator.isFork()) {
+            strategies.add(FORKED);
+        }
+        return strategies;
+    }
+}
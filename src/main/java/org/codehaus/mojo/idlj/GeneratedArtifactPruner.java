@@ -0,0 +1,213 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.SelectorUtils;
+
+/**
+ * Removes generated classes of the kinds which a source has asked to omit, such as the holders or the POA classes of
+ * certain IDL types. A class is only removed if no other class left in the generated sources refers to it, so that
+ * the remaining classes still compile; a holder used as an <code>out</code> parameter by a kept stub is kept, for
+ * instance.
+ */
+class GeneratedArtifactPruner {
+    private static final String JAVA_SUFFIX = ".java";
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+    /**
+     * The kinds of classes which the compilers generate for an IDL type, recognized by the affixes of their names.
+     */
+    enum Kind {
+        STUB("_", "Stub"),
+        IMPLBASE("_", "ImplBase"),
+        POA("", "POA"),
+        TIE("", "POATie"),
+        OLDTIE("_", "Tie"),
+        OPERATIONS("", "Operations"),
+        HELPER("", "Helper"),
+        HOLDER("", "Holder");
+
+        private final String prefix;
+        private final String suffix;
+
+        Kind(String prefix, String suffix) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+        /**
+         * @return the name of the IDL type of which the specified class is of this kind, or null if it is not
+         */
+        String getTypeName(String className) {
+            if (className.length() > prefix.length() + suffix.length()
+                    && className.startsWith(prefix)
+                    && className.endsWith(suffix)) {
+                return className.substring(prefix.length(), className.length() - suffix.length());
+            }
+            return null;
+        }
+    }
+
+    private final List<Selection> selections = new ArrayList<>();
+
+    /**
+     * Creates a pruner for the specified patterns.
+     *
+     * @param patterns patterns of the form <code>kind:typePattern</code>, where kind is the name of a {@link Kind},
+     *                 in any case, and the type pattern matches the qualified type name with '/' separators. A
+     *                 pattern without a type pattern applies to all types.
+     * @throws MojoExecutionException if a pattern does not name a known kind
+     */
+    GeneratedArtifactPruner(Collection<String> patterns) throws MojoExecutionException {
+        for (String pattern : patterns) {
+            int colon = pattern.indexOf(':');
+            String kindName = (colon < 0 ? pattern : pattern.substring(0, colon)).trim();
+            String typePattern = colon < 0 ? "**" : pattern.substring(colon + 1).trim();
+            try {
+                selections.add(new Selection(Kind.valueOf(kindName.toUpperCase(Locale.ENGLISH)), typePattern));
+            } catch (IllegalArgumentException e) {
+                throw new MojoExecutionException("Unknown kind of generated class '" + kindName + "' in " + pattern);
+            }
+        }
+    }
+
+    /**
+     * Removes the omitted classes among the specified ones.
+     *
+     * @param dependencies    the facade used to access the file system
+     * @param sourceDirectory the directory holding all the generated sources
+     * @param generatedFiles  all the files in that directory
+     * @param candidates      the generated sources which may be removed, typically those just written
+     * @return the removed sources
+     * @throws IOException if the sources cannot be read or removed
+     */
+    List<File> prune(
+            DependenciesFacade dependencies,
+            File sourceDirectory,
+            Collection<File> generatedFiles,
+            Collection<File> candidates)
+            throws IOException {
+        Set<File> omitted = new HashSet<>();
+        for (File file : candidates) {
+            if (isOmitted(dependencies, sourceDirectory, file)) {
+                omitted.add(file);
+            }
+        }
+        if (omitted.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<File, Set<String>> identifiers = new HashMap<>();
+        Set<String> referenced = new HashSet<>();
+        for (File file : generatedFiles) {
+            if (file.getName().endsWith(JAVA_SUFFIX)) {
+                Set<String> fileIdentifiers = getIdentifiers(dependencies.readFile(file));
+                fileIdentifiers.remove(getClassName(file));
+                identifiers.put(file, fileIdentifiers);
+                if (!omitted.contains(file)) {
+                    referenced.addAll(fileIdentifiers);
+                }
+            }
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (File file : new ArrayList<>(omitted)) {
+                if (referenced.contains(getClassName(file))) {
+                    omitted.remove(file);
+                    referenced.addAll(identifiers.get(file));
+                    changed = true;
+                }
+            }
+        }
+
+        List<File> removed = new ArrayList<>(omitted);
+        for (File file : removed) {
+            dependencies.deleteFile(file);
+        }
+        return removed;
+    }
+
+    /**
+     * A class is considered generated for a type only if it has no helper of its own: the compilers generate a helper
+     * for every IDL type, but not for the classes generated for a type. An interface named <code>FooHelper</code>
+     * is therefore not taken for the helper of <code>Foo</code>.
+     */
+    private boolean isOmitted(DependenciesFacade dependencies, File sourceDirectory, File file) {
+        String className = getClassName(file);
+        if (className == null || dependencies.exists(new File(file.getParentFile(), className + "Helper.java"))) {
+            return false;
+        }
+
+        String relativePath = AbstractIDLJMojo.getRelativePath(sourceDirectory, file);
+        String packagePath = relativePath.substring(0, relativePath.lastIndexOf('/') + 1);
+        for (Selection selection : selections) {
+            String typeName = selection.kind.getTypeName(className);
+            if (typeName != null && selection.matches(packagePath + typeName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getClassName(File file) {
+        String name = file.getName();
+        return name.endsWith(JAVA_SUFFIX) ? name.substring(0, name.length() - JAVA_SUFFIX.length()) : null;
+    }
+
+    private static Set<String> getIdentifiers(String source) {
+        Set<String> identifiers = new HashSet<>();
+        Matcher matcher = IDENTIFIER.matcher(source);
+        while (matcher.find()) {
+            identifiers.add(matcher.group());
+        }
+        return identifiers;
+    }
+
+    private static class Selection {
+        private final Kind kind;
+        private final String typePattern;
+
+        Selection(Kind kind, String typePattern) {
+            this.kind = kind;
+            this.typePattern = typePattern.replace('\\', '/').replace('.', '/');
+        }
+
+        boolean matches(String qualifiedTypeName) {
+            return SelectorUtils.matchPath(typePattern, qualifiedTypeName, "/", true);
+        }
+    }
+}
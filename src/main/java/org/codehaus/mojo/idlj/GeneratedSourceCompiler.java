@@ -0,0 +1,479 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarOutputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Compiles generated sources in process, with the compiler of the running JDK. The packages of the sources are
+ * grouped so that no group refers to another; the groups are compiled in parallel, and a group is only recompiled if
+ * one of its sources has changed since the last compilation, as recorded in a state file in the classes directory.
+ */
+class GeneratedSourceCompiler {
+    /**
+     * The name of the file, within the classes directory, which records the sources last compiled.
+     */
+    static final String STATE_FILE = "idlj-classes.properties";
+
+    private static final String JAVA_SUFFIX = ".java";
+    private static final String CLASS_SUFFIX = ".class";
+
+    private static final Pattern QUALIFIED_NAME =
+            Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*(?:\\s*\\.\\s*[A-Za-z_$][A-Za-z0-9_$]*)+");
+
+    private final DependenciesFacade dependencies;
+    private final File sourceDirectory;
+    private final File classesDirectory;
+    private final List<File> classpath;
+    private final List<String> options;
+    private final Log log;
+
+    GeneratedSourceCompiler(
+            DependenciesFacade dependencies,
+            File sourceDirectory,
+            File classesDirectory,
+            List<File> classpath,
+            List<String> options,
+            Log log) {
+        this.dependencies = dependencies;
+        this.sourceDirectory = sourceDirectory;
+        this.classesDirectory = classesDirectory;
+        this.classpath = classpath;
+        this.options = options;
+        this.log = log;
+    }
+
+    /**
+     * Compiles the groups of packages whose sources have changed since the last compilation, and removes the classes
+     * of packages which no longer have sources.
+     *
+     * @return the number of groups compiled
+     * @throws MojoExecutionException if the sources cannot be read, or do not compile
+     */
+    int compile() throws MojoExecutionException {
+        Map<String, String> sources = readSources();
+        Map<String, String> hashes = new TreeMap<>();
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            hashes.put(entry.getKey(), ContentHash.of(entry.getValue()));
+        }
+        Map<String, String> previousHashes = readState();
+
+        List<Set<String>> staleGroups = new ArrayList<>();
+        for (Set<String> group : groupPackages(sources)) {
+            if (!selectInPackages(hashes, group).equals(selectInPackages(previousHashes, group))) {
+                staleGroups.add(group);
+            }
+        }
+        Set<String> stalePackages = new HashSet<>(getPackages(previousHashes.keySet()));
+        stalePackages.removeAll(getPackages(hashes.keySet()));
+        for (Set<String> group : staleGroups) {
+            stalePackages.addAll(group);
+        }
+        deleteClasses(stalePackages);
+
+        Map<String, byte[]> classes = compileGroups(sources, staleGroups);
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            writeBytes(new File(classesDirectory, entry.getKey()), entry.getValue());
+        }
+        writeState(hashes);
+        log.debug("Compiled " + classes.size() + " classes in " + staleGroups.size() + " package groups");
+        return staleGroups.size();
+    }
+
+    /**
+     * Groups packages so that the sources of each group only refer to classes in the same group. Packages are
+     * connected whenever a source of one uses a qualified name starting with the other.
+     *
+     * @param sources the contents of the sources, by their paths relative to the source directory
+     * @return the groups, each holding package names in dotted form
+     */
+    static List<Set<String>> groupPackages(Map<String, String> sources) {
+        Map<String, String> parents = new TreeMap<>();
+        for (String path : sources.keySet()) {
+            parents.put(getPackage(path), getPackage(path));
+        }
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            String sourcePackage = getPackage(entry.getKey());
+            Matcher matcher = QUALIFIED_NAME.matcher(entry.getValue());
+            while (matcher.find()) {
+                String name = matcher.group().replaceAll("\\s", "");
+                for (int dot = name.lastIndexOf('.'); dot > 0; dot = name.lastIndexOf('.', dot - 1)) {
+                    String candidate = name.substring(0, dot);
+                    if (parents.containsKey(candidate)) {
+                        union(parents, sourcePackage, candidate);
+                        break;
+                    }
+                }
+            }
+        }
+
+        Map<String, Set<String>> groups = new TreeMap<>();
+        for (String packageName : parents.keySet()) {
+            String root = find(parents, packageName);
+            if (!groups.containsKey(root)) {
+                groups.put(root, new TreeSet<String>());
+            }
+            groups.get(root).add(packageName);
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    private static String find(Map<String, String> parents, String packageName) {
+        String root = packageName;
+        while (!parents.get(root).equals(root)) {
+            root = parents.get(root);
+        }
+        parents.put(packageName, root);
+        return root;
+    }
+
+    private static void union(Map<String, String> parents, String first, String second) {
+        String firstRoot = find(parents, first);
+        String secondRoot = find(parents, second);
+        if (!firstRoot.equals(secondRoot)) {
+            parents.put(firstRoot, secondRoot);
+        }
+    }
+
+    /**
+     * @return the package, in dotted form, of the file with the specified relative path
+     */
+    private static String getPackage(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash < 0 ? "" : path.substring(0, slash).replace('/', '.');
+    }
+
+    private static Set<String> getPackages(Collection<String> paths) {
+        Set<String> packages = new HashSet<>();
+        for (String path : paths) {
+            packages.add(getPackage(path));
+        }
+        return packages;
+    }
+
+    private static Map<String, String> selectInPackages(Map<String, String> hashes, Set<String> packages) {
+        Map<String, String> selected = new TreeMap<>();
+        for (Map.Entry<String, String> entry : hashes.entrySet()) {
+            if (packages.contains(getPackage(entry.getKey()))) {
+                selected.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return selected;
+    }
+
+    private Map<String, String> readSources() throws MojoExecutionException {
+        Map<String, String> sources = new TreeMap<>();
+        try {
+            for (File file : dependencies.listFiles(sourceDirectory)) {
+                if (file.getName().endsWith(JAVA_SUFFIX)) {
+                    sources.put(AbstractIDLJMojo.getRelativePath(sourceDirectory, file), dependencies.readFile(file));
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to read the generated sources in " + sourceDirectory, e);
+        }
+        return sources;
+    }
+
+    private Map<String, String> readState() {
+        Map<String, String> hashes = new TreeMap<>();
+        File stateFile = new File(classesDirectory, STATE_FILE);
+        if (dependencies.exists(stateFile)) {
+            try {
+                Properties properties = new Properties();
+                properties.load(new StringReader(dependencies.readFile(stateFile)));
+                for (String path : properties.stringPropertyNames()) {
+                    hashes.put(path, properties.getProperty(path));
+                }
+            } catch (IOException e) {
+                log.debug("Ignoring unreadable " + stateFile + ": " + e);
+            }
+        }
+        return hashes;
+    }
+
+    private void writeState(Map<String, String> hashes) throws MojoExecutionException {
+        Properties properties = new Properties();
+        properties.putAll(hashes);
+        StringWriter writer = new StringWriter();
+        try {
+            properties.store(writer, "Generated sources compiled into this directory");
+            dependencies.writeFile(new File(classesDirectory, STATE_FILE), writer.toString());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write " + STATE_FILE, e);
+        }
+    }
+
+    private void deleteClasses(Set<String> packages) throws MojoExecutionException {
+        try {
+            for (File file : dependencies.listFiles(classesDirectory)) {
+                String path = AbstractIDLJMojo.getRelativePath(classesDirectory, file);
+                if (path.endsWith(CLASS_SUFFIX) && packages.contains(getPackage(path))) {
+                    dependencies.deleteFile(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to list " + classesDirectory, e);
+        }
+    }
+
+    private void writeBytes(File file, byte[] bytes) throws MojoExecutionException {
+        try {
+            dependencies.writeBytes(file, bytes);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write " + file, e);
+        }
+    }
+
+    /**
+     * Compiles the specified groups in parallel. Each thread keeps one file manager for all the groups it compiles,
+     * since file managers are not safe for concurrent use.
+     *
+     * @return the class files produced, by their paths relative to the classes directory
+     */
+    private Map<String, byte[]> compileGroups(Map<String, String> sources, List<Set<String>> groups)
+            throws MojoExecutionException {
+        if (groups.isEmpty()) {
+            return new TreeMap<>();
+        }
+        final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            throw new MojoExecutionException("No Java compiler is available: the build must run on a JDK");
+        }
+
+        int numThreads = Math.min(groups.size(), Runtime.getRuntime().availableProcessors());
+        final List<StandardJavaFileManager> fileManagers = new ArrayList<>();
+        final ThreadLocal<StandardJavaFileManager> threadFileManager = new ThreadLocal<StandardJavaFileManager>() {
+            @Override
+            protected StandardJavaFileManager initialValue() {
+                StandardJavaFileManager fileManager = javac.getStandardFileManager(null, null, null);
+                try {
+                    fileManager.setLocation(StandardLocation.CLASS_PATH, classpath);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Invalid class path " + classpath, e);
+                }
+                synchronized (fileManagers) {
+                    fileManagers.add(fileManager);
+                }
+                return fileManager;
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<GroupResult>> results = new ArrayList<>();
+            for (final Set<String> group : groups) {
+                final Map<String, String> groupSources = selectInPackages(sources, group);
+                results.add(executor.submit(new Callable<GroupResult>() {
+                    @Override
+                    public GroupResult call() {
+                        return compileGroup(javac, threadFileManager.get(), groupSources);
+                    }
+                }));
+            }
+            return collectResults(results);
+        } finally {
+            executor.shutdown();
+            for (StandardJavaFileManager fileManager : fileManagers) {
+                try {
+                    fileManager.close();
+                } catch (IOException e) {
+                    log.debug("Unable to close a file manager: " + e);
+                }
+            }
+        }
+    }
+
+    private Map<String, byte[]> collectResults(List<Future<GroupResult>> results) throws MojoExecutionException {
+        Map<String, byte[]> classes = new TreeMap<>();
+        boolean failed = false;
+        for (Future<GroupResult> future : results) {
+            GroupResult result;
+            try {
+                result = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException("Interrupted while compiling the generated sources", e);
+            } catch (ExecutionException e) {
+                throw new MojoExecutionException("Unable to compile the generated sources", e.getCause());
+            }
+            for (Diagnostic<? extends JavaFileObject> diagnostic : result.diagnostics) {
+                String message = (diagnostic.getSource() == null ? "" : diagnostic.getSource().getName() + ":"
+                        + diagnostic.getLineNumber() + ": ") + diagnostic.getMessage(null);
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    log.error(message);
+                } else {
+                    log.debug(message);
+                }
+            }
+            failed |= !result.succeeded;
+            classes.putAll(result.classes);
+        }
+        if (failed) {
+            throw new MojoExecutionException("Compilation of the generated sources failed");
+        }
+        return classes;
+    }
+
+    private GroupResult compileGroup(
+            JavaCompiler javac, StandardJavaFileManager fileManager, Map<String, String> groupSources) {
+        List<JavaFileObject> units = new ArrayList<>();
+        for (Map.Entry<String, String> entry : groupSources.entrySet()) {
+            units.add(new SourceObject(entry.getKey(), entry.getValue()));
+        }
+        ClassCollector collector = new ClassCollector(fileManager);
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        boolean succeeded = javac.getTask(null, collector, diagnostics, options, null, units).call();
+        return new GroupResult(succeeded, collector.classes, diagnostics.getDiagnostics());
+    }
+
+    /**
+     * Packages the compiled classes into a jar, after a manifest. Entries are written in a fixed order, all with the
+     * given time, so that the same classes always give the same jar.
+     *
+     * @param jarFile   the jar to write
+     * @param entryTime the time of the entries, in milliseconds since the epoch
+     * @throws MojoExecutionException if the classes cannot be read or the jar cannot be written
+     */
+    void writeJar(File jarFile, long entryTime) throws MojoExecutionException {
+        try {
+            Map<String, File> classFiles = new TreeMap<>();
+            for (File file : dependencies.listFiles(classesDirectory)) {
+                String path = AbstractIDLJMojo.getRelativePath(classesDirectory, file);
+                if (path.endsWith(CLASS_SUFFIX)) {
+                    classFiles.put(path, file);
+                }
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (JarOutputStream jar = new JarOutputStream(bytes)) {
+                ReproducibleJar.writeManifest(jar, entryTime);
+                for (Map.Entry<String, File> entry : classFiles.entrySet()) {
+                    jar.putNextEntry(ReproducibleJar.newEntry(entry.getKey(), entryTime));
+                    jar.write(dependencies.readBytes(entry.getValue()));
+                    jar.closeEntry();
+                }
+            }
+            dependencies.writeBytes(jarFile, bytes.toByteArray());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write " + jarFile, e);
+        }
+    }
+
+    private static class GroupResult {
+        private final boolean succeeded;
+        private final Map<String, byte[]> classes;
+        private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+        GroupResult(
+                boolean succeeded,
+                Map<String, byte[]> classes,
+                List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+            this.succeeded = succeeded;
+            this.classes = classes;
+            this.diagnostics = diagnostics;
+        }
+    }
+
+    /**
+     * A source held in memory, as read through the dependencies facade.
+     */
+    private static class SourceObject extends SimpleJavaFileObject {
+        private final String content;
+
+        SourceObject(String path, String content) {
+            super(URI.create("string:///" + path), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+
+    /**
+     * A file manager which keeps the class files in memory, so that they can be written through the dependencies
+     * facade once all groups have been compiled.
+     */
+    private static class ClassCollector extends ForwardingJavaFileManager<JavaFileManager> {
+        private final Map<String, byte[]> classes = new HashMap<>();
+
+        ClassCollector(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(
+                Location location, final String className, JavaFileObject.Kind kind, FileObject sibling) {
+            final String path = className.replace('.', '/') + kind.extension;
+            return new SimpleJavaFileObject(URI.create("mem:///" + path), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() {
+                            classes.put(path, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
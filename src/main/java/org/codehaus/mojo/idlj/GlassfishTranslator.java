@@ -19,6 +19,8 @@ package org.codehaus.mojo.idlj;
  * under the License.
  */
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.List;
 
 import org.apache.maven.plugin.MojoExecutionException;
@@ -31,16 +33,43 @@ import org.apache.maven.plugin.MojoExecutionException;
 class GlassfishTranslator extends IdljTranslator {
     private static final String GLASSFISH_IDLJ_COMPILER_NAME = "com.sun.tools.corba.ee.idl.toJavaPortable.Compile";
 
+    /**
+     * The compiler class and its entry point, resolved for the first file and reused for every later file compiled
+     * by this translator, so that a build compiling many files looks the compiler up only once.
+     */
+    private Class<?> compilerClass;
+
+    private Method compilerMainMethod;
+
     @Override
     void invokeCompiler(List<String> args) throws MojoExecutionException {
         invokeCompilerInProcess(getCompilerClass(), args);
     }
 
+    @Override
+    String describeCompiler() throws MojoExecutionException {
+        return describeCompilerClass(getCompilerClass());
+    }
+
     private Class<?> getCompilerClass() throws MojoExecutionException {
-        try {
-            return getClassLoaderFacade().loadClass(GLASSFISH_IDLJ_COMPILER_NAME);
-        } catch (ClassNotFoundException e) {
-            throw new MojoExecutionException(" IDL compiler not available", e);
+        if (compilerClass == null) {
+            try {
+                compilerClass = getClassLoaderFacade().loadClass(GLASSFISH_IDLJ_COMPILER_NAME);
+            } catch (ClassNotFoundException e) {
+                throw new MojoExecutionException(" IDL compiler not available", e);
+            }
+        }
+        return compilerClass;
+    }
+
+    @Override
+    protected int runCompiler(Class<?> compilerClass, String... arguments)
+            throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        if (compilerMainMethod == null) {
+            compilerMainMethod = compilerClass.getMethod("main", String[].class);
         }
+        Object retVal = compilerMainMethod.invoke(compilerClass, new Object[] {arguments});
+        getLog().debug("Completed with code " + retVal);
+        return (retVal instanceof Integer) ? (Integer) retVal : 0;
     }
 }
@@ -0,0 +1,175 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites the helper classes generated by the idlj family of compilers so that they are cheaper to use at run time.
+ * Those compilers create the type code of a helper in a method which is synchronized on the helper class, so every
+ * call of <code>type()</code>, made for instance whenever a value is inserted into an <code>Any</code>, takes the
+ * lock even after the type code exists. The rewritten method reads the type code from a volatile field and only
+ * enters the original, synchronized code while it is still null; the repository id field is made final. Both the
+ * type code and the repository id are unchanged, so the rewritten classes are compatible on the wire.
+ *
+ * <p>The helpers of typedefs and sequences build their type code in several steps, each assigned to the field in
+ * turn. The original code therefore runs with a local variable in place of the field, which is assigned once the
+ * type code is complete, so that a thread reading the field without the lock never sees an intermediate one.
+ */
+class HelperOptimizer {
+    /**
+     * The suffix of the names of the generated helper sources.
+     */
+    static final String HELPER_SUFFIX = "Helper.java";
+
+    private static final Pattern TYPE_CODE_FIELD =
+            Pattern.compile("private static org\\.omg\\.CORBA\\.TypeCode __typeCode = null;");
+
+    private static final Pattern TYPE_METHOD =
+            Pattern.compile("synchronized public static org\\.omg\\.CORBA\\.TypeCode type \\(\\)\\s*\\{\n");
+
+    private static final Pattern REPOSITORY_ID_FIELD = Pattern.compile("private static String(\\s+)_id = ");
+
+    private static final Pattern TYPE_CODE_REFERENCE = Pattern.compile("\\b__typeCode\\b");
+
+    private static final Pattern RETURN_STATEMENT = Pattern.compile("(?m)^([ \\t]*)return __newTypeCode;$");
+
+    private static final String LOCAL_TYPE_CODE = "__newTypeCode";
+
+    private static final String INDENT = "  ";
+
+    private HelperOptimizer() {}
+
+    /**
+     * Rewrites the source of a generated helper class.
+     *
+     * @param source    the generated source
+     * @param className the simple name of the helper class
+     * @return the rewritten source, or null if the source does not have the form generated by the idlj compilers
+     *         or has already been rewritten
+     */
+    static String optimize(String source, String className) {
+        String lineSeparator = source.contains("\r\n") ? "\r\n" : "\n";
+        String text = source.replace("\r\n", "\n");
+
+        Matcher field = TYPE_CODE_FIELD.matcher(text);
+        Matcher method = TYPE_METHOD.matcher(text);
+        if (!field.find() || !method.find() || method.start() < field.end()) {
+            return null;
+        }
+        String methodIndent = getIndent(text, method.start());
+        int bodyEnd = findClosingBrace(text, method.end() - 2);
+        if (bodyEnd < 0 || !getIndent(text, bodyEnd).equals(methodIndent)) {
+            return null;
+        }
+
+        String body = buildInLocalVariable(text.substring(method.end(), text.lastIndexOf('\n', bodyEnd) + 1));
+        if (body == null) {
+            return null;
+        }
+
+        String bodyIndent = methodIndent + INDENT;
+        StringBuilder result = new StringBuilder();
+        result.append(text, 0, field.start())
+                .append("private static volatile org.omg.CORBA.TypeCode __typeCode = null;")
+                .append(text, field.end(), method.start())
+                .append("public static org.omg.CORBA.TypeCode type ()\n")
+                .append(methodIndent).append("{\n")
+                .append(bodyIndent).append("org.omg.CORBA.TypeCode __cachedTypeCode = __typeCode;\n")
+                .append(bodyIndent).append("if (__cachedTypeCode != null)\n")
+                .append(bodyIndent).append("{\n")
+                .append(bodyIndent).append(INDENT).append("return __cachedTypeCode;\n")
+                .append(bodyIndent).append("}\n")
+                .append(bodyIndent).append("synchronized (").append(className).append(".class)\n")
+                .append(bodyIndent).append("{\n")
+                .append(bodyIndent).append(INDENT).append("org.omg.CORBA.TypeCode ").append(LOCAL_TYPE_CODE)
+                .append(" = __typeCode;\n");
+        for (String line : body.split("\n", -1)) {
+            if (!line.isEmpty()) {
+                result.append(INDENT).append(line);
+            }
+            result.append('\n');
+        }
+        result.setLength(result.length() - 1);
+        result.append(bodyIndent).append("}\n").append(text.substring(bodyEnd - methodIndent.length()));
+
+        String optimized = REPOSITORY_ID_FIELD.matcher(result).replaceFirst("private static final String$1_id = ");
+        return optimized.replace("\n", lineSeparator);
+    }
+
+    /**
+     * Rewrites the body of the original <code>type()</code> method so that it builds the type code in a local
+     * variable, and assigns the field only before returning the complete type code.
+     *
+     * @return the rewritten body, or null if the body returns the type code other than by a statement of its own
+     */
+    private static String buildInLocalVariable(String body) {
+        if (body.contains(LOCAL_TYPE_CODE)) {
+            return null;
+        }
+        String localBody = TYPE_CODE_REFERENCE.matcher(body).replaceAll(LOCAL_TYPE_CODE);
+        int numReturns = localBody.split("return " + LOCAL_TYPE_CODE, -1).length - 1;
+        int numReturnStatements = 0;
+        for (Matcher statement = RETURN_STATEMENT.matcher(localBody); statement.find(); ) {
+            numReturnStatements++;
+        }
+        if (numReturnStatements == 0 || numReturnStatements != numReturns) {
+            return null;
+        }
+        return RETURN_STATEMENT.matcher(localBody).replaceAll("$1__typeCode = " + LOCAL_TYPE_CODE + ";\n$0");
+    }
+
+    /**
+     * Finds the brace which closes the block opened at the specified position, ignoring braces in literals.
+     *
+     * @return the position of the closing brace, or -1 if the block is not closed
+     */
+    private static int findClosingBrace(String text, int openingBrace) {
+        int depth = 0;
+        for (int i = openingBrace; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\'') {
+                i = skipLiteral(text, i, c);
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipLiteral(String text, int start, char quote) {
+        for (int i = start + 1; i < text.length(); i++) {
+            if (text.charAt(i) == '\\') {
+                i++;
+            } else if (text.charAt(i) == quote) {
+                return i;
+            }
+        }
+        return text.length();
+    }
+
+    private static String getIndent(String text, int position) {
+        int lineStart = text.lastIndexOf('\n', position) + 1;
+        return text.substring(lineStart, position);
+    }
+}
@@ -20,10 +20,16 @@ package org.codehaus.mojo.idlj;
  */
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProjectHelper;
 
 /**
  * Process CORBA IDL files in IDLJ.
@@ -45,6 +51,70 @@ public class IDLJMojo extends AbstractIDLJMojo {
     @Parameter(defaultValue = "${project.build.directory}/generated-sources/idl")
     private File outputDirectory;
 
+    /**
+     * Whether the generated sources should also be compiled by the plugin, right after generation, and packaged into
+     * a jar attached to the project. The compile dependencies of the project are the class path. Packages which do
+     * not refer to each other are compiled in parallel, and only packages whose generated sources have changed are
+     * recompiled.
+     */
+    @Parameter(property = "idlj.compileGeneratedSources", defaultValue = "false")
+    private boolean compileGeneratedSources;
+
+    /**
+     * The directory to compile the generated sources into, when <code>compileGeneratedSources</code> is set.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/idlj-classes")
+    private File classesDirectory;
+
+    /**
+     * The jar into which the compiled generated sources are packaged.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/${project.build.finalName}-idl.jar")
+    private File classesJar;
+
+    /**
+     * The classifier with which the jar of compiled generated sources is attached to the project.
+     */
+    @Parameter(defaultValue = "idl")
+    private String classesClassifier;
+
+    /**
+     * Additional options for the compilation of the generated sources, such as <code>--release</code>.
+     */
+    @Parameter
+    private List<String> javacOptions;
+
+    /**
+     * Whether the generated sources should be published: they are packaged into <code>stubsJar</code>, together with
+     * their classes if <code>compileGeneratedSources</code> is set and a descriptor identifying the IDL files and
+     * options they were generated from, and the jar is attached to the project. Builds which list the artifact in
+     * <code>stubArtifacts</code> then use it instead of compiling the same IDL files.
+     */
+    @Parameter(property = "idlj.publishStubs", defaultValue = "false")
+    private boolean publishStubs;
+
+    /**
+     * The jar into which the published stubs are packaged.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/${project.build.finalName}-idl-stubs.jar")
+    private File stubsJar;
+
+    /**
+     * The classifier with which the published stubs are attached to the project.
+     */
+    @Parameter(defaultValue = "idl-stubs")
+    private String stubsClassifier;
+
+    /**
+     * The time given to the entries of the jars written by the plugin, so that they are reproducible: seconds since
+     * the epoch, or an ISO-8601 date and time with an offset. A fixed time is used if it is not set.
+     */
+    @Parameter(defaultValue = "${project.build.outputTimestamp}")
+    private String outputTimestamp;
+
+    @Component
+    private MavenProjectHelper projectHelper;
+
     /**
      * Constructs a standard IDL translation Mojo.
      */
@@ -54,6 +124,55 @@ public class IDLJMojo extends AbstractIDLJMojo {
         super(dependenciesFacade);
     }
 
+    @Override
+    public void execute() throws MojoExecutionException {
+        super.execute();
+        if (isSharded() && (compileGeneratedSources || publishStubs)) {
+            getLog().info("Not compiling or publishing the sources of a single shard: they are complete only once the"
+                    + " shards have been merged");
+            return;
+        }
+        if (compileGeneratedSources) {
+            compileGeneratedSources();
+        }
+        if (publishStubs) {
+            publishStubs();
+        }
+    }
+
+    private void publishStubs() throws MojoExecutionException {
+        try {
+            StubArtifact.write(
+                    getDependencies(),
+                    stubsJar,
+                    computeStubFingerprint(),
+                    outputDirectory,
+                    compileGeneratedSources ? classesDirectory : null,
+                    ReproducibleJar.parseOutputTimestamp(outputTimestamp));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write " + stubsJar, e);
+        }
+        projectHelper.attachArtifact(getProject(), "jar", stubsClassifier, stubsJar);
+    }
+
+    private void compileGeneratedSources() throws MojoExecutionException {
+        List<String> options = new ArrayList<>();
+        if (javacOptions != null) {
+            options.addAll(javacOptions);
+        }
+        GeneratedSourceCompiler compiler = new GeneratedSourceCompiler(
+                getDependencies(),
+                outputDirectory,
+                classesDirectory,
+                createDependencyResolver().resolveCompileClasspath(),
+                options,
+                getLog());
+        if (compiler.compile() > 0 || !getDependencies().exists(classesJar)) {
+            compiler.writeJar(classesJar, ReproducibleJar.parseOutputTimestamp(outputTimestamp));
+        }
+        projectHelper.attachArtifact(getProject(), "jar", classesClassifier, classesJar);
+    }
+
     /**
      * @return the source directory that contains the IDL files
      */
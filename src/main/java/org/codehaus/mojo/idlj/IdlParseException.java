@@ -0,0 +1,78 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.File;
+
+/**
+ * An error in an IDL file detected by the plugin's preprocessor.
+ */
+class IdlParseException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+    private final String description;
+    private File file;
+
+    IdlParseException(int line, String description) {
+        super(description);
+        this.line = line;
+        this.description = description;
+    }
+
+    IdlParseException(File file, int line, String description) {
+        this(line, description);
+        this.file = file;
+    }
+
+    /**
+     * Sets the file in which the error was found, unless already known.
+     *
+     * @param file the file containing the error
+     * @return this exception
+     */
+    IdlParseException inFile(File file) {
+        if (this.file == null) {
+            this.file = file;
+        }
+        return this;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    int getLine() {
+        return line;
+    }
+
+    String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return the error in the form used by the IDL compilers: <code>file (line N): description</code>
+     */
+    @Override
+    public String getMessage() {
+        return (file == null ? "" : file.getPath() + " ") + "(line " + line + "): " + description;
+    }
+}
@@ -0,0 +1,696 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The plugin-side IDL preprocessor. It handles object-like macros with values, conditional compilation and includes,
+ * and writes the preprocessed text to a staging directory, from which any compiler can compile it without needing to
+ * support symbol values itself.
+ *
+ * <p>Each file keeps its own line numbers and comments, so that errors and generated documentation refer to the
+ * original lines. Included files are not inlined, so that the compilers still generate code only for the file
+ * compiled: each is preprocessed separately into a staging include directory, and its <code>#include</code> directive
+ * is rewritten to refer to the staged copy. As the preprocessed text of a file depends only on its content and on
+ * the macros defined when it is included, each such expansion is done once per execution and shared by every file
+ * which includes it in the same state. Includes which cannot be resolved, such as <code>orb.idl</code>, are left for
+ * the compiler to resolve.</p>
+ */
+class IdlPreprocessor {
+    /**
+     * The directory, within the staging directory, which holds the preprocessed files to compile.
+     */
+    static final String SOURCES_DIRECTORY = "sources";
+
+    /**
+     * The directory, within the staging directory, which holds the preprocessed included files.
+     */
+    static final String INCLUDES_DIRECTORY = "includes";
+
+    private static final int MAX_INCLUDE_DEPTH = 200;
+    private static final Pattern DIRECTIVE = Pattern.compile("\\s*#\\s*(\\w*)\\s*(.*?)\\s*", Pattern.DOTALL);
+    private static final Pattern INCLUDE = Pattern.compile("(\"([^\"]+)\"|<([^>]+)>)");
+    private static final Pattern MACRO = Pattern.compile("([A-Za-z_]\\w*)(\\(?)\\s*(.*)", Pattern.DOTALL);
+    private static final Pattern SYMBOL = Pattern.compile("([A-Za-z_]\\w*).*", Pattern.DOTALL);
+    private static final Pattern DEFINED =
+            Pattern.compile("\\bdefined\\s*(?:\\(\\s*([A-Za-z_]\\w*)\\s*\\)|([A-Za-z_]\\w*))");
+    private static final Pattern EXPRESSION_TOKEN = Pattern.compile(
+            "\\s*(0[xX][0-9a-fA-F]+[uUlL]*|\\d+[uUlL]*|[A-Za-z_]\\w*|\\|\\||&&|==|!=|<=|>=|<<|>>|[-+*/%!~<>()&|^?:])");
+    private static final List<List<String>> BINARY_OPERATORS = Arrays.asList(
+            Collections.singletonList("||"),
+            Collections.singletonList("&&"),
+            Collections.singletonList("|"),
+            Collections.singletonList("^"),
+            Collections.singletonList("&"),
+            Arrays.asList("==", "!="),
+            Arrays.asList("<", "<=", ">", ">="),
+            Arrays.asList("<<", ">>"),
+            Arrays.asList("+", "-"),
+            Arrays.asList("*", "/", "%"));
+
+    private final DependenciesFacade dependencies;
+    private final File sourcesDirectory;
+    private final File includesDirectory;
+    private final List<File> includeDirectories;
+    private final Map<String, String> initialMacros;
+    private final StagedSources stagedSources;
+    private final Map<String, Expansion> expansions = new HashMap<>();
+    private int expansionCount;
+    private int reuseCount;
+
+    /**
+     * Creates a preprocessor.
+     *
+     * @param dependencies       the facade used to access the file system
+     * @param stagingDirectory   the directory to which the preprocessed files are written
+     * @param includeDirectories the directories in which included files are searched, in order
+     * @param macros             the macros defined by the configuration, and their values
+     * @param stagedSources      the registry of the preprocessed files, by the files they were derived from
+     */
+    IdlPreprocessor(
+            DependenciesFacade dependencies,
+            File stagingDirectory,
+            List<File> includeDirectories,
+            Map<String, String> macros,
+            StagedSources stagedSources) {
+        this.dependencies = dependencies;
+        this.sourcesDirectory = new File(stagingDirectory, SOURCES_DIRECTORY);
+        this.includesDirectory = new File(stagingDirectory, INCLUDES_DIRECTORY);
+        this.includeDirectories = new ArrayList<>(includeDirectories);
+        this.initialMacros = new TreeMap<>(macros);
+        this.stagedSources = stagedSources;
+    }
+
+    /**
+     * Preprocesses an IDL file and the files it includes.
+     *
+     * @param idlFile      the file to preprocess
+     * @param relativePath the path of the file relative to its source directory
+     * @return the preprocessed file, which is to be compiled with {@link #getIncludeDirectory()} on the include path
+     * @throws IdlParseException if a file contains a preprocessing error
+     * @throws IOException       if a preprocessed file cannot be written
+     */
+    File preprocess(File idlFile, String relativePath) throws IdlParseException, IOException {
+        String text = expand(IncludeGraph.normalize(idlFile), new TreeMap<>(initialMacros), 0);
+        File stagedFile = new File(sourcesDirectory, relativePath);
+        writeIfChanged(stagedFile, text);
+        stagedSources.add(stagedFile, idlFile);
+        return stagedFile;
+    }
+
+    /**
+     * @return the directory holding the preprocessed included files
+     */
+    File getIncludeDirectory() {
+        return includesDirectory;
+    }
+
+    /**
+     * @return the number of included files preprocessed so far
+     */
+    int getExpansionCount() {
+        return expansionCount;
+    }
+
+    /**
+     * @return the number of includes satisfied by a file preprocessed earlier in the same state
+     */
+    int getReuseCount() {
+        return reuseCount;
+    }
+
+    private void writeIfChanged(File file, String text) throws IOException {
+        if (!dependencies.exists(file) || !dependencies.readFile(file).equals(text)) {
+            dependencies.writeFile(file, text);
+        }
+    }
+
+    /**
+     * Preprocesses a file, updating the macros as its directives define and undefine them.
+     */
+    private String expand(File file, Map<String, String> macros, int depth) throws IdlParseException, IOException {
+        String text;
+        try {
+            text = dependencies.readFile(file);
+        } catch (IOException e) {
+            throw new IdlParseException(file, 0, "Unable to read file: " + e.getMessage());
+        }
+
+        String[] lines = text.split("\n", -1);
+        List<String> output = new ArrayList<>();
+        Deque<Conditional> conditionals = new ArrayDeque<>();
+        LineScanner scanner = new LineScanner();
+        for (int i = 0; i < lines.length; i++) {
+            int lineNumber = i + 1;
+            boolean isActive = conditionals.isEmpty() || conditionals.peek().active;
+            String line = lines[i];
+            if (scanner.inComment || !line.trim().startsWith("#")) {
+                output.add(isActive ? scanner.scan(line, macros, true) : skip(scanner, line));
+                continue;
+            }
+
+            int continuations = 0;
+            while ((line.endsWith("\\") || line.endsWith("\\\r")) && i + 1 < lines.length) {
+                line = line.substring(0, line.lastIndexOf('\\')) + lines[++i];
+                continuations++;
+            }
+            String directive = scanner.scan(line, null, false);
+            try {
+                output.add(processDirective(file, line, directive, lineNumber, conditionals, isActive, macros, depth));
+            } catch (IdlParseException e) {
+                throw e.inFile(file);
+            }
+            for (int j = 0; j < continuations; j++) {
+                output.add("");
+            }
+        }
+        if (!conditionals.isEmpty()) {
+            throw new IdlParseException(file, conditionals.peek().line, "Missing #endif");
+        }
+        return String.join("\n", output);
+    }
+
+    private static String skip(LineScanner scanner, String line) {
+        scanner.scan(line, null, false);
+        return "";
+    }
+
+    /**
+     * Processes a directive.
+     *
+     * @return the text which replaces the directive in the output
+     */
+    private String processDirective(
+            File file,
+            String line,
+            String directive,
+            int lineNumber,
+            Deque<Conditional> conditionals,
+            boolean isActive,
+            Map<String, String> macros,
+            int depth)
+            throws IdlParseException, IOException {
+        Matcher matcher = DIRECTIVE.matcher(directive);
+        matcher.matches();
+        String name = matcher.group(1);
+        String argument = matcher.group(2);
+
+        if (name.equals("ifdef") || name.equals("ifndef")) {
+            boolean defined = macros.containsKey(getSymbol(argument, lineNumber));
+            conditionals.push(new Conditional(isActive, isActive && defined == name.equals("ifdef"), lineNumber));
+        } else if (name.equals("if")) {
+            boolean value = isActive && evaluate(argument, macros, lineNumber);
+            conditionals.push(new Conditional(isActive, value, lineNumber));
+        } else if (name.equals("elif")) {
+            Conditional conditional = getOpenConditional(conditionals, name, lineNumber);
+            conditional.enter(
+                    !conditional.taken && conditional.parentActive && evaluate(argument, macros, lineNumber));
+        } else if (name.equals("else")) {
+            Conditional conditional = getOpenConditional(conditionals, name, lineNumber);
+            conditional.enter(!conditional.taken && conditional.parentActive);
+        } else if (name.equals("endif")) {
+            getOpenConditional(conditionals, name, lineNumber);
+            conditionals.pop();
+        } else if (!isActive) {
+            return "";
+        } else if (name.equals("define")) {
+            define(argument, macros, lineNumber);
+        } else if (name.equals("undef")) {
+            macros.remove(getSymbol(argument, lineNumber));
+        } else if (name.equals("include")) {
+            return processInclude(file, line, argument, lineNumber, macros, depth);
+        } else if (name.equals("error")) {
+            throw new IdlParseException(lineNumber, "#error " + argument);
+        } else {
+            return line;
+        }
+        return "";
+    }
+
+    private static Conditional getOpenConditional(Deque<Conditional> conditionals, String directive, int line)
+            throws IdlParseException {
+        if (conditionals.isEmpty()) {
+            throw new IdlParseException(line, "#" + directive + " without #if");
+        }
+        return conditionals.peek();
+    }
+
+    private static void define(String argument, Map<String, String> macros, int line) throws IdlParseException {
+        Matcher matcher = MACRO.matcher(argument);
+        if (!matcher.matches()) {
+            throw new IdlParseException(line, "Expected a macro name");
+        }
+        if (!matcher.group(2).isEmpty()) {
+            throw new IdlParseException(line, "Function-like macros are not supported");
+        }
+        macros.put(matcher.group(1), matcher.group(3).trim());
+    }
+
+    private static String getSymbol(String argument, int line) throws IdlParseException {
+        Matcher matcher = SYMBOL.matcher(argument);
+        if (!matcher.matches()) {
+            throw new IdlParseException(line, "Expected a symbol name");
+        }
+        return matcher.group(1);
+    }
+
+    private String processInclude(
+            File file, String line, String argument, int lineNumber, Map<String, String> macros, int depth)
+            throws IdlParseException, IOException {
+        Matcher matcher = INCLUDE.matcher(argument);
+        if (!matcher.matches()) {
+            throw new IdlParseException(lineNumber, "Malformed #include directive");
+        }
+        boolean quoted = matcher.group(2) != null;
+        File includedFile = resolve(file, (quoted ? matcher.group(2) : matcher.group(3)).trim(), quoted);
+        if (includedFile == null) {
+            return line;
+        }
+        if (depth >= MAX_INCLUDE_DEPTH) {
+            throw new IdlParseException(lineNumber, "#include nested too deeply");
+        }
+
+        Expansion expansion = include(includedFile, macros, depth + 1);
+        macros.clear();
+        macros.putAll(expansion.exitMacros);
+        return "#include \"" + expansion.stagedName + "\"";
+    }
+
+    private File resolve(File includingFile, String name, boolean quoted) {
+        if (quoted) {
+            File candidate = new File(includingFile.getParentFile(), name);
+            if (dependencies.exists(candidate)) {
+                return IncludeGraph.normalize(candidate);
+            }
+        }
+        for (File directory : includeDirectories) {
+            File candidate = new File(directory, name);
+            if (dependencies.exists(candidate)) {
+                return IncludeGraph.normalize(candidate);
+            }
+        }
+        return null;
+    }
+
+    private Expansion include(File file, Map<String, String> macros, int depth) throws IdlParseException, IOException {
+        StringBuilder key = new StringBuilder(file.getPath());
+        for (Map.Entry<String, String> macro : macros.entrySet()) {
+            key.append('\n').append(macro.getKey()).append('=').append(macro.getValue());
+        }
+
+        Expansion expansion = expansions.get(key.toString());
+        if (expansion != null) {
+            reuseCount++;
+            return expansion;
+        }
+
+        Map<String, String> exitMacros = new TreeMap<>(macros);
+        String text = expand(file, exitMacros, depth);
+        String stagedName = ContentHash.of(key.toString()).substring(0, 16) + "/" + file.getName();
+        File stagedFile = new File(includesDirectory, stagedName);
+        writeIfChanged(stagedFile, text);
+        stagedSources.add(stagedFile, file);
+        expansion = new Expansion(stagedName, exitMacros);
+        expansions.put(key.toString(), expansion);
+        expansionCount++;
+        return expansion;
+    }
+
+    private static boolean evaluate(String expression, Map<String, String> macros, int line)
+            throws IdlParseException {
+        Matcher matcher = DEFINED.matcher(expression);
+        StringBuffer resolved = new StringBuffer();
+        while (matcher.find()) {
+            String symbol = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+            matcher.appendReplacement(resolved, macros.containsKey(symbol) ? "1" : "0");
+        }
+        matcher.appendTail(resolved);
+        return new ExpressionEvaluator(substitute(resolved.toString(), macros, new HashSet<String>()), line)
+                        .evaluate()
+                != 0;
+    }
+
+    /**
+     * Replaces the macros in a fragment of IDL text which contains no comments, leaving literals unchanged.
+     */
+    private static String substitute(String text, Map<String, String> macros, Set<String> disabled) {
+        StringBuilder result = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            int end = i + 1;
+            if (c == '"' || c == '\'') {
+                end = skipLiteral(text, i);
+                result.append(text, i, end);
+            } else if (Character.isDigit(c)) {
+                while (end < text.length() && isNumberPart(text.charAt(end))) {
+                    end++;
+                }
+                result.append(text, i, end);
+            } else if (Character.isLetter(c) || c == '_') {
+                while (end < text.length() && isIdentifierPart(text.charAt(end))) {
+                    end++;
+                }
+                String identifier = text.substring(i, end);
+                String value = macros.get(identifier);
+                if (value == null || disabled.contains(identifier)) {
+                    result.append(identifier);
+                } else {
+                    Set<String> nested = new HashSet<>(disabled);
+                    nested.add(identifier);
+                    result.append(substitute(value, macros, nested));
+                }
+            } else {
+                result.append(c);
+            }
+            i = end;
+        }
+        return result.toString();
+    }
+
+    private static boolean isNumberPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '.';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static int skipLiteral(String text, int start) {
+        char quote = text.charAt(start);
+        int i = start + 1;
+        while (i < text.length() && text.charAt(i) != quote) {
+            i += text.charAt(i) == '\\' ? 2 : 1;
+        }
+        return Math.min(i + 1, text.length());
+    }
+
+    /**
+     * Scans the lines of a file, keeping track of block comments which span several lines.
+     */
+    private static class LineScanner {
+        private boolean inComment;
+
+        /**
+         * Scans a line, replacing the macros outside of comments and literals.
+         *
+         * @param line         the line to scan
+         * @param macros       the macros to replace, or <code>null</code> to leave the code unchanged
+         * @param keepComments whether to keep the comments, or replace each by a space
+         * @return the scanned line
+         */
+        String scan(String line, Map<String, String> macros, boolean keepComments) {
+            StringBuilder result = new StringBuilder();
+            int codeStart = 0;
+            int i = 0;
+            while (i < line.length()) {
+                if (inComment) {
+                    int end = line.indexOf("*/", i);
+                    int stop = end < 0 ? line.length() : end + 2;
+                    if (keepComments) {
+                        result.append(line, i, stop);
+                    }
+                    inComment = end < 0;
+                    i = stop;
+                    codeStart = i;
+                } else if (line.startsWith("//", i) || line.startsWith("/*", i)) {
+                    result.append(code(line.substring(codeStart, i), macros));
+                    if (line.startsWith("//", i)) {
+                        if (keepComments) {
+                            result.append(line, i, line.length());
+                        }
+                        return result.toString();
+                    }
+                    result.append(keepComments ? "/*" : " ");
+                    inComment = true;
+                    i += 2;
+                } else if (line.charAt(i) == '"' || line.charAt(i) == '\'') {
+                    i = skipLiteral(line, i);
+                } else {
+                    i++;
+                }
+            }
+            return result.append(code(line.substring(codeStart), macros)).toString();
+        }
+
+        private static String code(String text, Map<String, String> macros) {
+            return macros == null ? text : substitute(text, macros, new HashSet<String>());
+        }
+    }
+
+    /**
+     * The state of an <code>#if</code> section.
+     */
+    private static class Conditional {
+        private final boolean parentActive;
+        private final int line;
+        private boolean active;
+        private boolean taken;
+
+        Conditional(boolean parentActive, boolean active, int line) {
+            this.parentActive = parentActive;
+            this.active = active;
+            this.taken = active;
+            this.line = line;
+        }
+
+        void enter(boolean branchActive) {
+            active = branchActive;
+            taken |= branchActive;
+        }
+    }
+
+    /**
+     * An included file, preprocessed in a given state.
+     */
+    private static class Expansion {
+        private final String stagedName;
+        private final Map<String, String> exitMacros;
+
+        Expansion(String stagedName, Map<String, String> exitMacros) {
+            this.stagedName = stagedName;
+            this.exitMacros = exitMacros;
+        }
+    }
+
+    /**
+     * Evaluates the expression of an <code>#if</code> or <code>#elif</code> directive, after macro replacement, with
+     * the C operators on integers. Identifiers which remain are taken as 0.
+     */
+    private static class ExpressionEvaluator {
+        private final String expression;
+        private final Matcher matcher;
+        private final int line;
+        private int position;
+        private String current;
+        private int unevaluated;
+
+        ExpressionEvaluator(String expression, int line) {
+            this.expression = expression;
+            this.matcher = EXPRESSION_TOKEN.matcher(expression);
+            this.line = line;
+        }
+
+        long evaluate() throws IdlParseException {
+            advance();
+            long value = parseConditional();
+            if (current != null) {
+                throw error();
+            }
+            return value;
+        }
+
+        private void advance() throws IdlParseException {
+            matcher.region(position, expression.length());
+            if (matcher.lookingAt()) {
+                current = matcher.group(1);
+                position = matcher.end();
+            } else if (expression.substring(position).trim().isEmpty()) {
+                current = null;
+            } else {
+                throw error();
+            }
+        }
+
+        private long parseConditional() throws IdlParseException {
+            long condition = parseBinary(0);
+            if (!"?".equals(current)) {
+                return condition;
+            }
+            advance();
+            long whenTrue = condition != 0 ? parseConditional() : skipConditional();
+            expect(":");
+            long whenFalse = condition != 0 ? skipConditional() : parseConditional();
+            return condition != 0 ? whenTrue : whenFalse;
+        }
+
+        /**
+         * Parses an operand whose value cannot affect the result, as C does without evaluating it.
+         */
+        private long skipConditional() throws IdlParseException {
+            unevaluated++;
+            try {
+                return parseConditional();
+            } finally {
+                unevaluated--;
+            }
+        }
+
+        private long skipBinary(int level) throws IdlParseException {
+            unevaluated++;
+            try {
+                return parseBinary(level);
+            } finally {
+                unevaluated--;
+            }
+        }
+
+        private long parseBinary(int level) throws IdlParseException {
+            if (level == BINARY_OPERATORS.size()) {
+                return parseUnary();
+            }
+            long value = parseBinary(level + 1);
+            while (current != null && BINARY_OPERATORS.get(level).contains(current)) {
+                String operator = current;
+                advance();
+                boolean decided = operator.equals("&&") && value == 0 || operator.equals("||") && value != 0;
+                value = apply(operator, value, decided ? skipBinary(level + 1) : parseBinary(level + 1));
+            }
+            return value;
+        }
+
+        private long apply(String operator, long left, long right) throws IdlParseException {
+            switch (operator) {
+                case "||":
+                    return left != 0 || right != 0 ? 1 : 0;
+                case "&&":
+                    return left != 0 && right != 0 ? 1 : 0;
+                case "|":
+                    return left | right;
+                case "^":
+                    return left ^ right;
+                case "&":
+                    return left & right;
+                case "==":
+                    return left == right ? 1 : 0;
+                case "!=":
+                    return left != right ? 1 : 0;
+                case "<":
+                    return left < right ? 1 : 0;
+                case "<=":
+                    return left <= right ? 1 : 0;
+                case ">":
+                    return left > right ? 1 : 0;
+                case ">=":
+                    return left >= right ? 1 : 0;
+                case "<<":
+                    return left << right;
+                case ">>":
+                    return left >> right;
+                case "+":
+                    return left + right;
+                case "-":
+                    return left - right;
+                case "*":
+                    return left * right;
+                default:
+                    if (right == 0 && unevaluated > 0) {
+                        return 0;
+                    } else if (right == 0) {
+                        throw new IdlParseException(line, "Division by zero in #if expression");
+                    }
+                    return operator.equals("/") ? left / right : left % right;
+            }
+        }
+
+        private long parseUnary() throws IdlParseException {
+            if (current == null) {
+                throw error();
+            }
+            String token = current;
+            if (token.equals("!") || token.equals("-") || token.equals("+") || token.equals("~")) {
+                advance();
+                long operand = parseUnary();
+                switch (token) {
+                    case "!":
+                        return operand == 0 ? 1 : 0;
+                    case "-":
+                        return -operand;
+                    case "~":
+                        return ~operand;
+                    default:
+                        return operand;
+                }
+            } else if (token.equals("(")) {
+                advance();
+                long value = parseConditional();
+                expect(")");
+                return value;
+            }
+            advance();
+            if (Character.isDigit(token.charAt(0))) {
+                return parseNumber(token.replaceAll("[uUlL]+$", ""));
+            } else if (Character.isLetter(token.charAt(0)) || token.charAt(0) == '_') {
+                return 0;
+            }
+            throw error();
+        }
+
+        private long parseNumber(String number) throws IdlParseException {
+            try {
+                if (number.startsWith("0x") || number.startsWith("0X")) {
+                    return Long.parseLong(number.substring(2), 16);
+                }
+                return number.length() > 1 && number.startsWith("0")
+                        ? Long.parseLong(number.substring(1), 8)
+                        : Long.parseLong(number);
+            } catch (NumberFormatException e) {
+                throw error();
+            }
+        }
+
+        private void expect(String token) throws IdlParseException {
+            if (!token.equals(current)) {
+                throw error();
+            }
+            advance();
+        }
+
+        private IdlParseException error() {
+            return new IdlParseException(line, "Unsupported #if expression: " + expression.trim());
+        }
+    }
+}
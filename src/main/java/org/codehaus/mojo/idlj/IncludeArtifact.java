@@ -0,0 +1,89 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/**
+ * This class represents a dependency whose IDL files are used as an additional include directory. It also identifies
+ * the dependencies holding published stubs.
+ */
+public class IncludeArtifact {
+    /**
+     * The group id of the dependency.
+     *
+     * @parameter groupId
+     */
+    private String groupId;
+
+    /**
+     * The artifact id of the dependency.
+     *
+     * @parameter artifactId
+     */
+    private String artifactId;
+
+    /**
+     * The classifier of the dependency. This is optional.
+     *
+     * @parameter classifier
+     */
+    private String classifier;
+
+    /**
+     * The directory within the artifact which holds the IDL files. This is optional; if omitted, the root of the
+     * artifact is used.
+     *
+     * @parameter directory
+     */
+    private String directory;
+
+    /**
+     * @return the group id of the dependency
+     */
+    public String getGroupId() {
+        return groupId;
+    }
+
+    /**
+     * @return the artifact id of the dependency
+     */
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    /**
+     * @return the classifier of the dependency, or <code>null</code> if it has none
+     */
+    public String getClassifier() {
+        return classifier;
+    }
+
+    /**
+     * @return the directory within the artifact which holds the IDL files, or <code>null</code> for its root
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public String toString() {
+        return groupId + ":" + artifactId + (classifier == null ? "" : ":" + classifier);
+    }
+}
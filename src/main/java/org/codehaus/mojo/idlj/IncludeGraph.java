@@ -0,0 +1,191 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * The graph of <code>#include</code> directives between IDL files. Each file is read at most once; the included
+ * files are resolved the way the IDL compilers do it: quoted names are first looked up relative to the including file,
+ * then, like names in angle brackets, in the include directories, using an {@link IncludeIndex}.
+ */
+class IncludeGraph {
+    private static final Pattern INCLUDE_DIRECTIVE =
+            Pattern.compile("^\\s*#\\s*include\\s*([\"<])([^\">]+)[\">]", Pattern.MULTILINE);
+
+    private final DependenciesFacade dependencies;
+    private final IncludeIndex includeIndex;
+    private final Log log;
+    private final Map<File, List<Include>> includeDirectives = new HashMap<>();
+    private final Map<File, Set<File>> directIncludes = new HashMap<>();
+    private final Map<File, Set<File>> includeClosures = new HashMap<>();
+
+    /**
+     * Creates a graph which resolves include directives against the specified index of the include directories.
+     *
+     * @param dependencies the facade used to access the file system
+     * @param includeIndex the index of the include directories
+     * @param log          the log for diagnostic messages
+     */
+    IncludeGraph(DependenciesFacade dependencies, IncludeIndex includeIndex, Log log) {
+        this.dependencies = dependencies;
+        this.includeIndex = includeIndex;
+        this.log = log;
+    }
+
+    /**
+     * Returns the names used by the include directives in the specified file, whether or not they can be resolved.
+     *
+     * @param idlFile the file to examine
+     * @return the included names, in the order in which they appear
+     */
+    List<String> getIncludeNames(File idlFile) {
+        List<String> names = new ArrayList<>();
+        for (Include include : getIncludeDirectives(idlFile)) {
+            names.add(include.name);
+        }
+        return names;
+    }
+
+    /**
+     * Returns the files directly included by the specified file. Includes which cannot be resolved are ignored.
+     *
+     * @param idlFile the file to examine
+     * @return the resolved included files
+     */
+    Set<File> getDirectIncludes(File idlFile) {
+        File key = normalize(idlFile);
+        Set<File> includes = directIncludes.get(key);
+        if (includes == null) {
+            includes = resolveIncludes(key);
+            directIncludes.put(key, includes);
+        }
+        return includes;
+    }
+
+    /**
+     * Returns all files included by the specified file, directly or indirectly.
+     *
+     * @param idlFile the file to examine
+     * @return the transitively included files, not including the file itself
+     */
+    Set<File> getIncludeClosure(File idlFile) {
+        File key = normalize(idlFile);
+        Set<File> closure = includeClosures.get(key);
+        if (closure == null) {
+            closure = new LinkedHashSet<>();
+            addIncludeClosure(key, closure);
+            closure.remove(key);
+            closure = Collections.unmodifiableSet(closure);
+            includeClosures.put(key, closure);
+        }
+        return closure;
+    }
+
+    private void addIncludeClosure(File idlFile, Set<File> closure) {
+        for (File include : getDirectIncludes(idlFile)) {
+            if (closure.add(include)) {
+                addIncludeClosure(include, closure);
+            }
+        }
+    }
+
+    private Set<File> resolveIncludes(File idlFile) {
+        Set<File> includes = new LinkedHashSet<>();
+        for (Include include : getIncludeDirectives(idlFile)) {
+            File resolved = resolve(idlFile, include);
+            if (resolved != null) {
+                includes.add(resolved);
+            } else {
+                log.debug("Unable to resolve include '" + include.name + "' in " + idlFile);
+            }
+        }
+        return Collections.unmodifiableSet(includes);
+    }
+
+    private File resolve(File idlFile, Include include) {
+        if (include.quoted) {
+            File candidate = new File(idlFile.getParentFile(), include.name);
+            if (dependencies.exists(candidate)) {
+                return normalize(candidate);
+            }
+        }
+
+        return includeIndex.resolve(include.name);
+    }
+
+    private List<Include> getIncludeDirectives(File idlFile) {
+        File key = normalize(idlFile);
+        List<Include> includes = includeDirectives.get(key);
+        if (includes == null) {
+            includes = readIncludeDirectives(key);
+            includeDirectives.put(key, includes);
+        }
+        return includes;
+    }
+
+    /**
+     * Returns the absolute, normalized form of the specified file, so that each file has a single representation.
+     *
+     * @param file the file to normalize
+     * @return the normalized file
+     */
+    static File normalize(File file) {
+        return file.getAbsoluteFile().toPath().normalize().toFile();
+    }
+
+    private List<Include> readIncludeDirectives(File idlFile) {
+        List<Include> includes = new ArrayList<>();
+        try {
+            Matcher matcher = INCLUDE_DIRECTIVE.matcher(dependencies.readFile(idlFile));
+            while (matcher.find()) {
+                includes.add(new Include(matcher.group(2).trim(), "\"".equals(matcher.group(1))));
+            }
+        } catch (IOException e) {
+            log.debug("Unable to read includes from " + idlFile + ": " + e);
+        }
+        return includes;
+    }
+
+    /**
+     * A single include directive.
+     */
+    private static class Include {
+        private final String name;
+        private final boolean quoted;
+
+        Include(String name, boolean quoted) {
+            this.name = name;
+            this.quoted = quoted;
+        }
+    }
+}
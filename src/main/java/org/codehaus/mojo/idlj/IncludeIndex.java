@@ -0,0 +1,146 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the files in the include directories, built once per execution, so that each include directive is
+ * resolved by a single lookup rather than by probing every include directory in turn. A name which is not in the
+ * index, such as one the file system matches only ignoring case, is still looked up directory by directory.
+ */
+class IncludeIndex {
+    private final DependenciesFacade dependencies;
+    private final List<File> includeDirectories;
+    private Map<String, File> files;
+
+    /**
+     * Creates an index of the specified directories. The directories are listed when the first name is resolved.
+     *
+     * @param dependencies       the facade used to access the file system
+     * @param includeDirectories the directories to search, in order
+     */
+    IncludeIndex(DependenciesFacade dependencies, List<File> includeDirectories) {
+        this.dependencies = dependencies;
+        this.includeDirectories = new ArrayList<>(includeDirectories);
+    }
+
+    /**
+     * Resolves an included name against the include directories, as the IDL compilers do.
+     *
+     * @param name the name used in the include directive
+     * @return the normalized file found in the first directory containing it, or <code>null</code> if there is none
+     */
+    File resolve(String name) {
+        String key = toKey(name);
+        if (key != null) {
+            File file = getFiles().get(key);
+            if (file != null) {
+                return file;
+            }
+        }
+
+        for (File directory : includeDirectories) {
+            File candidate = new File(directory, name);
+            if (dependencies.exists(candidate)) {
+                return IncludeGraph.normalize(candidate);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Selects the include directories which a compiler needs to find the specified files, keeping their order, so
+     * that it does not probe directories which cannot contain any of them.
+     *
+     * @param includeDirs   the configured include directories
+     * @param includedFiles the files included, directly or indirectly, by the file to compile
+     * @return those of the configured directories which contain at least one of the included files
+     */
+    static File[] selectIncludeDirectories(File[] includeDirs, Collection<File> includedFiles) {
+        List<File> selected = new ArrayList<>();
+        if (includeDirs != null) {
+            for (File directory : includeDirs) {
+                String prefix = IncludeGraph.normalize(directory).getPath() + File.separator;
+                for (File includedFile : includedFiles) {
+                    if (includedFile.getPath().startsWith(prefix)) {
+                        selected.add(directory);
+                        break;
+                    }
+                }
+            }
+        }
+        return selected.toArray(new File[0]);
+    }
+
+    private Map<String, File> getFiles() {
+        if (files == null) {
+            files = new HashMap<>();
+            for (File directory : includeDirectories) {
+                addFiles(IncludeGraph.normalize(directory));
+            }
+        }
+        return files;
+    }
+
+    private void addFiles(File directory) {
+        String prefix = directory.getPath() + File.separator;
+        try {
+            for (File file : dependencies.listFiles(directory)) {
+                File normalized = IncludeGraph.normalize(file);
+                if (normalized.getPath().startsWith(prefix)) {
+                    String key = toKey(normalized.getPath().substring(prefix.length()));
+                    if (key != null && !files.containsKey(key)) {
+                        files.put(key, normalized);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // the names in this directory will be resolved by probing it
+        }
+    }
+
+    /**
+     * @return the name in a canonical form, using forward slashes, or <code>null</code> if it is absolute or refers to
+     *         a parent directory, and so cannot be looked up in the index
+     */
+    private static String toKey(String name) {
+        String key = name.replace('\\', '/');
+        if (key.startsWith("/") || new File(name).isAbsolute()) {
+            return null;
+        }
+        StringBuilder canonical = new StringBuilder();
+        for (String segment : key.split("/")) {
+            if (segment.equals("..")) {
+                return null;
+            } else if (!segment.isEmpty() && !segment.equals(".")) {
+                canonical.append(canonical.length() == 0 ? "" : "/").append(segment);
+            }
+        }
+        return canonical.toString();
+    }
+}
@@ -0,0 +1,163 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Records the inputs and outputs of the compilation which produced the sources in an output directory: the
+ * fingerprint of the IDL files, their includes and the options, the IDL files themselves and the generated sources.
+ * The manifest lives in the output directory, so that whatever restores the generated sources, such as a build cache,
+ * restores it too.
+ */
+class InputManifest {
+    /**
+     * The name of the manifest file within the output directory.
+     */
+    static final String FILE_NAME = "idlj-inputs.properties";
+
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String INPUTS = "inputs";
+    private static final String OUTPUTS = "outputs";
+
+    private final String fingerprint;
+    private final List<String> inputs;
+    private final List<String> outputs;
+
+    private InputManifest(String fingerprint, List<String> inputs, List<String> outputs) {
+        this.fingerprint = fingerprint;
+        this.inputs = Collections.unmodifiableList(new ArrayList<>(inputs));
+        this.outputs = Collections.unmodifiableList(new ArrayList<>(outputs));
+    }
+
+    /**
+     * Creates a manifest listing the sources currently present in the output directory.
+     *
+     * @param dependencies    the facade used to access the file system
+     * @param outputDirectory the directory holding the generated sources
+     * @param fingerprint     the fingerprint of the inputs of the compilation
+     * @param inputs          the IDL files read by the compilation, relative to their IDL directories
+     * @return the manifest
+     * @throws IOException if the output directory cannot be listed
+     */
+    static InputManifest create(
+            DependenciesFacade dependencies, File outputDirectory, String fingerprint, List<String> inputs)
+            throws IOException {
+        List<String> outputs = new ArrayList<>();
+        String prefix = outputDirectory.getAbsolutePath() + File.separator;
+        for (File file : dependencies.listFiles(outputDirectory)) {
+            String path = file.getAbsolutePath();
+            if (path.endsWith(".java") && path.startsWith(prefix)) {
+                outputs.add(path.substring(prefix.length()).replace(File.separatorChar, '/'));
+            }
+        }
+        Collections.sort(outputs);
+        return new InputManifest(fingerprint, inputs, outputs);
+    }
+
+    /**
+     * Reads the manifest of an output directory.
+     *
+     * @param dependencies    the facade used to access the file system
+     * @param outputDirectory the directory holding the generated sources
+     * @return the manifest, or null if the directory has none
+     * @throws IOException if the manifest cannot be read
+     */
+    static InputManifest read(DependenciesFacade dependencies, File outputDirectory) throws IOException {
+        File file = new File(outputDirectory, FILE_NAME);
+        if (!dependencies.exists(file)) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        properties.load(new StringReader(dependencies.readFile(file)));
+        return new InputManifest(
+                properties.getProperty(FINGERPRINT),
+                PropertyLists.getList(properties, INPUTS),
+                PropertyLists.getList(properties, OUTPUTS));
+    }
+
+    /**
+     * Checks whether the sources in an output directory were generated from the specified inputs and are all present.
+     *
+     * @param dependencies    the facade used to access the file system
+     * @param outputDirectory the directory holding the generated sources
+     * @param fingerprint     the fingerprint of the current inputs
+     * @return true if there is no need to compile the IDL files again
+     * @throws IOException if the manifest cannot be read
+     */
+    static boolean isUpToDate(DependenciesFacade dependencies, File outputDirectory, String fingerprint)
+            throws IOException {
+        InputManifest manifest = read(dependencies, outputDirectory);
+        if (manifest == null || !fingerprint.equals(manifest.fingerprint)) {
+            return false;
+        }
+        for (String output : manifest.outputs) {
+            if (!dependencies.exists(new File(outputDirectory, output))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes this manifest into the specified output directory.
+     *
+     * @param dependencies    the facade used to access the file system
+     * @param outputDirectory the directory holding the generated sources
+     * @throws IOException if the manifest cannot be written
+     */
+    void write(DependenciesFacade dependencies, File outputDirectory) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(FINGERPRINT, fingerprint);
+        PropertyLists.setList(properties, INPUTS, inputs);
+        PropertyLists.setList(properties, OUTPUTS, outputs);
+
+        StringWriter writer = new StringWriter();
+        properties.store(writer, "Inputs and outputs of the IDL compilation");
+        dependencies.writeFile(new File(outputDirectory, FILE_NAME), writer.toString());
+    }
+
+    String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return the IDL files read by the compilation, relative to their IDL directories
+     */
+    List<String> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * @return the generated sources, relative to the output directory
+     */
+    List<String> getOutputs() {
+        return outputs;
+    }
+}
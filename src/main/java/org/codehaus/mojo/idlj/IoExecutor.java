@@ -0,0 +1,167 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs blocking file system operations, such as reading the modification time or the content of many files,
+ * concurrently. On JDK 21 and later each operation runs in its own virtual thread, so that a file system with a high
+ * latency, such as a network share, is kept busy without a large pool of platform threads. On older JDKs a bounded
+ * pool of platform daemon threads is used instead, whose threads end when idle. Either way, at most
+ * {@link #IO_PARALLELISM} operations of a batch are in progress at once.
+ */
+class IoExecutor {
+    /**
+     * The number of platform threads used when virtual threads are not available.
+     */
+    static final int PLATFORM_THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    /**
+     * The number of operations of a batch which may be in progress at once. Virtual threads do not bound it, and a
+     * batch of thousands of files would otherwise open them all at the same time.
+     */
+    static final int IO_PARALLELISM = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+
+    private static final long IDLE_SECONDS = 10;
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    /**
+     * An operation on a single item which may fail with an I/O error.
+     *
+     * @param <T> the type of the items
+     * @param <R> the type of the results
+     */
+    interface IoOperation<T, R> {
+        R apply(T item) throws IOException;
+    }
+
+    private IoExecutor() {}
+
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    PLATFORM_THREADS,
+                    PLATFORM_THREADS,
+                    IDLE_SECONDS,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "idlj-io");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+    /**
+     * @return true if the operations run in virtual threads
+     */
+    static boolean usesVirtualThreads() {
+        return !(EXECUTOR instanceof ThreadPoolExecutor);
+    }
+
+    /**
+     * Applies an operation to each of the specified items concurrently, and waits for all of them to complete. An
+     * operation is only started once fewer than {@link #IO_PARALLELISM} are in progress, and none is started once one
+     * has failed.
+     *
+     * @param items     the items to which the operation is applied
+     * @param operation the operation
+     * @param <T>       the type of the items
+     * @param <R>       the type of the results
+     * @return the results, in the iteration order of the items
+     * @throws IOException if the operation failed for any item; the first such failure is reported
+     */
+    static <T, R> List<R> map(Collection<? extends T> items, final IoOperation<? super T, ? extends R> operation)
+            throws IOException {
+        List<R> results = new ArrayList<>(items.size());
+        if (items.size() < 2) {
+            for (T item : items) {
+                results.add(operation.apply(item));
+            }
+            return results;
+        }
+
+        final Semaphore inFlight = new Semaphore(IO_PARALLELISM);
+        final AtomicBoolean failed = new AtomicBoolean();
+        List<Future<? extends R>> futures = new ArrayList<>(items.size());
+        try {
+            for (final T item : items) {
+                inFlight.acquire();
+                if (failed.get()) {
+                    inFlight.release();
+                    break;
+                }
+                futures.add(EXECUTOR.submit(() -> {
+                    try {
+                        return operation.apply(item);
+                    } catch (IOException | RuntimeException | Error e) {
+                        failed.set(true);
+                        throw e;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+            for (Future<? extends R> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for file operations", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            } else {
+                throw new IOException(e.getCause());
+            }
+        } finally {
+            for (Future<? extends R> future : futures) {
+                future.cancel(false);
+            }
+        }
+        return results;
+    }
+}
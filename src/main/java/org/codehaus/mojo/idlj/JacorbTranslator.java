@@ -61,7 +61,7 @@ class JacorbTranslator extends AbstractTranslator implements CompilerTranslator
      */
     private void invokeCompiler(Class<?> compilerClass, List<String> args) throws MojoExecutionException {
         // It would be great to use some 3rd party library for this stuff
-        if (!isFork()) {
+        if (!isForked()) {
             invokeCompilerInProcess(compilerClass, args);
         } else {
 
@@ -70,10 +70,6 @@ class JacorbTranslator extends AbstractTranslator implements CompilerTranslator
             File javaHome = new File(System.getProperty("java.home"));
             File javaBin = new File(new File(javaHome, "bin"), "java");
 
-            // Get current class path
-            URLClassLoader cl = (URLClassLoader) this.getClass().getClassLoader();
-            URL[] classPathUrls = cl.getURLs();
-
             // Construct list of arguments
             List<String> binArgs = new ArrayList<>();
 
@@ -82,11 +78,7 @@ class JacorbTranslator extends AbstractTranslator implements CompilerTranslator
 
             // Add the classpath to argument list
             binArgs.add("-classpath");
-            String classPath = "" + new File(classPathUrls[0].getPath().replaceAll("%20", " "));
-            for (URL url : classPathUrls) {
-                classPath += File.pathSeparator + new File(url.getPath().replaceAll("%20", " "));
-            }
-            binArgs.add(classPath);
+            binArgs.add(getClassPath());
 
             // Add class containing main method to arg list
             binArgs.add(compilerClass.getName());
@@ -121,6 +113,28 @@ class JacorbTranslator extends AbstractTranslator implements CompilerTranslator
         }
     }
 
+    /**
+     * @return the class path with which to fork the compiler: that of the plugin, or, when the plugin has not been
+     *         loaded by a URL class loader, as outside Maven on recent JDKs, that of the JVM
+     */
+    private String getClassPath() {
+        if (!(getClass().getClassLoader() instanceof URLClassLoader)) {
+            return System.getProperty("java.class.path");
+        }
+
+        URL[] classPathUrls = ((URLClassLoader) getClass().getClassLoader()).getURLs();
+        String classPath = "" + new File(classPathUrls[0].getPath().replaceAll("%20", " "));
+        for (URL url : classPathUrls) {
+            classPath += File.pathSeparator + new File(url.getPath().replaceAll("%20", " "));
+        }
+        return classPath;
+    }
+
+    @Override
+    boolean canFork() {
+        return true;
+    }
+
     @Override
     protected int runCompiler(Class<?> compilerClass, String... arguments)
             throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
@@ -193,14 +207,20 @@ class JacorbTranslator extends AbstractTranslator implements CompilerTranslator
 
         args.add(idlFile);
 
-        Class<?> compilerClass;
+        invokeCompiler(getCompilerClass(), args);
+    }
+
+    @Override
+    String describeCompiler() throws MojoExecutionException {
+        return describeCompilerClass(getCompilerClass());
+    }
+
+    private static Class<?> getCompilerClass() throws MojoExecutionException {
         try {
-            compilerClass = getClassLoaderFacade().loadClass("org.jacorb.idl.parser");
+            return getClassLoaderFacade().loadClass("org.jacorb.idl.parser");
         } catch (ClassNotFoundException e) {
             throw new MojoExecutionException("JacORB IDL compiler not found", e);
         }
-
-        invokeCompiler(compilerClass, args);
     }
 
     /**
@@ -0,0 +1,177 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Assembles the output of a sharded IDL compilation, as produced by running the <code>generate</code> goal with
+ * <code>shardCount</code> greater than one, into the generated sources directory. The classes which a source asked
+ * to omit, and which the shards had to keep, are pruned from the merged sources.
+ */
+@Mojo(name = "merge-shards", defaultPhase = LifecyclePhase.GENERATE_SOURCES)
+public class MergeShardsMojo extends AbstractMojo {
+    /**
+     * The directory below which the shards wrote their generated sources and manifests.
+     */
+    @Parameter(property = "shardDirectory", defaultValue = "${project.build.directory}/idlj-shards")
+    private File shardDirectory;
+
+    /**
+     * The directory to output the merged generated sources to.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/generated-sources/idl")
+    private File outputDirectory;
+
+    @Parameter(property = "project", readonly = true)
+    private MavenProject project;
+
+    /**
+     * The interface between this class and the rest of the world - unit tests replace the default implementation.
+     */
+    private final DependenciesFacade dependencies;
+
+    /**
+     * Constructs a shard merging Mojo.
+     */
+    public MergeShardsMojo() {
+        this(new DependenciesFacadeImpl());
+    }
+
+    MergeShardsMojo(DependenciesFacade dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * Copies the generated sources of every shard into the output directory, then removes the omitted classes which
+     * no merged class uses.
+     *
+     * @throws MojoExecutionException if a shard is missing, the manifests disagree, or two shards generated different
+     *                                content for the same source
+     */
+    public void execute() throws MojoExecutionException {
+        ShardManifest firstManifest = readManifest(0);
+        int shardCount = firstManifest.getShardCount();
+
+        Map<String, File> origins = new HashMap<>();
+        Map<List<String>, Set<File>> omissions = new LinkedHashMap<>();
+        int numIdlFiles = 0;
+        for (int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+            ShardManifest manifest = shardIndex == 0 ? firstManifest : readManifest(shardIndex);
+            if (manifest.getShardCount() != shardCount || manifest.getShardIndex() != shardIndex) {
+                throw new MojoExecutionException("Manifest of shard " + shardIndex + " describes shard "
+                        + manifest.getShardIndex() + " of " + manifest.getShardCount() + ", expected "
+                        + shardIndex + " of " + shardCount);
+            }
+            numIdlFiles += manifest.getIdlFiles().size();
+            mergeShard(shardIndex, manifest, origins);
+            for (ShardManifest.Omission omission : manifest.getOmissions()) {
+                Set<File> candidates = omissions.get(omission.getPatterns());
+                if (candidates == null) {
+                    candidates = new HashSet<>();
+                    omissions.put(omission.getPatterns(), candidates);
+                }
+                for (String path : omission.getCandidates()) {
+                    candidates.add(new File(outputDirectory, path));
+                }
+            }
+        }
+        int numOmitted = pruneOmittedClasses(origins.keySet(), omissions);
+
+        getLog().info("Merged " + (origins.size() - numOmitted) + " generated files for " + numIdlFiles
+                + " grammar files from " + shardCount + " shards into " + outputDirectory);
+        project.addCompileSourceRoot(outputDirectory.getPath());
+    }
+
+    private ShardManifest readManifest(int shardIndex) throws MojoExecutionException {
+        try {
+            return ShardManifest.read(dependencies, ShardManifest.getShardDirectory(shardDirectory, shardIndex));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to read the manifest of shard " + shardIndex, e);
+        }
+    }
+
+    /**
+     * Prunes the merged sources, for each set of <code>omittedClasses</code> patterns, among the candidates recorded
+     * with it. Every merged source counts as a possible user of a candidate.
+     *
+     * @return the number of sources removed
+     */
+    private int pruneOmittedClasses(Collection<String> mergedPaths, Map<List<String>, Set<File>> omissions)
+            throws MojoExecutionException {
+        if (omissions.isEmpty()) {
+            return 0;
+        }
+
+        List<File> mergedFiles = new ArrayList<>();
+        for (String path : mergedPaths) {
+            mergedFiles.add(new File(outputDirectory, path));
+        }
+        int numOmitted = 0;
+        for (Map.Entry<List<String>, Set<File>> entry : omissions.entrySet()) {
+            GeneratedArtifactPruner pruner = new GeneratedArtifactPruner(entry.getKey());
+            try {
+                List<File> removed = pruner.prune(dependencies, outputDirectory, mergedFiles, entry.getValue());
+                mergedFiles.removeAll(removed);
+                numOmitted += removed.size();
+            } catch (IOException e) {
+                throw new MojoExecutionException("Unable to remove the omitted classes from " + outputDirectory, e);
+            }
+        }
+        getLog().debug("Omitted " + numOmitted + " merged classes");
+        return numOmitted;
+    }
+
+    private void mergeShard(int shardIndex, ShardManifest manifest, Map<String, File> origins)
+            throws MojoExecutionException {
+        File sources = new File(
+                ShardManifest.getShardDirectory(shardDirectory, shardIndex), ShardManifest.SOURCES_DIRECTORY);
+        for (String path : manifest.getGeneratedFiles()) {
+            File generatedFile = new File(sources, path);
+            File previous = origins.put(path, generatedFile);
+            try {
+                if (previous == null) {
+                    dependencies.copyFile(generatedFile, new File(outputDirectory, path));
+                } else if (!dependencies.readFile(previous).equals(dependencies.readFile(generatedFile))) {
+                    throw new MojoExecutionException(
+                            "Shards generated different content for " + path + ": " + previous + ", " + generatedFile);
+                }
+            } catch (IOException e) {
+                throw new MojoExecutionException("Unable to merge " + generatedFile, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits an IDL file consisting of several top-level modules into one compilation unit per module. Each unit repeats
+ * the preprocessor directives which precede its module in the original file, and includes the units of the earlier
+ * modules it refers to, so that it can be compiled on its own. Since the IDL compilers only generate code for the file
+ * named on the command line, the included units contribute declarations but no output.
+ *
+ * <p>Only files whose top level contains nothing but modules, comments and <code>#include</code>,
+ * <code>#pragma</code> and <code>#define</code> directives are split; anything else, such as conditional
+ * compilation or global declarations, could change meaning when divided, and such files are compiled whole.</p>
+ */
+class ModuleSplitter {
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final Pattern SPLITTABLE_DIRECTIVE =
+            Pattern.compile("#\\s*(include|pragma|define)\\b.*", Pattern.DOTALL);
+
+    private final String text;
+    private final List<Directive> directives = new ArrayList<>();
+    private final List<Block> blocks = new ArrayList<>();
+    private int position;
+    private int countedPosition;
+    private int countedLine = 1;
+
+    private ModuleSplitter(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Splits the specified IDL text into per-module units.
+     *
+     * @param text          the contents of the IDL file
+     * @param unitDirectory the directory in which the units will be written
+     * @param guardPrefix   a prefix for the include guards of the units, unique to the IDL file
+     * @return the units, in the order of the modules in the original file, or <code>null</code> if the file
+     *         cannot be split or contains fewer than two modules
+     */
+    static List<Unit> split(String text, File unitDirectory, String guardPrefix) {
+        ModuleSplitter splitter = new ModuleSplitter(text);
+        if (!splitter.parse() || splitter.blocks.size() < 2) {
+            return null;
+        }
+        return splitter.createUnits(unitDirectory, toIdentifier(guardPrefix));
+    }
+
+    private List<Unit> createUnits(File unitDirectory, String guardPrefix) {
+        List<Unit> units = new ArrayList<>();
+        for (int i = 0; i < blocks.size(); i++) {
+            Block block = blocks.get(i);
+            String unitName = String.format("%03d-%s.idl", i + 1, block.name);
+            String guard = "__" + guardPrefix + "_" + (i + 1) + "_" + block.name.toUpperCase() + "__";
+
+            StringBuilder content = new StringBuilder();
+            content.append("#ifndef ").append(guard).append('\n');
+            content.append("#define ").append(guard).append('\n');
+            for (Directive directive : directives) {
+                if (directive.precedingBlocks <= i) {
+                    content.append(directive.text).append('\n');
+                }
+            }
+            List<Unit> referencedUnits = new ArrayList<>();
+            for (int j : getReferencedBlocks(i)) {
+                referencedUnits.add(units.get(j));
+                content.append("#include \"").append(units.get(j).getFile().getName()).append("\"\n");
+            }
+            int moduleLine = countLines(content) + 1;
+            content.append(block.text).append('\n');
+            content.append("#endif\n");
+
+            units.add(new Unit(
+                    block.name,
+                    new File(unitDirectory, unitName),
+                    content.toString(),
+                    referencedUnits,
+                    moduleLine,
+                    block.line));
+        }
+        return units;
+    }
+
+    private List<Integer> getReferencedBlocks(int index) {
+        Set<String> identifiers = new HashSet<>();
+        Matcher matcher = IDENTIFIER.matcher(blocks.get(index).strippedText);
+        while (matcher.find()) {
+            identifiers.add(matcher.group());
+        }
+
+        List<Integer> referenced = new ArrayList<>();
+        for (int j = 0; j < index; j++) {
+            if (identifiers.contains(blocks.get(j).name)) {
+                referenced.add(j);
+            }
+        }
+        return referenced;
+    }
+
+    private boolean parse() {
+        while (true) {
+            skipWhitespaceAndComments();
+            if (position >= text.length()) {
+                return true;
+            } else if (text.charAt(position) == '#') {
+                if (!parseDirective()) {
+                    return false;
+                }
+            } else if (!parseModule()) {
+                return false;
+            }
+        }
+    }
+
+    private boolean parseDirective() {
+        int start = position;
+        while (position < text.length() && !isEndOfDirective()) {
+            position++;
+        }
+        String directive = text.substring(start, position).trim();
+        directives.add(new Directive(directive, blocks.size()));
+        return SPLITTABLE_DIRECTIVE.matcher(directive).matches();
+    }
+
+    private boolean isEndOfDirective() {
+        return text.charAt(position) == '\n' && (position == 0 || text.charAt(position - 1) != '\\');
+    }
+
+    private boolean parseModule() {
+        int start = position;
+        if (!"module".equals(readIdentifier())) {
+            return false;
+        }
+        skipWhitespaceAndComments();
+        String name = readIdentifier();
+        if (name == null) {
+            return false;
+        }
+        skipWhitespaceAndComments();
+        if (position >= text.length() || text.charAt(position) != '{' || !skipBracedBody()) {
+            return false;
+        }
+        skipWhitespaceAndComments();
+        if (position >= text.length() || text.charAt(position) != ';') {
+            return false;
+        }
+        position++;
+
+        String blockText = text.substring(start, position);
+        blocks.add(new Block(name, blockText, stripCommentsAndLiterals(blockText), getLine(start)));
+        return true;
+    }
+
+    /**
+     * Returns the line of the specified offset, which may not precede the offset of the previous call.
+     */
+    private int getLine(int offset) {
+        for (; countedPosition < offset; countedPosition++) {
+            if (text.charAt(countedPosition) == '\n') {
+                countedLine++;
+            }
+        }
+        return countedLine;
+    }
+
+    private static int countLines(CharSequence text) {
+        int lines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private String readIdentifier() {
+        Matcher matcher = IDENTIFIER.matcher(text).region(position, text.length());
+        if (!matcher.lookingAt()) {
+            return null;
+        }
+        position = matcher.end();
+        return matcher.group();
+    }
+
+    private boolean skipBracedBody() {
+        int depth = 0;
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (startsComment()) {
+                skipComment();
+                continue;
+            } else if (c == '"' || c == '\'') {
+                skipLiteral(c);
+                continue;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                position++;
+                return true;
+            }
+            position++;
+        }
+        return false;
+    }
+
+    private void skipWhitespaceAndComments() {
+        while (position < text.length()) {
+            if (Character.isWhitespace(text.charAt(position))) {
+                position++;
+            } else if (startsComment()) {
+                skipComment();
+            } else {
+                return;
+            }
+        }
+    }
+
+    private boolean startsComment() {
+        return text.startsWith("//", position) || text.startsWith("/*", position);
+    }
+
+    private void skipComment() {
+        if (text.startsWith("//", position)) {
+            int end = text.indexOf('\n', position);
+            position = end < 0 ? text.length() : end;
+        } else {
+            int end = text.indexOf("*/", position + 2);
+            position = end < 0 ? text.length() : end + 2;
+        }
+    }
+
+    private void skipLiteral(char quote) {
+        position++;
+        while (position < text.length() && text.charAt(position) != quote) {
+            if (text.charAt(position) == '\\') {
+                position++;
+            }
+            position++;
+        }
+        position++;
+    }
+
+    private static String stripCommentsAndLiterals(String text) {
+        return text.replaceAll("(?s)/\\*.*?\\*/|//[^\\n]*|\"(\\\\.|[^\"\\\\])*\"|'(\\\\.|[^'\\\\])*'", " ");
+    }
+
+    private static String toIdentifier(String text) {
+        return text.replaceAll("[^A-Za-z0-9]", "_").toUpperCase();
+    }
+
+    /**
+     * A top-level preprocessor directive, and the number of modules which precede it.
+     */
+    private static class Directive {
+        private final String text;
+        private final int precedingBlocks;
+
+        Directive(String text, int precedingBlocks) {
+            this.text = text;
+            this.precedingBlocks = precedingBlocks;
+        }
+    }
+
+    /**
+     * A top-level module definition.
+     */
+    private static class Block {
+        private final String name;
+        private final String text;
+        private final String strippedText;
+        private final int line;
+
+        Block(String name, String text, String strippedText, int line) {
+            this.name = name;
+            this.text = text;
+            this.strippedText = strippedText;
+            this.line = line;
+        }
+    }
+
+    /**
+     * A compilation unit containing a single top-level module.
+     */
+    static class Unit {
+        private final String moduleName;
+        private final File file;
+        private final String content;
+        private final List<Unit> referencedUnits;
+        private final int moduleLine;
+        private final int originalModuleLine;
+
+        Unit(
+                String moduleName,
+                File file,
+                String content,
+                List<Unit> referencedUnits,
+                int moduleLine,
+                int originalModuleLine) {
+            this.moduleName = moduleName;
+            this.file = file;
+            this.content = content;
+            this.referencedUnits = referencedUnits;
+            this.moduleLine = moduleLine;
+            this.originalModuleLine = originalModuleLine;
+        }
+
+        /**
+         * @return the name of the module defined by this unit
+         */
+        String getModuleName() {
+            return moduleName;
+        }
+
+        /**
+         * @return the file in which this unit is to be written
+         */
+        File getFile() {
+            return file;
+        }
+
+        /**
+         * @return the IDL text of this unit
+         */
+        String getContent() {
+            return content;
+        }
+
+        /**
+         * @return the units of earlier modules which this unit includes
+         */
+        List<Unit> getReferencedUnits() {
+            return referencedUnits;
+        }
+
+        /**
+         * @return the line of this unit at which its module starts
+         */
+        int getModuleLine() {
+            return moduleLine;
+        }
+
+        /**
+         * @return the line of the original file at which the module of this unit starts
+         */
+        int getOriginalModuleLine() {
+            return originalModuleLine;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Makes generated sources reproducible. The compilers write the generation date, and the path of the IDL file as
+ * given to them, into the header comments of the sources they generate, and use the line separator of the platform,
+ * so identical IDL yields different sources on every build and every machine. This class removes the dates, makes
+ * the paths relative to the source directory and uses '\n' as line separator. It also records a hash of each
+ * generated source, so that a source rewritten with identical content gets back its previous modification time and
+ * is not seen as changed by incremental builds.
+ */
+class OutputNormalizer {
+    /**
+     * The name of the file, within the timestamp directory, which holds the hashes of the generated sources.
+     */
+    static final String STATE_FILE = "idlj-generated.properties";
+
+    private static final String JAVA_SUFFIX = ".java";
+
+    /**
+     * Phrases which identify the comments written by the compilers, as opposed to those copied from the IDL.
+     */
+    private static final String[] GENERATOR_MARKERS = {
+        "Generated by the IDL-to-Java compiler", "JacORB IDL compiler", "Generated from IDL"
+    };
+
+    /**
+     * The line of the banner written by <code>idlj</code> and Glassfish which names the compiler. It is followed by
+     * the line naming the IDL file, then by the line holding the generation date.
+     */
+    private static final Pattern IDLJ_BANNER =
+            Pattern.compile("^\\s*\\*\\s*Generated by the IDL-to-Java compiler \\(portable\\), version .*$");
+
+    private static final Pattern SOURCE_PATH = Pattern.compile("^(\\s*\\*\\s*from\\s+)(.+?)\\s*$");
+
+    /**
+     * The line of the comments written by JacORB which holds the generation date.
+     */
+    private static final Pattern JACORB_DATE = Pattern.compile("^\\s*\\*\\s*@version\\s+generated at\\s.*$");
+
+    private final DependenciesFacade dependencies;
+    private final File idlDirectory;
+    private final File stateFile;
+    private final Properties hashes = new Properties();
+
+    /**
+     * Creates a normalizer.
+     *
+     * @param dependencies      the facade used to access the file system
+     * @param idlDirectory      the directory relative to which the paths of IDL files are written
+     * @param timestampDirectory the directory in which to keep the hashes of the generated sources
+     */
+    OutputNormalizer(DependenciesFacade dependencies, File idlDirectory, File timestampDirectory) {
+        this.dependencies = dependencies;
+        this.idlDirectory = idlDirectory;
+        this.stateFile = new File(timestampDirectory, STATE_FILE);
+        if (dependencies.exists(stateFile)) {
+            try {
+                hashes.load(new StringReader(dependencies.readFile(stateFile)));
+            } catch (IOException e) {
+                hashes.clear();
+            }
+        }
+    }
+
+    /**
+     * Normalizes the specified generated sources in place.
+     *
+     * @param files the generated files; files other than Java sources are left alone
+     * @return the number of files rewritten
+     * @throws IOException if a file cannot be read or written
+     */
+    int normalize(Collection<File> files) throws IOException {
+        int numRewritten = 0;
+        for (File file : files) {
+            if (file.getName().endsWith(JAVA_SUFFIX)) {
+                String content = dependencies.readFile(file);
+                String normalized = normalize(content);
+                if (!normalized.equals(content)) {
+                    dependencies.writeFile(file, normalized);
+                    numRewritten++;
+                }
+            }
+        }
+        return numRewritten;
+    }
+
+    /**
+     * Normalizes the content of a generated source.
+     *
+     * @param content the source as written by a compiler
+     * @return the source without dates, with relative IDL paths and with '\n' line separators
+     */
+    String normalize(String content) {
+        String[] lines = content.replace("\r\n", "\n").replace('\r', '\n').split("\n", -1);
+        StringBuilder result = new StringBuilder(content.length());
+        int commentStart = -1;
+        int resultCommentStart = -1;
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (commentStart < 0 && line.trim().startsWith("/*")) {
+                commentStart = i;
+                resultCommentStart = result.length();
+            }
+            result.append(line).append('\n');
+            if (commentStart >= 0 && line.contains("*/")) {
+                String comment = result.substring(resultCommentStart);
+                if (isGeneratorComment(comment)) {
+                    result.setLength(resultCommentStart);
+                    result.append(normalizeComment(comment));
+                }
+                commentStart = -1;
+            }
+        }
+        result.setLength(result.length() - 1);
+        return result.toString();
+    }
+
+    private static boolean isGeneratorComment(String comment) {
+        for (String marker : GENERATOR_MARKERS) {
+            if (comment.contains(marker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String normalizeComment(String comment) {
+        String[] lines = comment.split("\n");
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (JACORB_DATE.matcher(line).matches()) {
+                continue;
+            }
+            Matcher path = SOURCE_PATH.matcher(line);
+            if (i > 0 && IDLJ_BANNER.matcher(lines[i - 1]).matches() && path.matches()) {
+                result.append(path.group(1)).append(relativize(path.group(2))).append('\n');
+                if (i + 1 < lines.length && !lines[i + 1].contains("*/")) {
+                    i++;
+                }
+                continue;
+            }
+            result.append(line).append('\n');
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return the path of an IDL file relative to the source directory, or only its name if it lies elsewhere
+     */
+    private String relativize(String idlPath) {
+        File idlFile = new File(idlPath);
+        if (!idlFile.isAbsolute()) {
+            return idlPath.replace('\\', '/');
+        }
+        String relativePath = AbstractIDLJMojo.getRelativePath(idlDirectory, idlFile);
+        return relativePath.equals(idlFile.getAbsolutePath().replace(File.separatorChar, '/'))
+                ? idlFile.getName()
+                : relativePath;
+    }
+
+    /**
+     * Gives back their previous modification time to the generated files whose content is the same as when it was
+     * last recorded, and records the content of the others.
+     *
+     * @param previousModificationTimes the modification times of the generated files before the compilers ran
+     * @param writtenFiles              the files written since
+     * @return the files whose modification time was restored
+     * @throws IOException if a file cannot be read or the hashes cannot be saved
+     */
+    List<File> restoreUnchanged(Map<File, Long> previousModificationTimes, Collection<File> writtenFiles)
+            throws IOException {
+        List<File> restored = new ArrayList<>();
+        for (File file : writtenFiles) {
+            if (!dependencies.exists(file)) {
+                continue;
+            }
+            String key = file.getAbsolutePath();
+            String hash = ContentHash.of(dependencies.readBytes(file));
+            Long previousTime = previousModificationTimes.get(file);
+            if (previousTime != null && hash.equals(hashes.getProperty(key))) {
+                dependencies.setLastModified(file, previousTime);
+                restored.add(file);
+            } else {
+                hashes.setProperty(key, hash);
+            }
+        }
+
+        StringWriter writer = new StringWriter();
+        hashes.store(writer, "Hashes of the generated sources");
+        dependencies.writeFile(stateFile, writer.toString());
+        return restored;
+    }
+}
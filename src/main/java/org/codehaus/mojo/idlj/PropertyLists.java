@@ -0,0 +1,64 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Stores lists of strings in properties files, one property per element: <code>name.0</code>, <code>name.1</code>
+ * and so on. Elements may therefore hold any character, including the separators a joined value would need.
+ */
+class PropertyLists {
+    private PropertyLists() {}
+
+    /**
+     * Stores a list.
+     *
+     * @param properties the properties to store the list into
+     * @param name       the name of the list
+     * @param values     the elements of the list
+     */
+    static void setList(Properties properties, String name, Collection<String> values) {
+        int index = 0;
+        for (String value : values) {
+            properties.setProperty(name + "." + index++, value);
+        }
+    }
+
+    /**
+     * Reads a list stored by {@link #setList}.
+     *
+     * @param properties the properties holding the list
+     * @param name       the name of the list
+     * @return the elements of the list, in order; empty if there are none
+     */
+    static List<String> getList(Properties properties, String name) {
+        List<String> values = new ArrayList<>();
+        for (String value = properties.getProperty(name + ".0");
+                value != null;
+                value = properties.getProperty(name + "." + values.size())) {
+            values.add(value);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,108 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.TimeZone;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Writes the entries of jars so that the same contents always give the same bytes: every entry, starting with the
+ * manifest, carries the time of <code>project.build.outputTimestamp</code>, or a fixed time if it is not set.
+ */
+class ReproducibleJar {
+    /**
+     * The time of the entries when <code>project.build.outputTimestamp</code> is not set: 1980-02-01T00:00:00Z, the
+     * earliest time a zip entry records without an extended timestamp field, whatever the time zone.
+     */
+    static final long DEFAULT_TIME = 318211200000L;
+
+    private static final Instant EARLIEST = Instant.parse("1980-01-01T00:00:02Z");
+    private static final Instant LATEST = Instant.parse("2099-12-31T23:59:59Z");
+
+    private ReproducibleJar() {}
+
+    /**
+     * Parses the value of <code>project.build.outputTimestamp</code>, as Maven does: either seconds since the epoch,
+     * or an ISO-8601 date and time with an offset. A value shorter than two characters leaves it unset.
+     *
+     * @param outputTimestamp the value of the property, or null
+     * @return the time of the entries, in milliseconds since the epoch
+     * @throws MojoExecutionException if the value is neither form, or outside the range a zip entry can record
+     */
+    static long parseOutputTimestamp(String outputTimestamp) throws MojoExecutionException {
+        if (outputTimestamp == null || outputTimestamp.length() < 2) {
+            return DEFAULT_TIME;
+        }
+
+        Instant instant;
+        try {
+            instant = outputTimestamp.matches("\\d+")
+                    ? Instant.ofEpochSecond(Long.parseLong(outputTimestamp))
+                    : OffsetDateTime.parse(outputTimestamp).toInstant();
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new MojoExecutionException("Invalid project.build.outputTimestamp '" + outputTimestamp + "'", e);
+        }
+        if (instant.isBefore(EARLIEST) || instant.isAfter(LATEST)) {
+            throw new MojoExecutionException("project.build.outputTimestamp '" + outputTimestamp
+                    + "' is not between " + EARLIEST + " and " + LATEST);
+        }
+        return instant.toEpochMilli();
+    }
+
+    /**
+     * Creates an entry with the given time. A zip entry records its time in the local time zone; the time is shifted
+     * so that the entry records the same fields in every time zone.
+     *
+     * @param name the name of the entry
+     * @param time the time of the entry, in milliseconds since the epoch
+     * @return the entry
+     */
+    static JarEntry newEntry(String name, long time) {
+        JarEntry entry = new JarEntry(name);
+        entry.setTime(time - TimeZone.getDefault().getOffset(time));
+        return entry;
+    }
+
+    /**
+     * Writes a minimal manifest as the first entry of a jar. The constructor of <code>JarOutputStream</code> which
+     * takes a manifest is not used, as it gives the entry the current time.
+     *
+     * @param jar  the jar, with no entries yet
+     * @param time the time of the entry, in milliseconds since the epoch
+     * @throws IOException if the entry cannot be written
+     */
+    static void writeManifest(JarOutputStream jar, long time) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        jar.putNextEntry(newEntry(JarFile.MANIFEST_NAME, time));
+        manifest.write(jar);
+        jar.closeEntry();
+    }
+}
@@ -0,0 +1,205 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Describes the output of one shard of a sharded IDL compilation: which IDL files it compiled, which sources it
+ * generated, and which of those may be omitted. Each shard writes its output into its own directory below the shard
+ * root, so that several shards can be run against the same checkout and merged afterwards.
+ */
+class ShardManifest {
+    /**
+     * The name of the manifest file within a shard directory.
+     */
+    static final String FILE_NAME = "idlj-shard.properties";
+
+    /**
+     * The name of the directory, within a shard directory, which holds the generated sources.
+     */
+    static final String SOURCES_DIRECTORY = "sources";
+
+    private static final String SHARD_INDEX = "shardIndex";
+    private static final String SHARD_COUNT = "shardCount";
+    private static final String IDL_FILES = "idlFiles";
+    private static final String GENERATED_FILES = "generatedFiles";
+    private static final String OMISSION = "omission.";
+    private static final String PATTERNS = ".patterns";
+    private static final String CANDIDATES = ".candidates";
+
+    private final int shardIndex;
+    private final int shardCount;
+    private final List<String> idlFiles;
+    private final List<String> generatedFiles;
+    private final List<Omission> omissions;
+
+    ShardManifest(
+            int shardIndex,
+            int shardCount,
+            List<String> idlFiles,
+            List<String> generatedFiles,
+            List<Omission> omissions) {
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.idlFiles = Collections.unmodifiableList(new ArrayList<>(idlFiles));
+        this.generatedFiles = Collections.unmodifiableList(new ArrayList<>(generatedFiles));
+        this.omissions = Collections.unmodifiableList(new ArrayList<>(omissions));
+    }
+
+    /**
+     * Returns the shard to which an IDL file belongs. The choice depends only on the path of the file relative to its
+     * source directory, so that every machine partitions the files identically.
+     *
+     * @param relativePath the path of the IDL file, using forward slashes as separators
+     * @param shardCount   the total number of shards
+     * @return the index of the shard, from 0 to <code>shardCount - 1</code>
+     */
+    static int selectShard(String relativePath, int shardCount) {
+        CRC32 crc = new CRC32();
+        crc.update(relativePath.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % shardCount);
+    }
+
+    /**
+     * @param shardRoot  the directory containing all shard directories
+     * @param shardIndex the index of a shard
+     * @return the directory holding the output of the specified shard
+     */
+    static File getShardDirectory(File shardRoot, int shardIndex) {
+        return new File(shardRoot, "shard-" + shardIndex);
+    }
+
+    /**
+     * Reads a manifest written by {@link #write}.
+     *
+     * @param dependencies   the facade used to access the file system
+     * @param shardDirectory the directory of the shard
+     * @return the manifest
+     * @throws IOException if the manifest cannot be read or is invalid
+     */
+    static ShardManifest read(DependenciesFacade dependencies, File shardDirectory) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new StringReader(dependencies.readFile(new File(shardDirectory, FILE_NAME))));
+        List<Omission> omissions = new ArrayList<>();
+        for (int i = 0; properties.getProperty(OMISSION + i + PATTERNS + ".0") != null; i++) {
+            omissions.add(new Omission(
+                    PropertyLists.getList(properties, OMISSION + i + PATTERNS),
+                    PropertyLists.getList(properties, OMISSION + i + CANDIDATES)));
+        }
+        try {
+            return new ShardManifest(
+                    Integer.parseInt(properties.getProperty(SHARD_INDEX)),
+                    Integer.parseInt(properties.getProperty(SHARD_COUNT)),
+                    PropertyLists.getList(properties, IDL_FILES),
+                    PropertyLists.getList(properties, GENERATED_FILES),
+                    omissions);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid shard manifest in " + shardDirectory, e);
+        }
+    }
+
+    /**
+     * Writes this manifest into the specified shard directory.
+     *
+     * @param dependencies   the facade used to access the file system
+     * @param shardDirectory the directory of the shard
+     * @throws IOException if the manifest cannot be written
+     */
+    void write(DependenciesFacade dependencies, File shardDirectory) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(SHARD_INDEX, Integer.toString(shardIndex));
+        properties.setProperty(SHARD_COUNT, Integer.toString(shardCount));
+        PropertyLists.setList(properties, IDL_FILES, idlFiles);
+        PropertyLists.setList(properties, GENERATED_FILES, generatedFiles);
+        for (int i = 0; i < omissions.size(); i++) {
+            PropertyLists.setList(properties, OMISSION + i + PATTERNS, omissions.get(i).getPatterns());
+            PropertyLists.setList(properties, OMISSION + i + CANDIDATES, omissions.get(i).getCandidates());
+        }
+
+        StringWriter writer = new StringWriter();
+        properties.store(writer, "IDL compilation shard " + shardIndex + " of " + shardCount);
+        dependencies.writeFile(new File(shardDirectory, FILE_NAME), writer.toString());
+    }
+
+    int getShardIndex() {
+        return shardIndex;
+    }
+
+    int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * @return the IDL files compiled by the shard, relative to the source directory
+     */
+    List<String> getIdlFiles() {
+        return idlFiles;
+    }
+
+    /**
+     * @return the sources present in the shard's output, relative to its sources directory
+     */
+    List<String> getGeneratedFiles() {
+        return generatedFiles;
+    }
+
+    /**
+     * @return the classes which the shard kept although a source asked to omit them, to be pruned once merged
+     */
+    List<Omission> getOmissions() {
+        return omissions;
+    }
+
+    /**
+     * Generated sources which a shard could not prune, as a class of another shard may use them: the
+     * <code>omittedClasses</code> patterns of a source, and the sources generated for it.
+     */
+    static class Omission {
+        private final List<String> patterns;
+        private final List<String> candidates;
+
+        /**
+         * @param patterns   the patterns of the classes to omit, as given to {@link GeneratedArtifactPruner}
+         * @param candidates the sources which may be removed, relative to the sources directory of the shard
+         */
+        Omission(List<String> patterns, List<String> candidates) {
+            this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+            this.candidates = Collections.unmodifiableList(new ArrayList<>(candidates));
+        }
+
+        List<String> getPatterns() {
+            return patterns;
+        }
+
+        List<String> getCandidates() {
+            return candidates;
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.codehaus.mojo.idlj;
 
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * This class represent the source tag available in the configuration tree of the maven plugin
@@ -51,6 +52,38 @@ public class Source {
      */
     private Boolean emitSkeletons = Boolean.TRUE;
 
+    /**
+     * Whether IDL files containing several top-level modules should be split into one compilation unit per module.
+     * Only units whose content has changed are then recompiled. Defaults to false.
+     *
+     * @parameter splitModules;
+     */
+    private Boolean splitModules = Boolean.FALSE;
+
+    /**
+     * Whether the IDL files should be preprocessed by the plugin before they are compiled, so that defines may have
+     * values with any compiler. Defaults to false.
+     *
+     * @parameter preprocess;
+     */
+    private Boolean preprocess = Boolean.FALSE;
+
+    /**
+     * Whether the generated helper classes should be rewritten so that <code>type()</code> only synchronizes until
+     * the type code has been created. Defaults to false.
+     *
+     * @parameter optimizeHelpers;
+     */
+    private Boolean optimizeHelpers = Boolean.FALSE;
+
+    /**
+     * The kinds of generated classes to omit, for certain types, as patterns of the form
+     * <code>kind:typePattern</code>. Omitted classes which other generated classes use are kept.
+     *
+     * @parameter omittedClasses;
+     */
+    private Set<String> omittedClasses;
+
     /**
      * Specifies a single, global packageprefix to use for all modules.
      *
@@ -124,6 +157,98 @@ public class Source {
         return compatible;
     }
 
+    /**
+     * @return a <code>Boolean</code> true if and only if files should be split into per-module compilation units
+     */
+    public Boolean splitModules() {
+        return splitModules;
+    }
+
+    /**
+     * @return a <code>Boolean</code> true if and only if the plugin should preprocess the IDL files itself
+     */
+    public Boolean preprocess() {
+        return preprocess;
+    }
+
+    /**
+     * @return a <code>Boolean</code> true if and only if the generated helper classes should be rewritten
+     */
+    public Boolean optimizeHelpers() {
+        return optimizeHelpers;
+    }
+
+    /**
+     * @return a <code>Set</code> with the patterns of the generated classes to omit
+     */
+    public Set<String> getOmittedClasses() {
+        return omittedClasses;
+    }
+
+    /**
+     * @return a copy of this source without any defines, for compiling files which have already been preprocessed
+     */
+    Source withoutDefines() {
+        Source copy = new Source();
+        copy.compatible = compatible;
+        copy.emitStubs = emitStubs;
+        copy.emitSkeletons = emitSkeletons;
+        copy.splitModules = splitModules;
+        copy.preprocess = preprocess;
+        copy.optimizeHelpers = optimizeHelpers;
+        copy.omittedClasses = omittedClasses;
+        copy.packagePrefix = packagePrefix;
+        copy.includes = includes;
+        copy.excludes = excludes;
+        copy.packagePrefixes = packagePrefixes;
+        copy.packageTranslations = packageTranslations;
+        copy.additionalArguments = additionalArguments;
+        return copy;
+    }
+
+    /**
+     * @return a description of all the options of this source which affect the generated sources, in a form which
+     *         does not depend on the order in which sets were configured
+     */
+    String describe() {
+        StringBuilder description = new StringBuilder();
+        description.append("compatible=").append(compatible);
+        description.append(",emitStubs=").append(emitStubs);
+        description.append(",emitSkeletons=").append(emitSkeletons);
+        description.append(",splitModules=").append(splitModules);
+        description.append(",preprocess=").append(preprocess);
+        description.append(",optimizeHelpers=").append(optimizeHelpers);
+        description.append(",omittedClasses=").append(sorted(omittedClasses));
+        description.append(",packagePrefix=").append(packagePrefix);
+        description.append(",includes=").append(sorted(includes));
+        description.append(",excludes=").append(sorted(excludes));
+        description.append(",packagePrefixes=[");
+        if (packagePrefixes != null) {
+            for (PackagePrefix prefix : packagePrefixes) {
+                description.append(prefix.getType()).append(':').append(prefix.getPrefix()).append(';');
+            }
+        }
+        description.append("],packageTranslations=[");
+        if (packageTranslations != null) {
+            for (PackageTranslation translation : packageTranslations) {
+                description.append(translation.getType()).append(':').append(translation.getReplacementPackage());
+                description.append(';');
+            }
+        }
+        description.append("],defines=[");
+        if (defines != null) {
+            for (Define define : defines) {
+                description.append(define.getSymbol()).append('=').append(define.getValue()).append(';');
+            }
+        }
+        description.append("],additionalArguments=").append(additionalArguments);
+        return description.toString();
+    }
+
+    private static Set<String> sorted(Set<String> set) {
+        return set == null ? null : new TreeSet<>(set);
+    }
+
     /**
      * @return a <code>Set</code> with all the exclusions pattern
      */
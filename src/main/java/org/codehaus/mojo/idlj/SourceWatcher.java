@@ -0,0 +1,163 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.Log;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches directory trees for changed files. Editors typically save a file as a burst of events, and a checkout may
+ * touch many files at once, so changes are collected until the trees have been quiet for a while.
+ */
+class SourceWatcher implements Closeable {
+    private final WatchService watchService;
+    private final Log log;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    /**
+     * Creates a watcher for the specified directory trees. Directories which do not exist are ignored.
+     *
+     * @param roots the roots of the trees to watch
+     * @param log   the log for diagnostic messages
+     * @throws IOException if the directories cannot be registered
+     */
+    SourceWatcher(List<File> roots, Log log) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.log = log;
+        for (File root : roots) {
+            if (root.isDirectory()) {
+                registerTree(root.toPath(), null);
+            }
+        }
+    }
+
+    /**
+     * Waits for files to change, then collects further changes until none is reported for the specified period.
+     *
+     * @param quietMillis the period without changes which ends a burst, in milliseconds
+     * @return the files which were created, modified or deleted
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    Set<File> awaitChanges(long quietMillis) throws InterruptedException {
+        Set<File> changedFiles = new LinkedHashSet<>();
+        WatchKey key = watchService.take();
+        while (key != null) {
+            collectChanges(key, changedFiles);
+            key = watchService.poll(quietMillis, TimeUnit.MILLISECONDS);
+        }
+        return changedFiles;
+    }
+
+    private void collectChanges(WatchKey key, Set<File> changedFiles) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                log.debug("Lost file system events; treating all watched files as changed");
+                addAllFiles(changedFiles);
+            } else if (directory != null) {
+                Path path = directory.resolve((Path) event.context());
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                    registerNewTree(path, changedFiles);
+                } else {
+                    changedFiles.add(path.toFile());
+                }
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private void registerNewTree(Path directory, Set<File> changedFiles) {
+        try {
+            registerTree(directory, changedFiles);
+        } catch (IOException e) {
+            log.warn("Unable to watch " + directory + ": " + e);
+        }
+    }
+
+    private void addAllFiles(Set<File> changedFiles) {
+        for (Path directory : directories.values()) {
+            File[] files = directory.toFile().listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.isFile()) {
+                        changedFiles.add(file);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers a directory and its subdirectories. Files found in a newly created tree are reported as changed,
+     * since they may have been written before the watch was in place.
+     */
+    private void registerTree(Path root, final Set<File> changedFiles) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                directories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (changedFiles != null) {
+                    changedFiles.add(file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Stops watching.
+     *
+     * @throws IOException if the underlying watch service cannot be closed
+     */
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
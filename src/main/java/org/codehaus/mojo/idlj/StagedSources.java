@@ -0,0 +1,97 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The files which the plugin writes below its timestamp directory for the compilers to read in place of the IDL files
+ * they were derived from, such as preprocessed files and per-module units. Diagnostics which the compilers report
+ * against such a file are attributed to the corresponding line of the original file.
+ */
+class StagedSources {
+    private final Map<File, Origin> origins = new HashMap<>();
+
+    /**
+     * Records a staged file whose lines are those of its original.
+     *
+     * @param stagedFile   the file written by the plugin
+     * @param originalFile the file it was derived from
+     */
+    void add(File stagedFile, File originalFile) {
+        add(stagedFile, 1, originalFile, 1);
+    }
+
+    /**
+     * Records a staged file which holds the lines of its original from the specified line on. The lines which the
+     * plugin wrote before them are attributed to that line of the original.
+     *
+     * @param stagedFile   the file written by the plugin
+     * @param stagedLine   the line of the staged file at which the copied lines start
+     * @param originalFile the file it was derived from
+     * @param originalLine the line of the original file from which the lines were copied
+     */
+    void add(File stagedFile, int stagedLine, File originalFile, int originalLine) {
+        origins.put(IncludeGraph.normalize(stagedFile), new Origin(originalFile, stagedLine, originalLine));
+    }
+
+    /**
+     * Forgets all staged files.
+     */
+    void clear() {
+        origins.clear();
+    }
+
+    /**
+     * @param file a file named in a diagnostic
+     * @return the original of the file, or the file itself if it was not staged
+     */
+    File getOriginalFile(File file) {
+        Origin origin = origins.get(IncludeGraph.normalize(file));
+        return origin == null ? file : origin.file.getAbsoluteFile();
+    }
+
+    /**
+     * @param file a file named in a diagnostic
+     * @param line a line of the file
+     * @return the corresponding line of the original of the file, or the line itself if the file was not staged
+     */
+    int getOriginalLine(File file, int line) {
+        Origin origin = origins.get(IncludeGraph.normalize(file));
+        return origin == null ? line : origin.line + Math.max(0, line - origin.stagedLine);
+    }
+
+    /**
+     * The file and the line from which the lines of a staged file were copied.
+     */
+    private static class Origin {
+        private final File file;
+        private final int stagedLine;
+        private final int line;
+
+        Origin(File file, int stagedLine, int line) {
+            this.file = file;
+            this.stagedLine = stagedLine;
+            this.line = line;
+        }
+    }
+}
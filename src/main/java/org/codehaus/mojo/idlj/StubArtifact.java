@@ -0,0 +1,210 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * A jar holding sources generated from IDL, and optionally their classes, together with a descriptor giving the
+ * fingerprint of the compilation which generated them. Builds whose own compilation has the same fingerprint use the
+ * published sources rather than running a compiler.
+ */
+class StubArtifact {
+    /**
+     * The name of the descriptor within the jar.
+     */
+    static final String DESCRIPTOR = "META-INF/idlj-stubs.properties";
+
+    /**
+     * The directory, within the jar, holding the generated sources. Classes, if any, are at the root, so that the jar
+     * may also be used as a dependency.
+     */
+    static final String SOURCES_DIRECTORY = "idlj-sources/";
+
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String CONTAINS_CLASSES = "containsClasses";
+    private static final String JAVA_SUFFIX = ".java";
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final String fingerprint;
+    private final boolean containsClasses;
+    private final Map<String, byte[]> sources;
+
+    private StubArtifact(String fingerprint, boolean containsClasses, Map<String, byte[]> sources) {
+        this.fingerprint = fingerprint;
+        this.containsClasses = containsClasses;
+        this.sources = sources;
+    }
+
+    /**
+     * Writes a stub jar. Its entries, starting with a manifest, all carry the given time, and the descriptor holds no
+     * date, so that the same sources always give the same jar.
+     *
+     * @param dependencies     the facade used to access the file system
+     * @param jarFile          the jar to write
+     * @param fingerprint      the fingerprint of the compilation which generated the sources
+     * @param sourcesDirectory the directory holding the generated sources
+     * @param classesDirectory the directory holding their classes, or null to publish only the sources
+     * @param entryTime        the time of the entries, in milliseconds since the epoch
+     * @throws IOException if the files cannot be read or the jar cannot be written
+     */
+    static void write(
+            DependenciesFacade dependencies,
+            File jarFile,
+            String fingerprint,
+            File sourcesDirectory,
+            File classesDirectory,
+            long entryTime)
+            throws IOException {
+        Properties descriptor = new Properties();
+        descriptor.setProperty(FINGERPRINT, fingerprint);
+        descriptor.setProperty(CONTAINS_CLASSES, Boolean.toString(classesDirectory != null));
+        StringWriter storedDescriptor = new StringWriter();
+        descriptor.store(storedDescriptor, null);
+        StringBuilder descriptorText = new StringBuilder("#Sources generated from IDL\n");
+        for (String line : storedDescriptor.toString().split("\\R")) {
+            if (!line.startsWith("#")) {
+                descriptorText.append(line).append('\n');
+            }
+        }
+
+        Map<String, File> entries = new TreeMap<>();
+        addFiles(dependencies, entries, sourcesDirectory, JAVA_SUFFIX, SOURCES_DIRECTORY);
+        if (classesDirectory != null) {
+            addFiles(dependencies, entries, classesDirectory, CLASS_SUFFIX, "");
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JarOutputStream jar = new JarOutputStream(bytes)) {
+            ReproducibleJar.writeManifest(jar, entryTime);
+            jar.putNextEntry(ReproducibleJar.newEntry(DESCRIPTOR, entryTime));
+            jar.write(descriptorText.toString().getBytes(StandardCharsets.ISO_8859_1));
+            jar.closeEntry();
+            for (Map.Entry<String, File> entry : entries.entrySet()) {
+                jar.putNextEntry(ReproducibleJar.newEntry(entry.getKey(), entryTime));
+                jar.write(dependencies.readBytes(entry.getValue()));
+                jar.closeEntry();
+            }
+        }
+        dependencies.writeBytes(jarFile, bytes.toByteArray());
+    }
+
+    private static void addFiles(
+            DependenciesFacade dependencies, Map<String, File> entries, File directory, String suffix, String prefix)
+            throws IOException {
+        for (File file : dependencies.listFiles(directory)) {
+            String path = AbstractIDLJMojo.getRelativePath(directory, file);
+            if (path.endsWith(suffix)) {
+                entries.put(prefix + path, file);
+            }
+        }
+    }
+
+    /**
+     * Reads a stub jar.
+     *
+     * @param dependencies the facade used to access the file system
+     * @param artifactFile the jar
+     * @return the stub artifact, or null if the file is not a jar with a stub descriptor
+     * @throws IOException if the file cannot be read
+     */
+    static StubArtifact read(DependenciesFacade dependencies, File artifactFile) throws IOException {
+        if (dependencies.isDirectory(artifactFile)) {
+            return null;
+        }
+
+        Properties descriptor = null;
+        Map<String, byte[]> sources = new TreeMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(dependencies.readBytes(artifactFile)))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                String name = entry.getName();
+                if (name.equals(DESCRIPTOR)) {
+                    descriptor = new Properties();
+                    descriptor.load(new StringReader(new String(readEntry(zip), StandardCharsets.ISO_8859_1)));
+                } else if (name.startsWith(SOURCES_DIRECTORY) && name.endsWith(JAVA_SUFFIX) && !name.contains("..")) {
+                    sources.put(name.substring(SOURCES_DIRECTORY.length()), readEntry(zip));
+                }
+            }
+        }
+        if (descriptor == null || descriptor.getProperty(FINGERPRINT) == null) {
+            return null;
+        }
+        return new StubArtifact(
+                descriptor.getProperty(FINGERPRINT),
+                Boolean.parseBoolean(descriptor.getProperty(CONTAINS_CLASSES)),
+                sources);
+    }
+
+    private static byte[] readEntry(ZipInputStream zip) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int count = zip.read(buffer); count >= 0; count = zip.read(buffer)) {
+            bytes.write(buffer, 0, count);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the fingerprint of the compilation which generated the sources
+     */
+    String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return true if the jar also holds the compiled classes, and may therefore be used as a dependency
+     */
+    boolean containsClasses() {
+        return containsClasses;
+    }
+
+    /**
+     * Writes the published sources into a directory, leaving those already present with the same content untouched.
+     *
+     * @param dependencies    the facade used to access the file system
+     * @param outputDirectory the directory to write to
+     * @return the number of sources written
+     * @throws IOException if a source cannot be written
+     */
+    int extractSources(DependenciesFacade dependencies, File outputDirectory) throws IOException {
+        int numWritten = 0;
+        for (Map.Entry<String, byte[]> entry : sources.entrySet()) {
+            File file = new File(outputDirectory, entry.getKey());
+            if (!dependencies.exists(file) || !Arrays.equals(dependencies.readBytes(file), entry.getValue())) {
+                dependencies.writeBytes(file, entry.getValue());
+                numWritten++;
+            }
+        }
+        return numWritten;
+    }
+}
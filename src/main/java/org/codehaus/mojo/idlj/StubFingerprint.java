@@ -0,0 +1,80 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Identifies the inputs of an IDL compilation: the IDL files compiled, the files they include and the options which
+ * affect the generated sources. Two builds with the same fingerprint generate the same sources, so that sources
+ * published by one can be used by the other.
+ */
+class StubFingerprint {
+    private static final String FILE_PREFIX = "file:";
+
+    private final Map<String, String> entries = new TreeMap<>();
+
+    /**
+     * Adds an option to the fingerprint.
+     *
+     * @param name  the name of the option
+     * @param value its value, which may be null
+     */
+    void addOption(String name, Object value) {
+        entries.put("option:" + name, String.valueOf(value));
+    }
+
+    /**
+     * Adds an IDL file to the fingerprint.
+     *
+     * @param path the path of the file, relative to the directory in which it was found
+     * @param hash the {@link ContentHash} of the content of the file
+     */
+    void addFileHash(String path, String hash) {
+        entries.put(FILE_PREFIX + path, hash);
+    }
+
+    /**
+     * @return the paths of the IDL files in the fingerprint, in order
+     */
+    List<String> getFiles() {
+        List<String> files = new ArrayList<>();
+        for (String key : entries.keySet()) {
+            if (key.startsWith(FILE_PREFIX)) {
+                files.add(key.substring(FILE_PREFIX.length()));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @return the fingerprint, which does not depend on the order in which its entries were added
+     */
+    String getValue() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            text.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        return ContentHash.of(text.toString());
+    }
+}
@@ -0,0 +1,110 @@
+package org.codehaus.mojo.idlj;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Compiles the stale IDL files like the <code>generate</code> goal, then keeps running, recompiling IDL files as soon
+ * as they, or the files they include, are saved. The compiler is loaded once and reused for every change.
+ */
+@Mojo(name = "watch")
+public class WatchMojo extends IDLJMojo {
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * The time in milliseconds without further file system events after which a burst of changes is compiled.
+     */
+    @Parameter(property = "watchQuietMs", defaultValue = "50")
+    private int quietMillis;
+
+    /**
+     * The translator, which is kept between compilations so that the compiler remains loaded.
+     */
+    private CompilerTranslator translator;
+
+    /**
+     * Constructs a watching IDL translation Mojo.
+     */
+    public WatchMojo() {}
+
+    WatchMojo(DependenciesFacade dependenciesFacade) {
+        super(dependenciesFacade);
+    }
+
+    /**
+     * Compiles the stale IDL files, then recompiles changed files until the build is interrupted.
+     *
+     * @throws MojoExecutionException if the initial compilation fails or the directories cannot be watched
+     */
+    public void execute() throws MojoExecutionException {
+        translate(getTranslator());
+
+        List<File> directories = getIdlDirectories();
+        try (SourceWatcher watcher = new SourceWatcher(directories, getLog())) {
+            getLog().info("Watching " + directories + " for changes; press Ctrl-C to stop");
+            while (true) {
+                recompileChanges(watcher.awaitChanges(quietMillis));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to watch " + directories, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Recompiles the IDL files affected by a set of changes. Compilation errors are logged rather than thrown, so that
+     * the watch continues and the files are compiled again once they are fixed.
+     *
+     * @param changedFiles the files which have changed
+     * @return the files which were compiled
+     */
+    List<File> recompileChanges(Set<File> changedFiles) {
+        long startTime = System.nanoTime();
+        try {
+            List<File> compiledFiles = translateAffectedFiles(getTranslator(), changedFiles);
+            if (!compiledFiles.isEmpty()) {
+                getLog().info("Recompiled " + compiledFiles.size() + " grammar files in "
+                        + (System.nanoTime() - startTime) / NANOS_PER_MILLI + " ms");
+            }
+            return compiledFiles;
+        } catch (MojoExecutionException e) {
+            getLog().error(e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    private CompilerTranslator getTranslator() throws MojoExecutionException {
+        if (translator == null) {
+            translator = createTranslator();
+        }
+        return translator;
+    }
+}
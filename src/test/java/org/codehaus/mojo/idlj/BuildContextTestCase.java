@@ -0,0 +1,141 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.startsWith;
+
+/**
+ * Tests for the integration with incremental IDE builds.
+ */
+public class BuildContextTestCase extends IDLJTestBase {
+
+    @Test
+    public void whenIncrementalBuildHasNoChanges_compileNothing() throws Exception {
+        defineIncrementalBuild();
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), empty());
+    }
+
+    @Test
+    public void whenIncrementalBuildHasChanges_compileChangedFilesAndTheirIncluders() throws Exception {
+        removeDefaultIdlFile();
+        defineFileContents(new File("src/main/idl/types.idl"), "module types {};");
+        defineFileContents(new File("src/main/idl/user.idl"), "#include \"types.idl\"\nmodule user {};");
+        defineFileContents(new File("src/main/idl/other.idl"), "module other {};");
+        defineIncrementalBuild("src/main/idl/types.idl");
+
+        mojo.execute();
+
+        assertThat(
+                getCompiledFiles(),
+                containsInAnyOrder(
+                        getCurrentDir() + "/src/main/idl/types.idl", getCurrentDir() + "/src/main/idl/user.idl"));
+    }
+
+    @Test
+    public void whenSourcesGenerated_refreshOnlyWrittenFiles() throws Exception {
+        defineFileContents(new File("target/main/generatedSources/idl/old/Unchanged.java"), "class Unchanged {}");
+        defineGeneratedSource("target/main/generatedSources/idl/hello/Hello.java", "interface Hello {}");
+
+        mojo.execute();
+
+        assertThat(
+                getRefreshedFiles(),
+                contains(new File("target/main/generatedSources/idl/hello/Hello.java").getAbsoluteFile()));
+    }
+
+    @Test
+    public void whenNothingCompiled_refreshNothing() throws Exception {
+        removeDefaultIdlFile();
+        defineGeneratedSource("target/main/generatedSources/idl/hello/Hello.java", "interface Hello {}");
+
+        mojo.execute();
+
+        assertThat(getRefreshedFiles(), empty());
+    }
+
+    @Test
+    public void whenCompilerReportsErrors_attachThemToTheirLines() throws Exception {
+        TestIdlCompiler.defineErrorMessage("src/main/idl/dummy.idl (line 3): Expected `;'.\n"
+                + "src/main/idl/dummy.idl (line 7): WARNING: Identifier collides");
+        try {
+            mojo.execute();
+        } finally {
+            TestIdlCompiler.defineErrorMessage(null);
+        }
+
+        assertThat(
+                getBuildMessages(),
+                contains(
+                        getCurrentDir() + "/src/main/idl/dummy.idl:3:error:Expected `;'.",
+                        getCurrentDir() + "/src/main/idl/dummy.idl:7:warning:WARNING: Identifier collides"));
+    }
+
+    @Test
+    public void whenPreprocessedFileHasErrors_attachThemToOriginalFile() throws Exception {
+        removeDefaultIdlFile();
+        setPreprocess(createSource(), true);
+        defineStaleIdlFile("src/main/idl/bank.idl", "module Bank {\n  interface Account\n};\n");
+        TestIdlCompiler.defineErrorMessage(
+                "target/main/timeStamps/idlj-preprocessed/sources/bank.idl (line 2): Expected `{'.");
+        try {
+            mojo.execute();
+        } finally {
+            TestIdlCompiler.defineErrorMessage(null);
+        }
+
+        assertThat(getBuildMessages(), contains(getCurrentDir() + "/src/main/idl/bank.idl:2:error:Expected `{'."));
+    }
+
+    @Test
+    public void whenModuleUnitHasErrors_attachThemToOriginalLine() throws Exception {
+        removeDefaultIdlFile();
+        setSplitModules(createSource(), true);
+        defineStaleIdlFile(
+                "src/main/idl/vendor.idl",
+                "#pragma prefix \"acme.com\"\n"
+                        + "// the base types\n"
+                        + "module Base {\n"
+                        + "  typedef long Id;\n"
+                        + "};\n"
+                        + "\n"
+                        + "// the services\n"
+                        + "module Services {\n"
+                        + "  interface Lookup { Base::Id find(in string name) };\n"
+                        + "};\n");
+        TestIdlCompiler.defineErrorMessage(
+                "target/main/timeStamps/idlj-modules/vendor/002-Services.idl (line 6): Expected `;'.");
+        try {
+            mojo.execute();
+        } finally {
+            TestIdlCompiler.defineErrorMessage(null);
+        }
+
+        assertThat(getBuildMessages(), hasItem(getCurrentDir() + "/src/main/idl/vendor.idl:9:error:Expected `;'."));
+        assertThat(getBuildMessages(), everyItem(startsWith(getCurrentDir() + "/src/main/idl/vendor.idl:")));
+    }
+
+    @Test
+    public void whenFileRecompiled_removeItsPreviousMessages() throws Exception {
+        TestIdlCompiler.defineErrorMessage("src/main/idl/dummy.idl (line 3): Expected `;'.");
+        try {
+            mojo.execute();
+        } finally {
+            TestIdlCompiler.defineErrorMessage(null);
+        }
+
+        mojo.execute();
+
+        assertThat(getBuildMessages(), empty());
+    }
+}
@@ -0,0 +1,176 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.codehaus.plexus.compiler.util.scan.SourceInclusionScanner;
+import org.codehaus.plexus.compiler.util.scan.mapping.SuffixMapping;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests for the file system facade, run against a file system held in memory.
+ */
+public class DependenciesFacadeImplTestCase extends IDLJTestBase {
+
+    private Path archive;
+    private FileSystem fileSystem;
+    private DependenciesFacadeImpl facade;
+
+    @Before
+    public void setUpFileSystem() throws Exception {
+        archive = Files.createTempFile("idlj-memory", ".zip");
+        Files.delete(archive);
+        fileSystem = FileSystems.newFileSystem(
+                URI.create("jar:" + archive.toUri()), Collections.singletonMap("create", "true"));
+        facade = new DependenciesFacadeImpl(fileSystem);
+    }
+
+    @After
+    public void tearDownFileSystem() throws Exception {
+        fileSystem.close();
+        Files.deleteIfExists(archive);
+    }
+
+    @Test
+    public void whenFileWritten_createParentsAndReadItBack() throws Exception {
+        facade.writeFile(new File("/out/Demo/Server.java"), "package Demo;");
+
+        assertThat(facade.readFile(new File("/out/Demo/Server.java")), equalTo("package Demo;"));
+        assertThat(facade.isDirectory(new File("/out/Demo")), equalTo(true));
+    }
+
+    @Test
+    public void whenFileOverwritten_leaveNoTemporaryFiles() throws Exception {
+        facade.writeFile(new File("/out/a.java"), "first");
+        facade.writeFile(new File("/out/a.java"), "second");
+
+        assertThat(facade.readFile(new File("/out/a.java")), equalTo("second"));
+        try (Stream<Path> entries = Files.list(fileSystem.getPath("/out"))) {
+            assertThat(entries.count(), equalTo(1L));
+        }
+    }
+
+    @Test
+    public void whenDirectoryListed_returnNestedFilesWithModificationTimes() throws Exception {
+        facade.writeFile(new File("/out/a.java"), "a");
+        facade.writeFile(new File("/out/m/b.java"), "b");
+        facade.setLastModified(new File("/out/m/b.java"), 123000L);
+
+        Map<File, Long> times = facade.getModificationTimes(new File("/out"));
+
+        assertThat(times.keySet(), containsInAnyOrder(new File("/out/a.java"), new File("/out/m/b.java")));
+        assertThat(times.get(new File("/out/m/b.java")), equalTo(123000L));
+    }
+
+    @Test
+    public void whenDirectoryMissing_listNothing() throws Exception {
+        assertThat(facade.listFiles(new File("/absent")).isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void whenFileCopied_targetHasSameContent() throws Exception {
+        facade.writeBytes(new File("/src/a.idl"), new byte[] {1, 2, 3});
+
+        facade.copyFile(new File("/src/a.idl"), new File("/timestamps/a.idl"));
+
+        assertArrayEquals(new byte[] {1, 2, 3}, facade.readBytes(new File("/timestamps/a.idl")));
+    }
+
+    @Test
+    public void whenFileCopied_targetKeepsModificationTime() throws Exception {
+        facade.writeBytes(new File("/src/a.idl"), new byte[] {1, 2, 3});
+        facade.setLastModified(new File("/src/a.idl"), 123000L);
+
+        facade.copyFile(new File("/src/a.idl"), new File("/timestamps/a.idl"));
+
+        assertThat(facade.lastModified(new File("/timestamps/a.idl")), equalTo(123000L));
+    }
+
+    @Test
+    public void whenSymbolicLinkLeadsToParent_listEachFileOnce() throws Exception {
+        Path root = Files.createTempDirectory("idlj-links");
+        try {
+            Path file = Files.write(Files.createDirectories(root.resolve("m")).resolve("a.java"), new byte[0]);
+            boolean linked;
+            try {
+                Files.createSymbolicLink(root.resolve("m/loop"), root);
+                linked = true;
+            } catch (UnsupportedOperationException | IOException e) {
+                linked = false;
+            }
+            assumeTrue(linked);
+
+            Map<File, Long> times = new DependenciesFacadeImpl().getModificationTimes(root.toFile());
+
+            assertThat(times.keySet(), contains(file.toFile()));
+        } finally {
+            Files.deleteIfExists(root.resolve("m/loop"));
+            Files.deleteIfExists(root.resolve("m/a.java"));
+            Files.deleteIfExists(root.resolve("m"));
+            Files.delete(root);
+        }
+    }
+
+    @Test
+    public void whenFileDeleted_itNoLongerExists() throws Exception {
+        facade.writeFile(new File("/out/a.java"), "a");
+
+        facade.deleteFile(new File("/out/a.java"));
+
+        assertThat(facade.exists(new File("/out/a.java")), equalTo(false));
+        assertThat(facade.lastModified(new File("/out/a.java")), equalTo(0L));
+    }
+
+    @Test
+    public void whenScanningInMemory_selectSourcesNewerThanTheirTimestampCopies() throws Exception {
+        facade.writeFile(new File("/src/a.idl"), "module a {};");
+        facade.writeFile(new File("/src/b.idl"), "module b {};");
+        facade.writeFile(new File("/src/c.idl"), "module c {};");
+        facade.writeFile(new File("/src/CVS/d.idl"), "module d {};");
+        facade.writeFile(new File("/timestamps/a.idl"), "module a {};");
+        facade.writeFile(new File("/timestamps/b.idl"), "module b {};");
+        facade.setLastModified(new File("/src/a.idl"), 2000L);
+        facade.setLastModified(new File("/timestamps/a.idl"), 1000L);
+        facade.setLastModified(new File("/src/b.idl"), 2000L);
+        facade.setLastModified(new File("/timestamps/b.idl"), 2000L);
+
+        SourceInclusionScanner scanner = facade.createSourceInclusionScanner(
+                0, Collections.singleton("**/*.idl"), Collections.<String>emptySet());
+        scanner.addSourceMapping(new SuffixMapping(".idl", ".idl"));
+        Set<File> staleSources = scanner.getIncludedSources(new File("/src"), new File("/timestamps"));
+
+        assertThat(staleSources, containsInAnyOrder(new File("/src/a.idl"), new File("/src/c.idl")));
+    }
+
+    @Test
+    public void whenPatternExcludesFile_scannerSkipsIt() throws Exception {
+        facade.writeFile(new File("/src/a.idl"), "module a {};");
+        facade.writeFile(new File("/src/internal/b.idl"), "module b {};");
+
+        SourceInclusionScanner scanner = facade.createSourceInclusionScanner(
+                0, Collections.singleton("**/*.idl"), Collections.singleton("internal/"));
+        scanner.addSourceMapping(new SuffixMapping(".idl", ".idl"));
+
+        assertThat(
+                scanner.getIncludedSources(new File("/src"), new File("/timestamps")),
+                contains(new File("/src/a.idl")));
+    }
+}
@@ -0,0 +1,115 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.codehaus.mojo.idlj.ExecutionStrategy.FORKED;
+import static org.codehaus.mojo.idlj.ExecutionStrategy.IN_PROCESS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Tests for choosing how to run the compiler from the recorded execution history.
+ */
+public class ExecutionStrategyTestCase extends IDLJTestBase {
+
+    private static final File HISTORY_FILE = new File("target/main/timeStamps", ExecutionHistory.HISTORY_FILE_NAME);
+    private static final List<ExecutionStrategy> BOTH = Arrays.asList(IN_PROCESS, FORKED);
+
+    private ExecutionHistory history;
+
+    @Before
+    public void setUpHistory() {
+        history = new ExecutionHistory(getDependencies(), new File("target/main/timeStamps"), new SystemStreamLog());
+    }
+
+    @Test
+    public void byDefault_recordNoHistory() throws Exception {
+        mojo.execute();
+
+        assertThat(getDependencies().exists(HISTORY_FILE), equalTo(false));
+    }
+
+    @Test
+    public void whenAutoSelected_recordDurationOfStrategyUsed() throws Exception {
+        defineExecutionStrategy("auto");
+
+        mojo.execute();
+
+        assertThat(getFileContents(HISTORY_FILE), containsString("in-process.0="));
+        assertThat(getFileContents(HISTORY_FILE), not(containsString("forked")));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void whenCompilerCannotFork_rejectForkedStrategy() throws Exception {
+        defineExecutionStrategy("forked");
+
+        mojo.execute();
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void whenStrategyUnknown_throwException() throws Exception {
+        defineExecutionStrategy("pooled");
+
+        mojo.execute();
+    }
+
+    @Test
+    public void whenStrategyNeverMeasured_tryIt() {
+        history.record(IN_PROCESS, 2, 100);
+
+        assertThat(history.choose(BOTH, 2), equalTo(FORKED));
+    }
+
+    @Test
+    public void whenBothMeasured_chooseFastestForSizeOfStaleSet() {
+        history.record(IN_PROCESS, 2, 20);
+        history.record(FORKED, 2, 1000);
+        history.record(IN_PROCESS, 2000, 200000);
+        history.record(FORKED, 2000, 50000);
+
+        assertThat(history.choose(BOTH, 3), equalTo(IN_PROCESS));
+        assertThat(history.choose(BOTH, 2500), equalTo(FORKED));
+    }
+
+    @Test
+    public void whenSizeClassNotMeasured_useNearestMeasuredClass() {
+        history.record(IN_PROCESS, 1000, 100000);
+        history.record(FORKED, 1000, 20000);
+
+        assertThat(history.choose(BOTH, 100), equalTo(FORKED));
+    }
+
+    @Test
+    public void afterProbeIntervalRuns_measureLeastRecentlyUsedStrategy() {
+        history.record(FORKED, 2, 1000);
+        for (int i = 1; i < ExecutionHistory.PROBE_INTERVAL; i++) {
+            history.record(IN_PROCESS, 2, 20);
+        }
+
+        assertThat(history.choose(BOTH, 2), equalTo(FORKED));
+        history.record(FORKED, 2, 1000);
+        assertThat(history.choose(BOTH, 2), equalTo(IN_PROCESS));
+    }
+
+    @Test
+    public void whenHistorySaved_reloadIt() throws Exception {
+        history.record(IN_PROCESS, 4, 400);
+        history.record(FORKED, 4, 40);
+        history.save();
+
+        ExecutionHistory reloaded =
+                new ExecutionHistory(getDependencies(), new File("target/main/timeStamps"), new SystemStreamLog());
+        reloaded.load();
+
+        assertThat(reloaded.choose(BOTH, 4), equalTo(FORKED));
+    }
+}
@@ -0,0 +1,231 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for compiling the generated sources in process.
+ */
+public class GeneratedSourceCompilerTestCase extends IDLJTestBase {
+
+    private static final String GENERATED = "target/main/generatedSources/idl/";
+    private static final String CLASSES = "target/main/idlClasses/";
+    private static final File JAR = new File("target/main/demo-idl.jar");
+
+    private final RecordingProjectHelper projectHelper = new RecordingProjectHelper();
+
+    @Before
+    public void setUpSources() {
+        defineGeneratedSource(
+                GENERATED + "Demo/Server.java", "package Demo; public interface Server { Other.Thing get(); }");
+        defineGeneratedSource(GENERATED + "Other/Thing.java", "package Other; public class Thing {}");
+        defineGeneratedSource(GENERATED + "Solo/Alone.java", "package Solo; public class Alone {}");
+    }
+
+    @Test
+    public void byDefault_doNotCompileGeneratedSources() throws Exception {
+        mojo.execute();
+
+        assertFalse(isCompiled("Demo/Server"));
+        assertThat(projectHelper.getAttachedClassifiers(), not(contains("idl")));
+    }
+
+    @Test
+    public void whenCompileEnabled_compileGeneratedSources() throws Exception {
+        enableCompilation();
+        mojo.execute();
+
+        assertTrue(isCompiled("Demo/Server"));
+        assertTrue(isCompiled("Other/Thing"));
+        assertTrue(isCompiled("Solo/Alone"));
+    }
+
+    @Test
+    public void whenCompileEnabled_attachJarOfClasses() throws Exception {
+        enableCompilation();
+        mojo.execute();
+
+        assertTrue(getDependencies().exists(JAR));
+        assertThat(getFileContents(JAR), containsString("Demo/Server.class"));
+        assertThat(projectHelper.getAttachedClassifiers(), contains("idl"));
+    }
+
+    @Test
+    public void whenSourcesUnchanged_doNotRecompile() throws Exception {
+        enableCompilation();
+        mojo.execute();
+        long firstCompiled = getDependencies().lastModified(new File(CLASSES + "Demo/Server.class"));
+
+        mojo.execute();
+
+        assertThat(getDependencies().lastModified(new File(CLASSES + "Demo/Server.class")), equalTo(firstCompiled));
+    }
+
+    @Test
+    public void byDefault_doNotResolveProjectDependencies() throws Exception {
+        defineProjectDependency("api", "compile", new File("target/api.jar"));
+        mojo.execute();
+
+        assertThat(getResolvedClasspath(), nullValue());
+    }
+
+    @Test
+    public void whenCompileEnabled_resolveCompileClasspath() throws Exception {
+        enableCompilation();
+        defineProjectDependency("api", "compile", new File("target/api.jar"));
+        defineProjectDependency("servlet", "provided", new File("target/servlet.jar"));
+        defineProjectDependency("junit", "test", new File("target/junit.jar"));
+        mojo.execute();
+
+        assertThat(getResolvedClasspath(), contains(new File("target/api.jar"), new File("target/servlet.jar")));
+    }
+
+    @Test
+    public void whenOnePackageChanged_recompileOnlyItsGroup() throws Exception {
+        enableCompilation();
+        mojo.execute();
+        long serverCompiled = getDependencies().lastModified(new File(CLASSES + "Demo/Server.class"));
+        long aloneCompiled = getDependencies().lastModified(new File(CLASSES + "Solo/Alone.class"));
+
+        defineGeneratedSource(GENERATED + "Solo/Alone.java", "package Solo; public class Alone { int count; }");
+        mojo.execute();
+
+        assertThat(getDependencies().lastModified(new File(CLASSES + "Demo/Server.class")), equalTo(serverCompiled));
+        assertThat(getDependencies().lastModified(new File(CLASSES + "Solo/Alone.class")), not(equalTo(aloneCompiled)));
+    }
+
+    @Test
+    public void whenCompileEnabled_writeManifestFirst() throws Exception {
+        enableCompilation();
+        mojo.execute();
+
+        assertThat(getJarEntries().keySet().iterator().next(), equalTo("META-INF/MANIFEST.MF"));
+    }
+
+    @Test
+    public void whenOutputTimestampSet_giveJarEntriesItsTime() throws Exception {
+        enableCompilation();
+        defineOutputTimestamp("1700000000");
+        mojo.execute();
+
+        LocalDateTime expected = LocalDateTime.ofEpochSecond(1700000000L, 0, ZoneOffset.UTC);
+        for (LocalDateTime entryTime : getJarEntries().values()) {
+            assertThat(entryTime, equalTo(expected));
+        }
+    }
+
+    @Test
+    public void whenOutputTimestampIsIsoDate_giveJarEntriesItsTime() throws Exception {
+        enableCompilation();
+        defineOutputTimestamp("2023-11-14T23:13:20+01:00");
+        mojo.execute();
+
+        LocalDateTime expected = LocalDateTime.ofEpochSecond(1700000000L, 0, ZoneOffset.UTC);
+        for (LocalDateTime entryTime : getJarEntries().values()) {
+            assertThat(entryTime, equalTo(expected));
+        }
+    }
+
+    @Test
+    public void whenJarWrittenInOtherTimeZone_writeSameBytes() throws Exception {
+        enableCompilation();
+        TimeZone defaultZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+            mojo.execute();
+            String firstJar = getFileContents(JAR);
+
+            getDependencies().deleteFile(JAR);
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+            mojo.execute();
+
+            assertThat(getFileContents(JAR), equalTo(firstJar));
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void whenOutputTimestampInvalid_throwException() throws Exception {
+        enableCompilation();
+        defineOutputTimestamp("yesterday");
+
+        mojo.execute();
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void whenGeneratedSourcesDoNotCompile_throwException() throws Exception {
+        enableCompilation();
+        defineGeneratedSource(GENERATED + "Solo/Alone.java", "package Solo; public class Alone { Missing field; }");
+
+        mojo.execute();
+    }
+
+    @Test
+    public void whenPackagesReferToEachOther_groupThem() {
+        Map<String, String> sources = new HashMap<>();
+        sources.put("Demo/Server.java", "package Demo; interface Server { Other . Thing get(); }");
+        sources.put("Other/Thing.java", "package Other; class Thing {}");
+        sources.put("Solo/Alone.java", "package Solo; class Alone {}");
+
+        List<Set<String>> groups = GeneratedSourceCompiler.groupPackages(sources);
+
+        assertThat(groups, containsInAnyOrder(packages("Demo", "Other"), packages("Solo")));
+    }
+
+    private static Set<String> packages(String... names) {
+        return new TreeSet<>(Arrays.asList(names));
+    }
+
+    private void enableCompilation() throws Exception {
+        enableGeneratedSourceCompilation(new File(CLASSES), JAR, projectHelper);
+    }
+
+    /**
+     * Returns the entries of the jar, in order, with the times they record.
+     */
+    private Map<String, LocalDateTime> getJarEntries() throws IOException {
+        Map<String, LocalDateTime> entries = new LinkedHashMap<>();
+        try (ZipInputStream jar = new ZipInputStream(new ByteArrayInputStream(getDependencies().readBytes(JAR)))) {
+            for (ZipEntry entry = jar.getNextEntry(); entry != null; entry = jar.getNextEntry()) {
+                entries.put(
+                        entry.getName(),
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getTime()), ZoneId.systemDefault()));
+            }
+        }
+        return entries;
+    }
+
+    private boolean isCompiled(String className) {
+        return getDependencies().exists(new File(CLASSES + className + ".class"));
+    }
+}
@@ -24,6 +24,7 @@ import org.junit.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
 
 /**
  * Tests for usage of the glassfish IDLJ compiler.
@@ -42,4 +43,17 @@ public class GlassfishIdljTestCase extends IdljCommonTests {
 
         assertThat(getIdlCompilerClass(), equalTo(GLASSFISH_IDLJ_COMPILER_NAME));
     }
+
+    @Test
+    public void whenCompilingSeveralFiles_lookUpCompilerOnce() throws Exception {
+        removeDefaultIdlFile();
+        defineStaleIdlFile("src/main/idl/first.idl", "module First {};");
+        defineStaleIdlFile("src/main/idl/second.idl", "module Second {};");
+        defineStaleIdlFile("src/main/idl/third.idl", "module Third {};");
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), hasSize(3));
+        assertThat(getCompilerLoadCount(), equalTo(1));
+    }
 }
@@ -0,0 +1,272 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests for rewriting the generated helper classes.
+ */
+public class HelperOptimizerTestCase extends IDLJTestBase {
+
+    private static final String HELPER_PATH = "target/main/generatedSources/idl/Demo/ServerHelper.java";
+
+    private static final String INTERFACE_HELPER = "package Demo;\n\n"
+            + "abstract public class ServerHelper\n"
+            + "{\n"
+            + "  private static String  _id = \"IDL:Demo/Server:1.0\";\n\n"
+            + "  private static org.omg.CORBA.TypeCode __typeCode = null;\n"
+            + "  synchronized public static org.omg.CORBA.TypeCode type ()\n"
+            + "  {\n"
+            + "    if (__typeCode == null)\n"
+            + "    {\n"
+            + "      __typeCode = org.omg.CORBA.ORB.init ().create_interface_tc (id (), \"Server\");\n"
+            + "    }\n"
+            + "    return __typeCode;\n"
+            + "  }\n\n"
+            + "  public static String id ()\n"
+            + "  {\n"
+            + "    return _id;\n"
+            + "  }\n"
+            + "}\n";
+
+    private static final String OPTIMIZED_TYPE_METHOD =
+            "  private static volatile org.omg.CORBA.TypeCode __typeCode = null;\n"
+                    + "  public static org.omg.CORBA.TypeCode type ()\n"
+                    + "  {\n"
+                    + "    org.omg.CORBA.TypeCode __cachedTypeCode = __typeCode;\n"
+                    + "    if (__cachedTypeCode != null)\n"
+                    + "    {\n"
+                    + "      return __cachedTypeCode;\n"
+                    + "    }\n"
+                    + "    synchronized (ServerHelper.class)\n"
+                    + "    {\n"
+                    + "      org.omg.CORBA.TypeCode __newTypeCode = __typeCode;\n"
+                    + "      if (__newTypeCode == null)\n"
+                    + "      {\n"
+                    + "        __newTypeCode = org.omg.CORBA.ORB.init ().create_interface_tc (id (), \"Server\");\n"
+                    + "      }\n"
+                    + "      __typeCode = __newTypeCode;\n"
+                    + "      return __newTypeCode;\n"
+                    + "    }\n"
+                    + "  }\n\n"
+                    + "  public static String id ()\n";
+
+    /**
+     * The type code of a typedef of a sequence, as generated by idlj 3.2, which assigns the field three times.
+     */
+    private static final String SEQUENCE_TYPEDEF_HELPER = "package Demo;\n\n"
+            + "abstract public class NamesHelper\n"
+            + "{\n"
+            + "  private static String  _id = \"IDL:Demo/Names:1.0\";\n\n"
+            + "  private static org.omg.CORBA.TypeCode __typeCode = null;\n"
+            + "  synchronized public static org.omg.CORBA.TypeCode type ()\n"
+            + "  {\n"
+            + "    if (__typeCode == null)\n"
+            + "    {\n"
+            + "      __typeCode = org.omg.CORBA.ORB.init ().create_string_tc (0);\n"
+            + "      __typeCode = org.omg.CORBA.ORB.init ().create_sequence_tc (0, __typeCode);\n"
+            + "      __typeCode = org.omg.CORBA.ORB.init ().create_alias_tc (Demo.NamesHelper.id (), \"Names\", "
+            + "__typeCode);\n"
+            + "    }\n"
+            + "    return __typeCode;\n"
+            + "  }\n\n"
+            + "  public static String id ()\n"
+            + "  {\n"
+            + "    return _id;\n"
+            + "  }\n"
+            + "}\n";
+
+    /**
+     * The type code of a typedef of a typedef, as generated by idlj 3.2.
+     */
+    private static final String TYPEDEF_HELPER = "package Demo;\n\n"
+            + "abstract public class NameListHelper\n"
+            + "{\n"
+            + "  private static String  _id = \"IDL:Demo/NameList:1.0\";\n\n"
+            + "  private static org.omg.CORBA.TypeCode __typeCode = null;\n"
+            + "  synchronized public static org.omg.CORBA.TypeCode type ()\n"
+            + "  {\n"
+            + "    if (__typeCode == null)\n"
+            + "    {\n"
+            + "      __typeCode = org.omg.CORBA.ORB.init ().create_string_tc (0);\n"
+            + "      __typeCode = org.omg.CORBA.ORB.init ().create_sequence_tc (0, __typeCode);\n"
+            + "      __typeCode = org.omg.CORBA.ORB.init ().create_alias_tc (Demo.NamesHelper.id (), \"Names\", "
+            + "__typeCode);\n"
+            + "      __typeCode = org.omg.CORBA.ORB.init ().create_alias_tc (Demo.NameListHelper.id (), \"NameList\", "
+            + "__typeCode);\n"
+            + "    }\n"
+            + "    return __typeCode;\n"
+            + "  }\n"
+            + "}\n";
+
+    /**
+     * The type code of a recursive struct, as generated by idlj 3.2, which returns early while it is being built.
+     */
+    private static final String RECURSIVE_STRUCT_HELPER = "package Demo;\n\n"
+            + "abstract public class NodeHelper\n"
+            + "{\n"
+            + "  private static String  _id = \"IDL:Demo/Node:1.0\";\n\n"
+            + "  private static org.omg.CORBA.TypeCode __typeCode = null;\n"
+            + "  private static boolean __active = false;\n"
+            + "  synchronized public static org.omg.CORBA.TypeCode type ()\n"
+            + "  {\n"
+            + "    if (__typeCode == null)\n"
+            + "    {\n"
+            + "      synchronized (org.omg.CORBA.TypeCode.class)\n"
+            + "      {\n"
+            + "        if (__typeCode == null)\n"
+            + "        {\n"
+            + "          if (__active)\n"
+            + "          {\n"
+            + "            return org.omg.CORBA.ORB.init().create_recursive_tc ( _id );\n"
+            + "          }\n"
+            + "          __active = true;\n"
+            + "          org.omg.CORBA.StructMember[] _members0 = new org.omg.CORBA.StructMember [1];\n"
+            + "          org.omg.CORBA.TypeCode _tcOf_members0 = null;\n"
+            + "          _tcOf_members0 = org.omg.CORBA.ORB.init ().create_recursive_tc (\"\");\n"
+            + "          _members0[0] = new org.omg.CORBA.StructMember (\n"
+            + "            \"children\",\n"
+            + "            _tcOf_members0,\n"
+            + "            null);\n"
+            + "          __typeCode = org.omg.CORBA.ORB.init ().create_struct_tc (Demo.NodeHelper.id (), \"Node\", "
+            + "_members0);\n"
+            + "          __active = false;\n"
+            + "        }\n"
+            + "      }\n"
+            + "    }\n"
+            + "    return __typeCode;\n"
+            + "  }\n"
+            + "}\n";
+
+    private Source source;
+
+    @Before
+    public void setUpSource() throws Exception {
+        source = createSource();
+    }
+
+    @Test
+    public void whenHelperOptimized_synchronizeOnlyUntilTypeCodeCreated() {
+        String optimized = HelperOptimizer.optimize(INTERFACE_HELPER, "ServerHelper");
+
+        assertThat(optimized, containsString(OPTIMIZED_TYPE_METHOD));
+    }
+
+    @Test
+    public void whenTypeCodeBuiltInSteps_assignFieldOnlyWithCompleteTypeCode() {
+        String optimized = HelperOptimizer.optimize(SEQUENCE_TYPEDEF_HELPER, "NamesHelper");
+
+        assertThat(
+                optimized,
+                containsString("    synchronized (NamesHelper.class)\n"
+                        + "    {\n"
+                        + "      org.omg.CORBA.TypeCode __newTypeCode = __typeCode;\n"
+                        + "      if (__newTypeCode == null)\n"
+                        + "      {\n"
+                        + "        __newTypeCode = org.omg.CORBA.ORB.init ().create_string_tc (0);\n"
+                        + "        __newTypeCode = org.omg.CORBA.ORB.init ().create_sequence_tc (0, __newTypeCode);\n"
+                        + "        __newTypeCode = org.omg.CORBA.ORB.init ().create_alias_tc (Demo.NamesHelper.id (), "
+                        + "\"Names\", __newTypeCode);\n"
+                        + "      }\n"
+                        + "      __typeCode = __newTypeCode;\n"
+                        + "      return __newTypeCode;\n"
+                        + "    }\n"));
+    }
+
+    @Test
+    public void whenTypedefOptimized_assignFieldOnce() {
+        String optimized = HelperOptimizer.optimize(TYPEDEF_HELPER, "NameListHelper");
+
+        assertThat(count(optimized, "__typeCode = "), equalTo(2));
+        assertThat(optimized, containsString("private static volatile org.omg.CORBA.TypeCode __typeCode = null;"));
+        assertThat(optimized, containsString("      __typeCode = __newTypeCode;\n      return __newTypeCode;\n"));
+    }
+
+    @Test
+    public void whenRecursiveTypeOptimized_doNotAssignFieldWithRecursiveTypeCode() {
+        String optimized = HelperOptimizer.optimize(RECURSIVE_STRUCT_HELPER, "NodeHelper");
+
+        assertThat(count(optimized, "__typeCode = "), equalTo(2));
+        assertThat(optimized, containsString("return org.omg.CORBA.ORB.init().create_recursive_tc ( _id );\n"));
+        assertThat(
+                optimized, containsString("            __newTypeCode = org.omg.CORBA.ORB.init ().create_struct_tc ("));
+    }
+
+    @Test
+    public void whenTypeCodeReturnedWithinExpression_returnNull() {
+        String helper =
+                INTERFACE_HELPER.replace("return __typeCode;", "return __typeCode == null ? null : __typeCode;");
+
+        assertThat(HelperOptimizer.optimize(helper, "ServerHelper"), nullValue());
+    }
+
+    private static int count(String text, String fragment) {
+        return text.split(fragment, -1).length - 1;
+    }
+
+    @Test
+    public void whenHelperOptimized_makeRepositoryIdFinal() {
+        String optimized = HelperOptimizer.optimize(INTERFACE_HELPER, "ServerHelper");
+
+        assertThat(optimized, containsString("private static final String  _id = \"IDL:Demo/Server:1.0\";"));
+    }
+
+    @Test
+    public void whenHelperUsesWindowsLineEndings_keepThem() {
+        String optimized = HelperOptimizer.optimize(INTERFACE_HELPER.replace("\n", "\r\n"), "ServerHelper");
+
+        assertThat(optimized, containsString(OPTIMIZED_TYPE_METHOD.replace("\n", "\r\n")));
+    }
+
+    @Test
+    public void whenHelperAlreadyOptimized_returnNull() {
+        String optimized = HelperOptimizer.optimize(INTERFACE_HELPER, "ServerHelper");
+
+        assertThat(HelperOptimizer.optimize(optimized, "ServerHelper"), nullValue());
+    }
+
+    @Test
+    public void whenHelperHasUnknownForm_returnNull() {
+        String jacorbHelper = INTERFACE_HELPER.replace("synchronized public static", "public static");
+
+        assertThat(HelperOptimizer.optimize(jacorbHelper, "ServerHelper"), nullValue());
+    }
+
+    @Test
+    public void byDefault_leaveGeneratedHelpersUnchanged() throws Exception {
+        defineGeneratedSource(HELPER_PATH, INTERFACE_HELPER);
+
+        mojo.execute();
+
+        assertThat(getFileContents(new File(HELPER_PATH)), equalTo(INTERFACE_HELPER));
+    }
+
+    @Test
+    public void whenOptimizeHelpersEnabled_rewriteGeneratedHelpers() throws Exception {
+        setOptimizeHelpers(source, true);
+        defineGeneratedSource(HELPER_PATH, INTERFACE_HELPER);
+
+        mojo.execute();
+
+        assertThat(getFileContents(new File(HELPER_PATH)), containsString(OPTIMIZED_TYPE_METHOD));
+    }
+
+    @Test
+    public void whenOptimizeHelpersEnabled_leaveOtherSourcesUnchanged() throws Exception {
+        setOptimizeHelpers(source, true);
+        String holderPath = HELPER_PATH.replace("Helper", "Holder");
+        defineGeneratedSource(holderPath, INTERFACE_HELPER);
+
+        mojo.execute();
+
+        assertThat(getFileContents(new File(holderPath)), not(containsString("volatile")));
+    }
+}
@@ -1,21 +1,52 @@
 package org.codehaus.mojo.idlj;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Model;
+import org.apache.maven.project.DependencyResolutionRequest;
+import org.apache.maven.project.DependencyResolutionResult;
 import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+import org.apache.maven.project.ProjectDependenciesResolver;
 import org.codehaus.plexus.compiler.util.scan.InclusionScanException;
 import org.codehaus.plexus.compiler.util.scan.SourceInclusionScanner;
 import org.codehaus.plexus.compiler.util.scan.mapping.SourceMapping;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.Scanner;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.DependencyFilter;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.sonatype.plexus.build.incremental.BuildContext;
+import org.sonatype.plexus.build.incremental.DefaultBuildContext;
 import org.junit.After;
 import org.junit.Before;
 
@@ -23,22 +54,35 @@ import static org.junit.Assert.fail;
 
 public class IDLJTestBase {
     private static String[] args;
+    private static List<String> compiledFiles = new ArrayList<>();
+    private static Map<File, String> sourcesToGenerate = new HashMap<>();
+    private static TestDependenciesFacade activeDependencies;
     private Properties savedProperties;
     private TestClassloaderFacade loaderFacade = new TestClassloaderFacade();
     private TestScanner testScanner = new TestScanner();
     private TestDependenciesFacade testDependenciesFacade = new TestDependenciesFacade();
     private TestLog log = new TestLog();
+    private TestBuildContext buildContext = new TestBuildContext();
+    private TestRepositorySystem repositorySystem = new TestRepositorySystem();
+    private TestProjectDependenciesResolver projectDependenciesResolver = new TestProjectDependenciesResolver();
     IDLJMojo mojo;
 
     @Before
     public void setUp() throws Exception {
         args = null;
+        compiledFiles.clear();
+        sourcesToGenerate.clear();
+        TestIdlCompiler.defineErrorMessage(null);
+        activeDependencies = testDependenciesFacade;
         savedProperties = (Properties) System.getProperties().clone();
         AbstractTranslator.setClassLoaderFacade(loaderFacade);
 
-        TestDependenciesFacade testDependenciesFacade1 = testDependenciesFacade;
-        mojo = new IDLJMojo(testDependenciesFacade1);
+        mojo = createMojo(testDependenciesFacade);
         ignoreMavenProject();
+        setPrivateFieldValue(mojo, "buildContext", buildContext);
+        setPrivateFieldValue(mojo, "repositorySystem", repositorySystem.createProxy());
+        setPrivateFieldValue(mojo, "projectDependenciesResolver", projectDependenciesResolver.createProxy());
+        setPrivateFieldValue(mojo, "repositorySession", new DefaultRepositorySystemSession());
         defineSourceDirectory("src/main/idl");
         defineOutputDirectory("target/main/generatedSources/idl");
         defineTimestampDirectory("target/main/timeStamps");
@@ -46,13 +90,22 @@ public class IDLJTestBase {
         testScanner.includedSources.add(new File("src/main/idl/dummy.idl"));
     }
 
+    /**
+     * Creates the mojo under test. Subclasses may override this to test other goals.
+     * @param dependencies the facade through which the mojo accesses the file system
+     * @return the mojo
+     */
+    IDLJMojo createMojo(DependenciesFacade dependencies) {
+        return new IDLJMojo(dependencies);
+    }
+
     @After
     public void tearDown() {
         System.setProperties(savedProperties);
     }
 
     private void ignoreMavenProject() throws NoSuchFieldException, IllegalAccessException {
-        setPrivateFieldValue(mojo, "project", new MavenProject((Model) null));
+        setPrivateFieldValue(mojo, "project", new MavenProject(new Model()));
     }
 
     private void defineTimestampDirectory(String path) throws NoSuchFieldException, IllegalAccessException {
@@ -191,6 +244,72 @@ public class IDLJTestBase {
         setPrivateFieldValue(source, "emitSkeletons", generateSkeletons);
     }
 
+    final void defineShard(int shardIndex, int shardCount) throws NoSuchFieldException, IllegalAccessException {
+        setPrivateFieldValue(mojo, "shardIndex", shardIndex);
+        setPrivateFieldValue(mojo, "shardCount", shardCount);
+        setPrivateFieldValue(mojo, "shardDirectory", new File("target/main/shards"));
+    }
+
+    final MergeShardsMojo createMergeShardsMojo() throws NoSuchFieldException, IllegalAccessException {
+        MergeShardsMojo mergeMojo = new MergeShardsMojo(testDependenciesFacade);
+        setPrivateFieldValue(mergeMojo, "project", new MavenProject((Model) null));
+        setPrivateFieldValue(mergeMojo, "shardDirectory", new File("target/main/shards"));
+        setPrivateFieldValue(mergeMojo, "outputDirectory", new File("target/main/generatedSources/idl"));
+        mergeMojo.setLog(log);
+        return mergeMojo;
+    }
+
+    final void setSplitModules(Source source, boolean splitModules)
+            throws NoSuchFieldException, IllegalAccessException {
+        setPrivateFieldValue(source, "splitModules", splitModules);
+    }
+
+    final void setPreprocess(Source source, boolean preprocess) throws NoSuchFieldException, IllegalAccessException {
+        setPrivateFieldValue(source, "preprocess", preprocess);
+    }
+
+    final void setOptimizeHelpers(Source source, boolean optimizeHelpers)
+            throws NoSuchFieldException, IllegalAccessException {
+        setPrivateFieldValue(source, "optimizeHelpers", optimizeHelpers);
+    }
+
+    final void setOmittedClasses(Source source, String... patterns)
+            throws NoSuchFieldException, IllegalAccessException {
+        setPrivateFieldValue(source, "omittedClasses", new HashSet<>(Arrays.asList(patterns)));
+    }
+
+    /**
+     * Enables the compilation of the generated sources.
+     * @param classesDirectory the directory to compile into
+     * @param classesJar the jar to package the classes into
+     * @param projectHelper the helper through which the jar is attached
+     */
+    final void enableGeneratedSourceCompilation(
+            File classesDirectory, File classesJar, MavenProjectHelper projectHelper)
+            throws NoSuchFieldException, IllegalAccessException {
+        setPrivateFieldValue(mojo, "compileGeneratedSources", true);
+        setPrivateFieldValue(mojo, "classesDirectory", classesDirectory);
+        setPrivateFieldValue(mojo, "classesJar", classesJar);
+        setPrivateFieldValue(mojo, "classesClassifier", "idl");
+        setPrivateFieldValue(mojo, "projectHelper", projectHelper);
+    }
+
+    final void defineOutputTimestamp(String outputTimestamp) throws NoSuchFieldException, IllegalAccessException {
+        setPrivateFieldValue(mojo, "outputTimestamp", outputTimestamp);
+    }
+
+    final void setNormalizeGeneratedSources(boolean normalize) throws NoSuchFieldException, IllegalAccessException {
+        setPrivateFieldValue(mojo, "normalizeGeneratedSources", normalize);
+    }
+
+    final void setSkipUnchangedInputs(boolean skip) throws NoSuchFieldException, IllegalAccessException {
+        setPrivateFieldValue(mojo, "skipUnchangedInputs", skip);
+    }
+
+    final void defineExecutionStrategy(String strategy) throws NoSuchFieldException, IllegalAccessException {
+        setPrivateFieldValue(mojo, "executionStrategy", strategy);
+    }
+
     final void defineCompiler(String compiler) throws NoSuchFieldException, IllegalAccessException {
         setPrivateFieldValue(mojo, "compiler", compiler);
     }
@@ -240,16 +359,193 @@ public class IDLJTestBase {
         setPrivateFieldValue(mojo, "includeDirs", dirs);
     }
 
+    final void setPruneIncludeDirs(boolean pruneIncludeDirs) throws NoSuchFieldException, IllegalAccessException {
+        setPrivateFieldValue(mojo, "pruneIncludeDirs", pruneIncludeDirs);
+    }
+
+    final void defineIncludeArtifact(String groupId, String artifactId, String directory, File artifactFile)
+            throws NoSuchFieldException, IllegalAccessException {
+        IncludeArtifact includeArtifact = new IncludeArtifact();
+        setPrivateFieldValue(includeArtifact, "groupId", groupId);
+        setPrivateFieldValue(includeArtifact, "artifactId", artifactId);
+        setPrivateFieldValue(includeArtifact, "directory", directory);
+        setPrivateFieldValue(mojo, "includeArtifacts", Collections.singletonList(includeArtifact));
+        setPrivateFieldValue(mojo, "artifactCacheDirectory", new File("target/idlj-cache"));
+
+        Artifact artifact = new DefaultArtifact(
+                groupId, artifactId, "1.0", Artifact.SCOPE_COMPILE, "jar", null, new DefaultArtifactHandler("jar"));
+        artifact.setFile(artifactFile);
+        MavenProject project = getPrivateFieldValue(mojo, "project");
+        project.setArtifacts(Collections.singleton(artifact));
+    }
+
+    /**
+     * Declares a dependency of the project which Maven has not resolved, so that the plugin must resolve it itself.
+     * @param artifactFile the file to which the dependency resolves, or null if it cannot be resolved
+     */
+    final void defineUnresolvedDependency(String groupId, String artifactId, File artifactFile) {
+        Dependency dependency = new Dependency();
+        dependency.setGroupId(groupId);
+        dependency.setArtifactId(artifactId);
+        dependency.setVersion("1.0");
+        mojo.getProject().getModel().addDependency(dependency);
+        repositorySystem.artifactFiles.put(groupId + ":" + artifactId, artifactFile);
+    }
+
+    /**
+     * Declares a dependency of the project, with its own dependencies, which the plugin may resolve as a whole.
+     * @param scope        the scope of the dependency
+     * @param artifactFile the file to which the dependency resolves
+     */
+    final void defineProjectDependency(String artifactId, String scope, File artifactFile) {
+        org.eclipse.aether.artifact.Artifact artifact =
+                new org.eclipse.aether.artifact.DefaultArtifact("org.acme", artifactId, "jar", "1.0")
+                        .setFile(artifactFile);
+        projectDependenciesResolver.dependencies.add(new org.eclipse.aether.graph.Dependency(artifact, scope));
+    }
+
+    /**
+     * Returns the files of the project dependencies which the plugin resolved as a compile class path.
+     * @return null if the plugin did not resolve the dependencies of the project
+     */
+    final List<File> getResolvedClasspath() {
+        return projectDependenciesResolver.resolvedFiles;
+    }
+
+    /**
+     * Returns the artifacts which the plugin resolved through the repository system.
+     * @return a list of artifact coordinates
+     */
+    final List<String> getResolvedArtifacts() {
+        return repositorySystem.resolvedArtifacts;
+    }
+
+    final void defineStubArtifact(String groupId, String artifactId, String classifier, File artifactFile)
+            throws NoSuchFieldException, IllegalAccessException {
+        IncludeArtifact stubArtifact = new IncludeArtifact();
+        setPrivateFieldValue(stubArtifact, "groupId", groupId);
+        setPrivateFieldValue(stubArtifact, "artifactId", artifactId);
+        setPrivateFieldValue(stubArtifact, "classifier", classifier);
+        setPrivateFieldValue(mojo, "stubArtifacts", Collections.singletonList(stubArtifact));
+
+        Artifact artifact = new DefaultArtifact(
+                groupId,
+                artifactId,
+                "1.0",
+                Artifact.SCOPE_COMPILE,
+                "jar",
+                classifier,
+                new DefaultArtifactHandler("jar"));
+        artifact.setFile(artifactFile);
+        MavenProject project = getPrivateFieldValue(mojo, "project");
+        project.setArtifacts(Collections.singleton(artifact));
+    }
+
+    /**
+     * Enables the publication of the generated sources.
+     * @param stubsJar the jar to package the sources into
+     * @param projectHelper the helper through which the jar is attached
+     */
+    final void enableStubPublication(File stubsJar, MavenProjectHelper projectHelper)
+            throws NoSuchFieldException, IllegalAccessException {
+        setPrivateFieldValue(mojo, "publishStubs", true);
+        setPrivateFieldValue(mojo, "stubsJar", stubsJar);
+        setPrivateFieldValue(mojo, "stubsClassifier", "idl-stubs");
+        setPrivateFieldValue(mojo, "projectHelper", projectHelper);
+    }
+
     final void defineAdditionalArguments(Source source, String... additionalArguments)
             throws NoSuchFieldException, IllegalAccessException {
         List<String> arguments = Arrays.asList(additionalArguments);
         setPrivateFieldValue(source, "additionalArguments", arguments);
     }
 
+    /**
+     * Defines an IDL file in the source directory which the scanner will report as stale.
+     * @param path the path of the file, relative to the current directory
+     * @param contents the contents of the file
+     */
+    final void defineStaleIdlFile(String path, String contents) {
+        File file = new File(path);
+        testScanner.includedSources.add(file);
+        defineFileContents(file, contents);
+    }
+
+    final void defineFileContents(File file, String contents) {
+        testDependenciesFacade.fileContents.put(file.getAbsoluteFile(), contents);
+    }
+
+    final DependenciesFacade getDependencies() {
+        return testDependenciesFacade;
+    }
+
+    final String getFileContents(File file) {
+        return testDependenciesFacade.fileContents.get(file.getAbsoluteFile());
+    }
+
+    final void removeDefaultIdlFile() {
+        testScanner.includedSources.clear();
+    }
+
+    /**
+     * Defines a source file which the compiler will write each time it is invoked.
+     * @param path the path of the file, relative to the current directory
+     * @param contents the contents of the file
+     */
+    final void defineGeneratedSource(String path, String contents) {
+        sourcesToGenerate.put(new File(path).getAbsoluteFile(), contents);
+    }
+
+    /**
+     * Simulates an incremental IDE build in which only the specified files have changed.
+     * @param paths the paths of the changed files, relative to the current directory
+     */
+    final void defineIncrementalBuild(String... paths) {
+        buildContext.incremental = true;
+        for (String path : paths) buildContext.changedFiles.add(new File(path).getAbsoluteFile());
+    }
+
+    /**
+     * @return the files which the build context was told to refresh
+     */
+    final List<File> getRefreshedFiles() {
+        return buildContext.refreshedFiles;
+    }
+
+    /**
+     * @return the diagnostics reported to the build context, as "path:line:severity:message"
+     */
+    final List<String> getBuildMessages() {
+        return buildContext.messages;
+    }
+
+    /**
+     * Returns the IDL files passed to the compiler, in the order in which they were compiled.
+     * @return a list of file paths, using forward slashes as separators
+     */
+    final List<String> getCompiledFiles() {
+        return compiledFiles;
+    }
+
     String getIdlCompilerClass() {
         return loaderFacade.getIdlCompilerClass();
     }
 
+    /**
+     * @return the number of times a translator has looked up a compiler class
+     */
+    int getCompilerLoadCount() {
+        return loaderFacade.loadCount;
+    }
+
+    /**
+     * @param path the path of a directory, relative to the current directory
+     * @return the number of times the modification times of the files in the directory were listed
+     */
+    final int getListingCount(String path) {
+        return Collections.frequency(testDependenciesFacade.listedDirectories, new File(path).getAbsoluteFile());
+    }
+
     interface ClassNotFoundFilter {
         boolean throwException(URL... prependedUrls);
     }
@@ -261,12 +557,46 @@ public class IDLJTestBase {
         }
     }
 
+    /**
+     * A project helper which records the classifiers of the artifacts attached to the project.
+     */
+    static class RecordingProjectHelper implements MavenProjectHelper {
+        private final List<String> attachedClassifiers = new ArrayList<>();
+
+        List<String> getAttachedClassifiers() {
+            return attachedClassifiers;
+        }
+
+        @Override
+        public void attachArtifact(MavenProject project, File artifactFile, String artifactClassifier) {
+            attachedClassifiers.add(artifactClassifier);
+        }
+
+        @Override
+        public void attachArtifact(MavenProject project, String artifactType, File artifactFile) {}
+
+        @Override
+        public void attachArtifact(
+                MavenProject project, String artifactType, String artifactClassifier, File artifactFile) {
+            attachedClassifiers.add(artifactClassifier);
+        }
+
+        @Override
+        public void addResource(
+                MavenProject project, String resourceDirectory, List<String> includes, List<String> excludes) {}
+
+        @Override
+        public void addTestResource(
+                MavenProject project, String resourceDirectory, List<String> includes, List<String> excludes) {}
+    }
+
     private static class TestClassloaderFacade implements AbstractTranslator.ClassLoaderFacade {
 
         private List<URL> prependedURLs = new ArrayList<>();
         private String idlCompilerClass;
         private ClassNotFoundFilter filter = new NullClassNotFoundFilter();
         private boolean toolsJarSpecified;
+        private int loadCount;
 
         public void prependUrls(URL... urls) {
             prependedURLs.addAll(Arrays.asList(urls));
@@ -275,6 +605,7 @@ public class IDLJTestBase {
         public Class loadClass(String className) throws ClassNotFoundException {
             toolsJarSpecified = containsToolsJar(prependedURLs);
             idlCompilerClass = className;
+            loadCount++;
             if (filter.throwException(prependedURLs.toArray(new URL[prependedURLs.size()]))) {
                 throw new ClassNotFoundException(className);
             }
@@ -314,6 +645,9 @@ public class IDLJTestBase {
         public static void main(String... args) {
             IDLJTestBase.args = new String[args.length];
             for (int i = 0; i < args.length; i++) IDLJTestBase.args[i] = args[i].replace('\\', '/');
+            if (args.length > 0) compiledFiles.add(IDLJTestBase.args[args.length - 1]);
+            for (Map.Entry<File, String> entry : sourcesToGenerate.entrySet())
+                activeDependencies.writeFile(entry.getKey(), entry.getValue());
 
             if (errorMessage != null) System.err.println(errorMessage);
         }
@@ -328,6 +662,79 @@ public class IDLJTestBase {
         }
     }
 
+    /**
+     * A repository system which resolves the artifacts declared through defineUnresolvedDependency.
+     */
+    private static class TestRepositorySystem implements InvocationHandler {
+        private final Map<String, File> artifactFiles = new HashMap<>();
+        private final List<String> resolvedArtifacts = new ArrayList<>();
+
+        RepositorySystem createProxy() {
+            return (RepositorySystem) Proxy.newProxyInstance(
+                    RepositorySystem.class.getClassLoader(), new Class<?>[] {RepositorySystem.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().equals("resolveArtifact")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            ArtifactRequest request = (ArtifactRequest) args[1];
+            org.eclipse.aether.artifact.Artifact artifact = request.getArtifact();
+            resolvedArtifacts.add(artifact.toString());
+            ArtifactResult result = new ArtifactResult(request);
+            File file = artifactFiles.get(artifact.getGroupId() + ":" + artifact.getArtifactId());
+            if (file == null) {
+                throw new ArtifactResolutionException(Collections.singletonList(result));
+            }
+            return result.setArtifact(artifact.setFile(file));
+        }
+    }
+
+    /**
+     * A resolver of the dependencies of a project, which resolves those declared through defineProjectDependency.
+     */
+    private static class TestProjectDependenciesResolver implements InvocationHandler {
+        private final List<org.eclipse.aether.graph.Dependency> dependencies = new ArrayList<>();
+        private List<File> resolvedFiles;
+
+        ProjectDependenciesResolver createProxy() {
+            return (ProjectDependenciesResolver) Proxy.newProxyInstance(
+                    ProjectDependenciesResolver.class.getClassLoader(),
+                    new Class<?>[] {ProjectDependenciesResolver.class},
+                    this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().equals("resolve")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            DependencyFilter filter = ((DependencyResolutionRequest) args[0]).getResolutionFilter();
+            final List<org.eclipse.aether.graph.Dependency> accepted = new ArrayList<>();
+            resolvedFiles = new ArrayList<>();
+            for (org.eclipse.aether.graph.Dependency dependency : dependencies) {
+                DependencyNode node = new DefaultDependencyNode(dependency);
+                if (filter == null || filter.accept(node, Collections.<DependencyNode>emptyList())) {
+                    accepted.add(dependency);
+                    resolvedFiles.add(dependency.getArtifact().getFile());
+                }
+            }
+            return Proxy.newProxyInstance(
+                    DependencyResolutionResult.class.getClassLoader(),
+                    new Class<?>[] {DependencyResolutionResult.class},
+                    new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            if (!method.getName().equals("getDependencies")) {
+                                throw new UnsupportedOperationException(method.getName());
+                            }
+                            return accepted;
+                        }
+                    });
+        }
+    }
+
     private static class TestScanner implements SourceInclusionScanner {
 
         private Set<File> includedSources = new HashSet<>();
@@ -381,11 +788,84 @@ public class IDLJTestBase {
         public void error(Throwable throwable) {}
     }
 
+    private static class TestBuildContext extends DefaultBuildContext {
+        private boolean incremental;
+        private Set<File> changedFiles = new HashSet<>();
+        private List<File> refreshedFiles = new ArrayList<>();
+        private List<String> messages = new ArrayList<>();
+
+        @Override
+        public boolean isIncremental() {
+            return incremental;
+        }
+
+        @Override
+        public boolean hasDelta(File file) {
+            return !incremental || !getChangedFiles(file).isEmpty();
+        }
+
+        @Override
+        public Scanner newScanner(File basedir) {
+            return new DeltaScanner(basedir, getChangedFiles(basedir));
+        }
+
+        @Override
+        public Scanner newDeleteScanner(File basedir) {
+            return new DeltaScanner(basedir, new ArrayList<String>());
+        }
+
+        private List<String> getChangedFiles(File directory) {
+            List<String> paths = new ArrayList<>();
+            String prefix = directory.getAbsolutePath() + File.separator;
+            for (File file : changedFiles)
+                if (file.getPath().startsWith(prefix)) paths.add(file.getPath().substring(prefix.length()));
+            return paths;
+        }
+
+        @Override
+        public void refresh(File file) {
+            refreshedFiles.add(file);
+        }
+
+        @Override
+        public void addMessage(File file, int line, int column, String message, int severity, Throwable cause) {
+            String type = severity == BuildContext.SEVERITY_ERROR ? "error" : "warning";
+            messages.add(file.getPath().replace('\\', '/') + ":" + line + ":" + type + ":" + message);
+        }
+
+        @Override
+        public void removeMessages(File file) {
+            String prefix = file.getAbsolutePath().replace('\\', '/') + ":";
+            for (int i = messages.size() - 1; i >= 0; i--) if (messages.get(i).startsWith(prefix)) messages.remove(i);
+        }
+    }
+
+    private static class DeltaScanner extends DirectoryScanner {
+        private final List<String> includedFiles;
+
+        DeltaScanner(File basedir, List<String> includedFiles) {
+            setBasedir(basedir);
+            this.includedFiles = includedFiles;
+        }
+
+        @Override
+        public void scan() {}
+
+        @Override
+        public String[] getIncludedFiles() {
+            return includedFiles.toArray(new String[0]);
+        }
+    }
+
     private class TestDependenciesFacade implements DependenciesFacade {
-        List<File> sourceFiles = new ArrayList<>();
-        List<File> targetFiles = new ArrayList<>();
-        List<File> writeableDirectories = new ArrayList<>();
-        List<File> readOnlyDirectories = new ArrayList<>();
+        List<File> sourceFiles = Collections.synchronizedList(new ArrayList<File>());
+        List<File> targetFiles = Collections.synchronizedList(new ArrayList<File>());
+        List<File> writeableDirectories = new CopyOnWriteArrayList<>();
+        List<File> readOnlyDirectories = new CopyOnWriteArrayList<>();
+        Map<File, String> fileContents = new ConcurrentHashMap<>();
+        Map<File, Long> modificationTimes = new ConcurrentHashMap<>();
+        List<File> listedDirectories = Collections.synchronizedList(new ArrayList<File>());
+        AtomicLong clock = new AtomicLong();
 
         public SourceInclusionScanner createSourceInclusionScanner(int updatedWithinMsecs, Set includes, Set excludes) {
             return testScanner;
@@ -394,10 +874,12 @@ public class IDLJTestBase {
         public void copyFile(File sourceFile, File targetFile) throws IOException {
             sourceFiles.add(sourceFile);
             targetFiles.add(targetFile);
+            if (fileContents.containsKey(sourceFile.getAbsoluteFile()))
+                fileContents.put(targetFile.getAbsoluteFile(), fileContents.get(sourceFile.getAbsoluteFile()));
         }
 
-        public boolean exists(File directory) {
-            return isDirectory(directory);
+        public boolean exists(File file) {
+            return isDirectory(file) || fileContents.containsKey(file.getAbsoluteFile());
         }
 
         public void createDirectory(File directory) {
@@ -411,5 +893,56 @@ public class IDLJTestBase {
         public boolean isDirectory(File file) {
             return writeableDirectories.contains(file) || readOnlyDirectories.contains(file);
         }
+
+        public long length(File file) {
+            String contents = fileContents.get(file.getAbsoluteFile());
+            return contents == null ? 0 : contents.length();
+        }
+
+        public long lastModified(File file) {
+            Long time = modificationTimes.get(file.getAbsoluteFile());
+            return time == null ? 0 : time;
+        }
+
+        public void setLastModified(File file, long time) {
+            modificationTimes.put(file.getAbsoluteFile(), time);
+        }
+
+        public String readFile(File file) throws IOException {
+            String contents = fileContents.get(file.getAbsoluteFile());
+            if (contents == null) throw new FileNotFoundException(file.getPath());
+            return contents;
+        }
+
+        public void writeFile(File file, String contents) {
+            fileContents.put(file.getAbsoluteFile(), contents);
+            modificationTimes.put(file.getAbsoluteFile(), clock.incrementAndGet());
+        }
+
+        public byte[] readBytes(File file) throws IOException {
+            return readFile(file).getBytes(StandardCharsets.ISO_8859_1);
+        }
+
+        public void writeBytes(File file, byte[] contents) {
+            writeFile(file, new String(contents, StandardCharsets.ISO_8859_1));
+        }
+
+        public void deleteFile(File file) {
+            fileContents.remove(file.getAbsoluteFile());
+        }
+
+        public List<File> listFiles(File directory) {
+            List<File> files = new ArrayList<>();
+            String prefix = directory.getAbsolutePath() + File.separator;
+            for (File file : fileContents.keySet()) if (file.getPath().startsWith(prefix)) files.add(file);
+            return files;
+        }
+
+        public Map<File, Long> getModificationTimes(File directory) {
+            listedDirectories.add(directory.getAbsoluteFile());
+            Map<File, Long> times = new HashMap<>();
+            for (File file : listFiles(directory)) times.put(file, lastModified(file));
+            return times;
+        }
     }
 }
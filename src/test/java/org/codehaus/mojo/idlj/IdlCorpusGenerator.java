@@ -0,0 +1,296 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates trees of IDL files for stress and scale tests, so that workloads of thousands of files need not be
+ * committed. The same seed and settings always produce the same tree.
+ *
+ * <p>The files are arranged in layers, one more than the include depth. Each file of a layer includes
+ * <code>fanOut</code> files of the layer below it, so that the files of the lowest layer are included by many others;
+ * each layer holds <code>fanOut + 1</code> times as many files as the one below it. Each file defines its own modules,
+ * whose structs, unions, sequences and interfaces refer to the types of the files it includes.
+ */
+class IdlCorpusGenerator {
+    private static final String[] BASIC_TYPES = {"long", "short", "double", "boolean", "string", "long long"};
+
+    private final long seed;
+    private int fileCount = 100;
+    private int modulesPerFile = 1;
+    private int interfacesPerModule = 1;
+    private int structsPerModule = 2;
+    private int unionsPerModule = 1;
+    private int sequencesPerModule = 1;
+    private int includeDepth = 2;
+    private int fanOut = 3;
+
+    /**
+     * @param seed the seed from which the tree is generated
+     */
+    IdlCorpusGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    IdlCorpusGenerator setFileCount(int fileCount) {
+        this.fileCount = fileCount;
+        return this;
+    }
+
+    IdlCorpusGenerator setModulesPerFile(int modulesPerFile) {
+        this.modulesPerFile = modulesPerFile;
+        return this;
+    }
+
+    IdlCorpusGenerator setInterfacesPerModule(int interfacesPerModule) {
+        this.interfacesPerModule = interfacesPerModule;
+        return this;
+    }
+
+    IdlCorpusGenerator setStructsPerModule(int structsPerModule) {
+        this.structsPerModule = structsPerModule;
+        return this;
+    }
+
+    IdlCorpusGenerator setUnionsPerModule(int unionsPerModule) {
+        this.unionsPerModule = unionsPerModule;
+        return this;
+    }
+
+    IdlCorpusGenerator setSequencesPerModule(int sequencesPerModule) {
+        this.sequencesPerModule = sequencesPerModule;
+        return this;
+    }
+
+    /**
+     * @param includeDepth the length of the longest chain of includes; zero for files which include nothing
+     * @return this generator
+     */
+    IdlCorpusGenerator setIncludeDepth(int includeDepth) {
+        this.includeDepth = includeDepth;
+        return this;
+    }
+
+    /**
+     * @param fanOut the number of files included by each file above the lowest layer
+     * @return this generator
+     */
+    IdlCorpusGenerator setFanOut(int fanOut) {
+        this.fanOut = fanOut;
+        return this;
+    }
+
+    /**
+     * @return the generated tree
+     * @throws IllegalArgumentException if there are fewer files than layers, or the fan-out is not positive
+     */
+    Corpus generate() {
+        if (fileCount < includeDepth + 1 || includeDepth < 0) {
+            throw new IllegalArgumentException(
+                    "Cannot spread " + fileCount + " files over an include depth of " + includeDepth);
+        }
+        if (fanOut < 1 && includeDepth > 0) {
+            throw new IllegalArgumentException("The fan-out must be positive, not " + fanOut);
+        }
+
+        Random random = new Random(seed);
+        Corpus corpus = new Corpus();
+        List<List<String>> layers = new ArrayList<>();
+        Map<String, List<String>> exportedTypes = new LinkedHashMap<>();
+        int[] layerSizes = getLayerSizes();
+        int index = 0;
+        for (int layer = 0; layer < layerSizes.length; layer++) {
+            List<String> paths = new ArrayList<>();
+            for (int i = 0; i < layerSizes[layer]; i++, index++) {
+                String path = "layer" + layer + "/f" + index + ".idl";
+                Set<String> includes = layer == 0
+                        ? Collections.<String>emptySet()
+                        : selectIncludes(random, layers.get(layer - 1));
+                List<String> visibleTypes = new ArrayList<>();
+                for (String include : includes) {
+                    visibleTypes.addAll(exportedTypes.get(include));
+                }
+                List<String> exported = new ArrayList<>();
+                corpus.add(path, includes, generateFile(random, index, includes, visibleTypes, exported));
+                exportedTypes.put(path, exported);
+                paths.add(path);
+            }
+            layers.add(paths);
+        }
+        corpus.layers = layers;
+        return corpus;
+    }
+
+    private int[] getLayerSizes() {
+        int[] sizes = new int[includeDepth + 1];
+        double totalWeight = 0;
+        for (int layer = 0; layer < sizes.length; layer++) {
+            totalWeight += Math.pow(fanOut + 1, layer);
+        }
+        int assigned = 0;
+        for (int layer = 0; layer < sizes.length - 1; layer++) {
+            sizes[layer] = Math.max(1, (int) (fileCount * Math.pow(fanOut + 1, layer) / totalWeight));
+            assigned += sizes[layer];
+        }
+        sizes[sizes.length - 1] = fileCount - assigned;
+        return sizes;
+    }
+
+    private Set<String> selectIncludes(Random random, List<String> candidates) {
+        Set<String> includes = new TreeSet<>();
+        int count = Math.min(fanOut, candidates.size());
+        while (includes.size() < count) {
+            includes.add(candidates.get(random.nextInt(candidates.size())));
+        }
+        return includes;
+    }
+
+    private String generateFile(
+            Random random, int index, Set<String> includes, List<String> visibleTypes, List<String> exported) {
+        String guard = "F" + index + "_IDL";
+        StringBuilder idl = new StringBuilder();
+        idl.append("#ifndef ").append(guard).append('\n');
+        idl.append("#define ").append(guard).append('\n');
+        for (String include : includes) {
+            idl.append("#include \"").append(include).append("\"\n");
+        }
+        for (int m = 0; m < modulesPerFile; m++) {
+            String module = "f" + index + "_m" + m;
+            List<String> types = new ArrayList<>(visibleTypes);
+            idl.append("module ").append(module).append(" {\n");
+            for (int s = 0; s < structsPerModule; s++) {
+                idl.append("  struct S").append(s).append(" {\n");
+                int members = 1 + random.nextInt(4);
+                for (int i = 0; i < members; i++) {
+                    idl.append("    ").append(pickType(random, types)).append(" m").append(i).append(";\n");
+                }
+                idl.append("  };\n");
+                addType(types, exported, module, "S" + s);
+            }
+            for (int q = 0; q < sequencesPerModule; q++) {
+                idl.append("  typedef sequence<").append(pickType(random, types)).append("> Seq").append(q);
+                idl.append(";\n");
+                addType(types, exported, module, "Seq" + q);
+            }
+            for (int u = 0; u < unionsPerModule; u++) {
+                idl.append("  union U").append(u).append(" switch (long) {\n");
+                int cases = 1 + random.nextInt(3);
+                for (int i = 0; i < cases; i++) {
+                    idl.append("    case ").append(i + 1).append(": ").append(pickType(random, types));
+                    idl.append(" c").append(i).append(";\n");
+                }
+                idl.append("    default: ").append(pickType(random, types)).append(" other;\n");
+                idl.append("  };\n");
+                addType(types, exported, module, "U" + u);
+            }
+            for (int n = 0; n < interfacesPerModule; n++) {
+                idl.append("  interface I").append(n).append(" {\n");
+                int operations = 1 + random.nextInt(3);
+                for (int i = 0; i < operations; i++) {
+                    idl.append("    ").append(pickType(random, types)).append(" op").append(i).append("(in ");
+                    idl.append(pickType(random, types)).append(" p0, out ").append(pickType(random, types));
+                    idl.append(" p1);\n");
+                }
+                idl.append("  };\n");
+            }
+            idl.append("};\n");
+        }
+        idl.append("#endif\n");
+        return idl.toString();
+    }
+
+    private static String pickType(Random random, List<String> types) {
+        if (types.isEmpty() || random.nextInt(3) == 0) {
+            return BASIC_TYPES[random.nextInt(BASIC_TYPES.length)];
+        }
+        return types.get(random.nextInt(types.size()));
+    }
+
+    private static void addType(List<String> types, List<String> exported, String module, String name) {
+        String scopedName = "::" + module + "::" + name;
+        types.add(scopedName);
+        exported.add(scopedName);
+    }
+
+    /**
+     * A generated tree of IDL files. Paths are relative to the root of the tree, which must be on the include path.
+     */
+    static class Corpus {
+        private final Map<String, String> files = new LinkedHashMap<>();
+        private final Map<String, Set<String>> includes = new LinkedHashMap<>();
+        private List<List<String>> layers;
+
+        private void add(String path, Set<String> fileIncludes, String contents) {
+            files.put(path, contents);
+            includes.put(path, fileIncludes);
+        }
+
+        /**
+         * @return the contents of each file, by path, from the lowest layer up
+         */
+        Map<String, String> getFiles() {
+            return Collections.unmodifiableMap(files);
+        }
+
+        /**
+         * @param layer the index of a layer, zero for the lowest
+         * @return the paths of the files in the layer
+         */
+        List<String> getLayer(int layer) {
+            return Collections.unmodifiableList(layers.get(layer));
+        }
+
+        /**
+         * @param path the path of a file
+         * @return the paths of the files it includes directly
+         */
+        Set<String> getIncludes(String path) {
+            return Collections.unmodifiableSet(includes.get(path));
+        }
+
+        /**
+         * @param path the path of a file
+         * @return the paths of the files which include it, directly or indirectly
+         */
+        Set<String> getDependents(String path) {
+            Set<String> dependents = new LinkedHashSet<>();
+            List<String> pending = new ArrayList<>(Collections.singletonList(path));
+            while (!pending.isEmpty()) {
+                String included = pending.remove(pending.size() - 1);
+                for (Map.Entry<String, Set<String>> entry : includes.entrySet()) {
+                    if (entry.getValue().contains(included) && dependents.add(entry.getKey())) {
+                        pending.add(entry.getKey());
+                    }
+                }
+            }
+            return dependents;
+        }
+
+        /**
+         * Writes the files below the specified directory.
+         *
+         * @param dependencies the facade used to access the file system
+         * @param directory    the root of the tree
+         * @return the files written, from the lowest layer up
+         * @throws IOException if a file cannot be written
+         */
+        List<File> write(DependenciesFacade dependencies, File directory) throws IOException {
+            List<File> written = new ArrayList<>();
+            for (Map.Entry<String, String> entry : files.entrySet()) {
+                File file = new File(directory, entry.getKey());
+                dependencies.writeFile(file, entry.getValue());
+                written.add(file);
+            }
+            return written;
+        }
+    }
+}
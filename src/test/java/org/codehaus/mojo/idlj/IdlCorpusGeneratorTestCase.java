@@ -0,0 +1,100 @@
+package org.codehaus.mojo.idlj;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.isIn;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Tests for the generator of synthetic IDL trees.
+ */
+public class IdlCorpusGeneratorTestCase extends IDLJTestBase {
+
+    @Test
+    public void whenSeedRepeated_generateSameTree() {
+        Map<String, String> first = new IdlCorpusGenerator(42).generate().getFiles();
+        Map<String, String> second = new IdlCorpusGenerator(42).generate().getFiles();
+
+        assertThat(second, equalTo(first));
+    }
+
+    @Test
+    public void whenSeedChanged_generateDifferentTree() {
+        Map<String, String> first = new IdlCorpusGenerator(42).generate().getFiles();
+        Map<String, String> second = new IdlCorpusGenerator(43).generate().getFiles();
+
+        assertThat(second.keySet(), equalTo(first.keySet()));
+        assertThat(second, not(equalTo(first)));
+    }
+
+    @Test
+    public void whenGenerated_spreadFilesOverOneLayerMoreThanIncludeDepth() {
+        IdlCorpusGenerator.Corpus corpus =
+                new IdlCorpusGenerator(1).setFileCount(210).setIncludeDepth(2).setFanOut(3).generate();
+
+        assertThat(corpus.getFiles().keySet(), hasSize(210));
+        assertThat(corpus.getLayer(0), hasSize(10));
+        assertThat(corpus.getLayer(1), hasSize(40));
+        assertThat(corpus.getLayer(2), hasSize(160));
+    }
+
+    @Test
+    public void whenGenerated_includeFanOutFilesOfLayerBelow() {
+        IdlCorpusGenerator.Corpus corpus =
+                new IdlCorpusGenerator(1).setFileCount(210).setIncludeDepth(2).setFanOut(3).generate();
+
+        for (String path : corpus.getLayer(2)) {
+            assertThat(corpus.getIncludes(path), hasSize(3));
+            assertThat(corpus.getIncludes(path), everyItem(isIn(corpus.getLayer(1))));
+            for (String include : corpus.getIncludes(path)) {
+                assertThat(corpus.getFiles().get(path), containsString("#include \"" + include + "\"\n"));
+            }
+        }
+        for (String path : corpus.getLayer(0)) {
+            assertThat(corpus.getIncludes(path), hasSize(0));
+        }
+    }
+
+    @Test
+    public void whenCountsSpecified_generateThatManyDefinitions() {
+        String idl = new IdlCorpusGenerator(1)
+                .setFileCount(1)
+                .setIncludeDepth(0)
+                .setModulesPerFile(2)
+                .setInterfacesPerModule(3)
+                .setStructsPerModule(4)
+                .setUnionsPerModule(5)
+                .setSequencesPerModule(6)
+                .generate()
+                .getFiles()
+                .get("layer0/f0.idl");
+
+        assertThat(count(idl, "module "), equalTo(2));
+        assertThat(count(idl, "interface "), equalTo(6));
+        assertThat(count(idl, "struct "), equalTo(8));
+        assertThat(count(idl, "union "), equalTo(10));
+        assertThat(count(idl, "typedef sequence<"), equalTo(12));
+    }
+
+    private static int count(String text, String fragment) {
+        return text.split(fragment, -1).length - 1;
+    }
+
+    @Test
+    public void whenFileIncludedIndirectly_reportAllLayersAboveAsDependents() {
+        IdlCorpusGenerator.Corpus corpus =
+                new IdlCorpusGenerator(1).setFileCount(7).setIncludeDepth(2).setFanOut(1).generate();
+        String base = corpus.getLayer(0).get(0);
+
+        assertThat(corpus.getLayer(0), hasSize(1));
+        assertThat(corpus.getDependents(base), hasSize(6));
+        assertThat(corpus.getDependents(corpus.getLayer(2).get(0)), hasSize(0));
+    }
+}
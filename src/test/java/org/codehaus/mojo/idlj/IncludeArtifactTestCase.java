@@ -0,0 +1,135 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests for using the IDL files of dependency artifacts as include directories.
+ */
+public class IncludeArtifactTestCase extends IDLJTestBase {
+    private static final File ARTIFACT_FILE = new File("repository/org/acme/idl-api/1.0/idl-api-1.0.jar");
+    private static final String COMMON_IDL = "module Common {};";
+
+    private byte[] archive;
+    private File extractionDirectory;
+
+    @Before
+    public void setUpArtifact() throws Exception {
+        archive = createArchive();
+        getDependencies().writeBytes(ARTIFACT_FILE, archive);
+        extractionDirectory = new File("target/idlj-cache/" + ContentHash.of(archive));
+    }
+
+    @Test
+    public void whenIncludeArtifactDefined_addExtractedDirectoryToIncludePath() throws Exception {
+        defineIncludeArtifact("org.acme", "idl-api", "idl", ARTIFACT_FILE);
+
+        mojo.execute();
+
+        assertArgumentsContains("-i", new File(extractionDirectory, "idl").toString());
+    }
+
+    @Test
+    public void whenIncludeArtifactDefined_extractOnlyItsIdlFiles() throws Exception {
+        defineIncludeArtifact("org.acme", "idl-api", null, ARTIFACT_FILE);
+
+        mojo.execute();
+
+        assertThat(getFileContents(new File(extractionDirectory, "idl/common.idl")), equalTo(COMMON_IDL));
+        assertThat(getFileContents(new File(extractionDirectory, "META-INF/MANIFEST.MF")), nullValue());
+        assertThat(getFileContents(new File("target/idlj-cache/evil.idl")), nullValue());
+    }
+
+    @Test
+    public void whenArtifactAlreadyExtracted_reuseExtractedFiles() throws Exception {
+        defineIncludeArtifact("org.acme", "idl-api", null, ARTIFACT_FILE);
+        mojo.execute();
+        defineFileContents(new File(extractionDirectory, "idl/common.idl"), "module Cached {};");
+
+        mojo.execute();
+
+        assertThat(getFileContents(new File(extractionDirectory, "idl/common.idl")), equalTo("module Cached {};"));
+    }
+
+    @Test
+    public void whenExtractionIncomplete_extractAgain() throws Exception {
+        defineIncludeArtifact("org.acme", "idl-api", null, ARTIFACT_FILE);
+        defineFileContents(new File(extractionDirectory, "idl/common.idl"), "module Partial {};");
+
+        mojo.execute();
+
+        assertThat(getFileContents(new File(extractionDirectory, "idl/common.idl")), equalTo(COMMON_IDL));
+    }
+
+    @Test
+    public void whenArtifactResolvedToDirectory_useItInPlace() throws Exception {
+        File classes = new File("../idl-api/target/classes");
+        getDependencies().createDirectory(classes);
+        defineFileContents(new File(classes, "idl/common.idl"), COMMON_IDL);
+        defineIncludeArtifact("org.acme", "idl-api", "idl", classes);
+
+        mojo.execute();
+
+        assertArgumentsContains("-i", new File(classes, "idl").toString());
+    }
+
+    @Test
+    public void whenIncludeArtifactNotResolvedByMaven_resolveOnlyIt() throws Exception {
+        defineIncludeArtifact("org.acme", "idl-api", "idl", ARTIFACT_FILE);
+        mojo.getProject().setArtifacts(Collections.<Artifact>emptySet());
+        defineUnresolvedDependency("org.acme", "unbuilt-module", null);
+        defineUnresolvedDependency("org.acme", "idl-api", ARTIFACT_FILE);
+
+        mojo.execute();
+
+        assertArgumentsContains("-i", new File(extractionDirectory, "idl").toString());
+        assertThat(getResolvedArtifacts(), contains("org.acme:idl-api:jar:1.0"));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void whenIncludeArtifactCannotBeResolved_throwException() throws Exception {
+        defineIncludeArtifact("org.acme", "idl-api", null, ARTIFACT_FILE);
+        mojo.getProject().setArtifacts(Collections.<Artifact>emptySet());
+        defineUnresolvedDependency("org.acme", "idl-api", null);
+
+        mojo.execute();
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void whenIncludeArtifactNotDependency_throwException() throws Exception {
+        defineIncludeArtifact("org.acme", "idl-api", null, ARTIFACT_FILE);
+        mojo.getProject().setArtifacts(Collections.<Artifact>emptySet());
+
+        mojo.execute();
+    }
+
+    private static byte[] createArchive() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            addEntry(zip, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n");
+            addEntry(zip, "idl/common.idl", COMMON_IDL);
+            addEntry(zip, "../../evil.idl", "module Evil {};");
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void addEntry(ZipOutputStream zip, String name, String contents) throws Exception {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(contents.getBytes(StandardCharsets.ISO_8859_1));
+        zip.closeEntry();
+    }
+}
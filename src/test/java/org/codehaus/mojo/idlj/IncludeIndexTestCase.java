@@ -0,0 +1,101 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests for resolving includes through an index of the include directories.
+ */
+public class IncludeIndexTestCase extends IDLJTestBase {
+    private static final String FIRST = "src/main/idl-first";
+    private static final String SECOND = "src/main/idl-second";
+    private static final String UNUSED = "src/main/idl-unused";
+
+    @Before
+    public void setUpIncludes() throws Exception {
+        defineIncludePaths(UNUSED, FIRST, SECOND);
+        defineFileContents(new File(UNUSED + "/unused.idl"), "module Unused {};");
+        defineFileContents(new File(FIRST + "/common.idl"), "#include <sub/types.idl>\nmodule Common {};");
+        defineFileContents(new File(SECOND + "/common.idl"), "module Shadowed {};");
+        defineFileContents(new File(SECOND + "/sub/types.idl"), "module Types {};");
+    }
+
+    @Test
+    public void whenNameInSeveralDirectories_resolveToFirst() {
+        IncludeIndex index = createIndex();
+
+        assertThat(index.resolve("common.idl"), equalTo(IncludeGraph.normalize(new File(FIRST + "/common.idl"))));
+    }
+
+    @Test
+    public void whenNameHasRedundantSegments_resolveThroughIndex() {
+        IncludeIndex index = createIndex();
+
+        File types = IncludeGraph.normalize(new File(SECOND + "/sub/types.idl"));
+        assertThat(index.resolve("./sub//types.idl"), equalTo(types));
+    }
+
+    @Test
+    public void whenNameNotFound_returnNull() {
+        assertThat(createIndex().resolve("orb.idl"), nullValue());
+    }
+
+    @Test
+    public void byDefault_passAllIncludeDirectories() throws Exception {
+        defineStaleIdlFile("src/main/idl/dummy.idl", "#include <common.idl>\nmodule Dummy {};");
+
+        mojo.execute();
+
+        assertArgumentsContains("-i", UNUSED, "-i", FIRST, "-i", SECOND);
+    }
+
+    @Test
+    public void whenPruningIncludeDirs_passOnlyDirectoriesOfIncludedFiles() throws Exception {
+        setPruneIncludeDirs(true);
+        defineStaleIdlFile("src/main/idl/dummy.idl", "#include <common.idl>\nmodule Dummy {};");
+
+        mojo.execute();
+
+        assertArgumentsContains("-i", FIRST, "-i", SECOND, "-td");
+        assertArgumentsDoesNotContain("-i", UNUSED);
+    }
+
+    @Test
+    public void whenPruningIncludeDirsAndNothingIncluded_passNoIncludeDirectories() throws Exception {
+        setPruneIncludeDirs(true);
+        defineStaleIdlFile("src/main/idl/dummy.idl", "module Dummy {};");
+
+        mojo.execute();
+
+        assertArgumentsDoesNotContain("-i", FIRST);
+        assertArgumentsDoesNotContain("-i", SECOND);
+    }
+
+    @Test
+    public void whenIncludedFileChanged_recompileFilesIncludingIt() throws Exception {
+        removeDefaultIdlFile();
+        defineStaleIdlFile("src/main/idl/base.idl", "module Base {};");
+        defineFileContents(new File("src/main/idl/middle.idl"), "#include \"base.idl\"\nmodule Middle {};");
+        defineFileContents(new File("src/main/idl/top.idl"), "#include \"middle.idl\"\nmodule Top {};");
+        defineFileContents(new File("src/main/idl/other.idl"), "#include <common.idl>\nmodule Other {};");
+
+        mojo.execute();
+
+        String sourceDir = getCurrentDir() + "/src/main/idl/";
+        assertThat(
+                getCompiledFiles(),
+                containsInAnyOrder("src/main/idl/base.idl", sourceDir + "middle.idl", sourceDir + "top.idl"));
+    }
+
+    private IncludeIndex createIndex() {
+        return new IncludeIndex(getDependencies(), Arrays.asList(new File(UNUSED), new File(FIRST), new File(SECOND)));
+    }
+}
@@ -0,0 +1,127 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+
+/**
+ * Tests for skipping the compilation when its inputs are unchanged.
+ */
+public class InputManifestTestCase extends IDLJTestBase {
+
+    private static final String IDL_PATH = "src/main/idl/service.idl";
+    private static final String IDL_CONTENTS = "module Demo { interface Server {}; };";
+    private static final String GENERATED_PATH = "target/main/generatedSources/idl/Demo/Server.java";
+
+    @Before
+    public void setUpSources() {
+        removeDefaultIdlFile();
+        defineStaleIdlFile(IDL_PATH, IDL_CONTENTS);
+        defineGeneratedSource(GENERATED_PATH, "package Demo;\npublic interface Server {}\n");
+    }
+
+    @Test
+    public void byDefault_recompileTouchedFiles() throws Exception {
+        mojo.execute();
+        getCompiledFiles().clear();
+
+        defineStaleIdlFile(IDL_PATH, IDL_CONTENTS);
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains(IDL_PATH));
+    }
+
+    @Test
+    public void whenInputsUnchanged_skipCompilation() throws Exception {
+        setSkipUnchangedInputs(true);
+        mojo.execute();
+        getCompiledFiles().clear();
+
+        defineStaleIdlFile(IDL_PATH, IDL_CONTENTS);
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), empty());
+    }
+
+    @Test
+    public void whenIdlFileChanged_compileIt() throws Exception {
+        setSkipUnchangedInputs(true);
+        mojo.execute();
+        getCompiledFiles().clear();
+
+        defineStaleIdlFile(IDL_PATH, "module Demo { interface Server { void ping(); }; };");
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains(IDL_PATH));
+    }
+
+    @Test
+    public void whenAutoSelectsAnotherCompiler_compileAgain() throws Exception {
+        setSkipUnchangedInputs(true);
+        System.setProperty("java.version", "11.0.21");
+        mojo.execute();
+        getCompiledFiles().clear();
+
+        System.setProperty("java.version", "1.8.0_392");
+        defineStaleIdlFile(IDL_PATH, IDL_CONTENTS);
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains(IDL_PATH));
+    }
+
+    @Test
+    public void whenJdkOfBuiltInCompilerChanged_compileAgain() throws Exception {
+        setSkipUnchangedInputs(true);
+        defineCompiler("idlj");
+        System.setProperty("java.version", "1.8.0_391");
+        mojo.execute();
+        getCompiledFiles().clear();
+
+        System.setProperty("java.version", "1.8.0_392");
+        defineStaleIdlFile(IDL_PATH, IDL_CONTENTS);
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains(IDL_PATH));
+    }
+
+    @Test
+    public void whenGeneratedSourceMissing_compileAgain() throws Exception {
+        setSkipUnchangedInputs(true);
+        mojo.execute();
+        getCompiledFiles().clear();
+
+        getDependencies().deleteFile(new File(GENERATED_PATH));
+        defineStaleIdlFile(IDL_PATH, IDL_CONTENTS);
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains(IDL_PATH));
+    }
+
+    @Test
+    public void whenSourcesGenerated_manifestListsInputsAndOutputs() throws Exception {
+        setSkipUnchangedInputs(true);
+
+        mojo.execute();
+
+        InputManifest manifest = InputManifest.read(getDependencies(), new File("target/main/generatedSources/idl"));
+        assertThat(manifest.getInputs(), contains("service.idl"));
+        assertThat(manifest.getOutputs(), contains("Demo/Server.java"));
+    }
+
+    @Test
+    public void whenIdlFileNameHasComma_manifestListsItWhole() throws Exception {
+        setSkipUnchangedInputs(true);
+        defineStaleIdlFile("src/main/idl/service,v2.idl", IDL_CONTENTS);
+
+        mojo.execute();
+
+        InputManifest manifest = InputManifest.read(getDependencies(), new File("target/main/generatedSources/idl"));
+        assertThat(manifest.getInputs(), containsInAnyOrder("service.idl", "service,v2.idl"));
+    }
+}
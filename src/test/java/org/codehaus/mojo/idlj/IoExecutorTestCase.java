@@ -0,0 +1,153 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.codehaus.plexus.compiler.util.scan.mapping.SuffixMapping;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * Tests for running file operations concurrently.
+ */
+public class IoExecutorTestCase extends IDLJTestBase {
+
+    private Path sourceRoot;
+    private Path timestampRoot;
+
+    @Before
+    public void setUpDirectories() throws Exception {
+        sourceRoot = Files.createTempDirectory("idl");
+        timestampRoot = Files.createTempDirectory("timestamps");
+    }
+
+    @Test
+    public void whenOperationsComplete_returnResultsInOrder() throws Exception {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            items.add(i);
+        }
+
+        List<Integer> squares = IoExecutor.map(items, i -> i * i);
+
+        assertThat(squares.get(0), equalTo(0));
+        assertThat(squares.get(199), equalTo(199 * 199));
+        assertThat(squares.size(), equalTo(200));
+    }
+
+    @Test(expected = IOException.class)
+    public void whenOperationFails_reportFailure() throws Exception {
+        IoExecutor.map(Arrays.asList("a", "b", "c"), item -> {
+            if (item.equals("b")) {
+                throw new IOException("cannot read " + item);
+            }
+            return item;
+        });
+    }
+
+    @Test
+    public void whenManyItems_boundOperationsInProgress() throws Exception {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 10 * IoExecutor.IO_PARALLELISM; i++) {
+            items.add(i);
+        }
+        final AtomicInteger inProgress = new AtomicInteger();
+        final AtomicInteger maxInProgress = new AtomicInteger();
+
+        IoExecutor.map(items, i -> {
+            int current = inProgress.incrementAndGet();
+            maxInProgress.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } finally {
+                inProgress.decrementAndGet();
+            }
+            return i;
+        });
+
+        assertThat(maxInProgress.get(), lessThanOrEqualTo(IoExecutor.IO_PARALLELISM));
+    }
+
+    @Test
+    public void whenOperationFails_startNoFurtherOperations() throws Exception {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 10 * IoExecutor.IO_PARALLELISM; i++) {
+            items.add(i);
+        }
+        final AtomicInteger started = new AtomicInteger();
+
+        try {
+            IoExecutor.map(items, i -> {
+                started.incrementAndGet();
+                throw new IOException("cannot read " + i);
+            });
+        } catch (IOException e) {
+            // expected
+        }
+
+        assertThat(started.get(), lessThan(items.size()));
+    }
+
+    @Test
+    public void whenNoTimestampCopyExists_scannerReportsSourceStale() throws Exception {
+        createFile(sourceRoot, "a.idl", 1000);
+        createFile(sourceRoot, "sub/b.idl", 1000);
+
+        assertThat(scanStaleSources(), containsInAnyOrder("a.idl", "sub/b.idl"));
+    }
+
+    @Test
+    public void whenTimestampCopyIsOlder_scannerReportsOnlyThatSourceStale() throws Exception {
+        createFile(sourceRoot, "a.idl", 5000);
+        createFile(sourceRoot, "b.idl", 5000);
+        createFile(timestampRoot, "a.idl", 1000);
+        createFile(timestampRoot, "b.idl", 5000);
+
+        assertThat(scanStaleSources(), contains("a.idl"));
+    }
+
+    @Test
+    public void whenFileExcluded_scannerIgnoresIt() throws Exception {
+        createFile(sourceRoot, "a.idl", 1000);
+        createFile(sourceRoot, "notes.txt", 1000);
+
+        assertThat(scanStaleSources(), contains("a.idl"));
+    }
+
+    private void createFile(Path root, String path, long lastModified) throws IOException {
+        File file = root.resolve(path).toFile();
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), "module m {};".getBytes("UTF-8"));
+        file.setLastModified(lastModified);
+    }
+
+    private List<String> scanStaleSources() throws Exception {
+        ConcurrentStaleSourceScanner scanner = new ConcurrentStaleSourceScanner(
+                new DependenciesFacadeImpl(), 0, Collections.singleton("**/*.idl"), Collections.<String>emptySet());
+        scanner.addSourceMapping(new SuffixMapping(".idl", ".idl"));
+
+        Set<File> staleSources = scanner.getIncludedSources(sourceRoot.toFile(), timestampRoot.toFile());
+        List<String> paths = new ArrayList<>();
+        for (File file : staleSources) {
+            paths.add(AbstractIDLJMojo.getRelativePath(sourceRoot.toFile(), file));
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,175 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Tests for splitting IDL files into per-module compilation units.
+ */
+public class ModuleSplitTestCase extends IDLJTestBase {
+
+    private static final String UNIT_DIRECTORY = "target/main/timeStamps/idlj-modules/vendor/";
+
+    private static final String VENDOR_IDL = "#include <orb.idl>\n"
+            + "#pragma prefix \"acme.com\"\n"
+            + "// the base types\n"
+            + "module Base {\n"
+            + "  typedef long Id;\n"
+            + "};\n"
+            + "module Services {\n"
+            + "  interface Lookup { Base::Id find(in string name); };\n"
+            + "};\n"
+            + "module Unrelated {\n"
+            + "  const string NAME = \"Base\";\n"
+            + "};\n";
+
+    private Source source;
+
+    @Before
+    public void setUpSources() throws Exception {
+        removeDefaultIdlFile();
+        source = createSource();
+    }
+
+    @Test
+    public void byDefault_compileWholeFile() throws Exception {
+        defineStaleIdlFile("src/main/idl/vendor.idl", VENDOR_IDL);
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains("src/main/idl/vendor.idl"));
+    }
+
+    @Test
+    public void whenSplitModulesEnabled_compileEachModuleSeparately() throws Exception {
+        setSplitModules(source, true);
+        defineStaleIdlFile("src/main/idl/vendor.idl", VENDOR_IDL);
+
+        mojo.execute();
+
+        assertThat(
+                getCompiledFiles(),
+                contains(
+                        UNIT_DIRECTORY + "001-Base.idl",
+                        UNIT_DIRECTORY + "002-Services.idl",
+                        UNIT_DIRECTORY + "003-Unrelated.idl"));
+    }
+
+    @Test
+    public void whenSplitModulesEnabled_unitsRepeatDirectivesAndIncludeReferencedModules() throws Exception {
+        setSplitModules(source, true);
+        defineStaleIdlFile("src/main/idl/vendor.idl", VENDOR_IDL);
+
+        mojo.execute();
+
+        String services = getFileContents(new File(UNIT_DIRECTORY + "002-Services.idl"));
+        assertThat(services, containsString("#include <orb.idl>\n#pragma prefix \"acme.com\"\n"));
+        assertThat(services, containsString("#include \"001-Base.idl\"\nmodule Services {"));
+        assertThat(services, not(containsString("module Base")));
+        String unrelated = getFileContents(new File(UNIT_DIRECTORY + "003-Unrelated.idl"));
+        assertThat(unrelated, not(containsString("#include \"0")));
+    }
+
+    @Test
+    public void whenSplitModulesEnabled_addOriginalDirectoryToIncludePath() throws Exception {
+        setSplitModules(source, true);
+        defineStaleIdlFile("src/main/idl/vendor.idl", VENDOR_IDL);
+
+        mojo.execute();
+
+        assertArgumentsContains("-i", getCurrentDir() + "/src/main/idl");
+    }
+
+    @Test
+    public void whenModulesUnchanged_doNotRecompileThem() throws Exception {
+        setSplitModules(source, true);
+        defineStaleIdlFile("src/main/idl/vendor.idl", VENDOR_IDL);
+        mojo.execute();
+        getCompiledFiles().clear();
+
+        defineStaleIdlFile("src/main/idl/vendor.idl", VENDOR_IDL.replace("\"Base\"", "\"Other\""));
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains(UNIT_DIRECTORY + "003-Unrelated.idl"));
+    }
+
+    @Test
+    public void whenReferencedModuleChanged_recompileReferencingModules() throws Exception {
+        setSplitModules(source, true);
+        defineStaleIdlFile("src/main/idl/vendor.idl", VENDOR_IDL);
+        mojo.execute();
+        getCompiledFiles().clear();
+
+        defineStaleIdlFile("src/main/idl/vendor.idl", VENDOR_IDL.replace("typedef long Id", "typedef short Id"));
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains(UNIT_DIRECTORY + "001-Base.idl", UNIT_DIRECTORY + "002-Services.idl"));
+    }
+
+    @Test
+    public void whenOnlyIncludedFileChanged_recompileAllModules() throws Exception {
+        setSplitModules(source, true);
+        defineStaleIdlFile("src/main/idl/types.idl", "module Types { typedef long Id; };\n");
+        defineStaleIdlFile("src/main/idl/vendor.idl", "#include \"types.idl\"\n" + VENDOR_IDL);
+        mojo.execute();
+        getCompiledFiles().clear();
+
+        defineStaleIdlFile("src/main/idl/types.idl", "module Types { typedef short Id; };\n");
+        defineStaleIdlFile("src/main/idl/vendor.idl", "#include \"types.idl\"\n" + VENDOR_IDL);
+        mojo.execute();
+
+        assertThat(
+                getCompiledFiles(),
+                hasItems(
+                        UNIT_DIRECTORY + "001-Base.idl",
+                        UNIT_DIRECTORY + "002-Services.idl",
+                        UNIT_DIRECTORY + "003-Unrelated.idl"));
+    }
+
+    @Test
+    public void whenDefinesChanged_recompileAllModules() throws Exception {
+        setSplitModules(source, true);
+        defineStaleIdlFile("src/main/idl/vendor.idl", VENDOR_IDL);
+        mojo.execute();
+        getCompiledFiles().clear();
+
+        createDefine(source, "FEATURE");
+        defineStaleIdlFile("src/main/idl/vendor.idl", VENDOR_IDL);
+        mojo.execute();
+
+        assertThat(
+                getCompiledFiles(),
+                contains(
+                        UNIT_DIRECTORY + "001-Base.idl",
+                        UNIT_DIRECTORY + "002-Services.idl",
+                        UNIT_DIRECTORY + "003-Unrelated.idl"));
+    }
+
+    @Test
+    public void whenFileContainsGlobalDeclarations_compileWholeFile() throws Exception {
+        setSplitModules(source, true);
+        defineStaleIdlFile("src/main/idl/vendor.idl", "typedef long GlobalId;\n" + VENDOR_IDL);
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains("src/main/idl/vendor.idl"));
+    }
+
+    @Test
+    public void whenFileContainsConditionalCompilation_compileWholeFile() throws Exception {
+        setSplitModules(source, true);
+        defineStaleIdlFile("src/main/idl/vendor.idl", "#ifdef FEATURE\n" + VENDOR_IDL + "#endif\n");
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains("src/main/idl/vendor.idl"));
+    }
+}
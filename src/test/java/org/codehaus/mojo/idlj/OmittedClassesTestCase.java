@@ -0,0 +1,105 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for omitting kinds of generated classes.
+ */
+public class OmittedClassesTestCase extends IDLJTestBase {
+
+    private static final String GENERATED = "target/main/generatedSources/idl/Demo/";
+
+    private Source source;
+
+    @Before
+    public void setUpSources() throws Exception {
+        source = createSource();
+        defineGeneratedSource(GENERATED + "Server.java", "public interface Server extends ServerOperations {}");
+        defineGeneratedSource(GENERATED + "ServerOperations.java", "public interface ServerOperations {}");
+        defineGeneratedSource(GENERATED + "ServerHelper.java", "abstract public class ServerHelper {}");
+        defineGeneratedSource(GENERATED + "ServerHolder.java", "public final class ServerHolder {}");
+        defineGeneratedSource(GENERATED + "ServerPOA.java", "public abstract class ServerPOA {}");
+        defineGeneratedSource(
+                GENERATED + "_ServerStub.java", "public class _ServerStub { void get(CounterHolder counter) {} }");
+        defineGeneratedSource(GENERATED + "CounterHelper.java", "abstract public class CounterHelper {}");
+        defineGeneratedSource(GENERATED + "CounterHolder.java", "public final class CounterHolder {}");
+    }
+
+    @Test
+    public void byDefault_keepAllGeneratedClasses() throws Exception {
+        mojo.execute();
+
+        assertTrue(isGenerated("ServerHolder"));
+        assertTrue(isGenerated("ServerPOA"));
+    }
+
+    @Test
+    public void whenKindOmitted_removeUnusedClassesOfThatKind() throws Exception {
+        setOmittedClasses(source, "poa", "holder:Demo/Server");
+
+        mojo.execute();
+
+        assertFalse(isGenerated("ServerPOA"));
+        assertFalse(isGenerated("ServerHolder"));
+        assertTrue(isGenerated("ServerHelper"));
+    }
+
+    @Test
+    public void whenOmittedClassIsUsed_keepIt() throws Exception {
+        setOmittedClasses(source, "holder", "operations");
+
+        mojo.execute();
+
+        assertTrue(isGenerated("CounterHolder"));
+        assertTrue(isGenerated("ServerOperations"));
+        assertFalse(isGenerated("ServerHolder"));
+    }
+
+    @Test
+    public void whenClassOnlyUsedByOmittedClass_removeBoth() throws Exception {
+        setOmittedClasses(source, "holder", "stub");
+
+        mojo.execute();
+
+        assertFalse(isGenerated("_ServerStub"));
+        assertFalse(isGenerated("CounterHolder"));
+    }
+
+    @Test
+    public void whenTypePatternDoesNotMatch_keepClasses() throws Exception {
+        setOmittedClasses(source, "poa:Other/**");
+
+        mojo.execute();
+
+        assertTrue(isGenerated("ServerPOA"));
+    }
+
+    @Test
+    public void whenTypeNameEndsWithKindSuffix_keepTypeItself() throws Exception {
+        defineGeneratedSource(GENERATED + "FooHolder.java", "public interface FooHolder {}");
+        defineGeneratedSource(GENERATED + "FooHolderHelper.java", "abstract public class FooHolderHelper {}");
+        setOmittedClasses(source, "holder");
+
+        mojo.execute();
+
+        assertTrue(isGenerated("FooHolder"));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void whenKindUnknown_throwException() throws Exception {
+        setOmittedClasses(source, "skeleton");
+
+        mojo.execute();
+    }
+
+    private boolean isGenerated(String className) {
+        return getDependencies().exists(new File(GENERATED + className + ".java"));
+    }
+}
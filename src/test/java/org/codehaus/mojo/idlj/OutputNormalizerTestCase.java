@@ -0,0 +1,155 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Tests for making the generated sources reproducible.
+ */
+public class OutputNormalizerTestCase extends IDLJTestBase {
+
+    private static final String GENERATED_PATH = "target/main/generatedSources/idl/Demo/Server.java";
+
+    private static final String IDLJ_SOURCE = "package Demo;\n\n\n"
+            + "/**\n"
+            + "* Demo/Server.java .\n"
+            + "* Generated by the IDL-to-Java compiler (portable), version \"3.2\"\n"
+            + "* from " + new File("src/main/idl/demo/server.idl").getAbsolutePath() + "\n"
+            + "* Tuesday, March 3, 2020 10:15:42 AM CET\n"
+            + "*/\n\n"
+            + "public interface Server extends ServerOperations\n"
+            + "{\n"
+            + "} // interface Server\n";
+
+    private static final String NORMALIZED_SOURCE = "package Demo;\n\n\n"
+            + "/**\n"
+            + "* Demo/Server.java .\n"
+            + "* Generated by the IDL-to-Java compiler (portable), version \"3.2\"\n"
+            + "* from demo/server.idl\n"
+            + "*/\n\n"
+            + "public interface Server extends ServerOperations\n"
+            + "{\n"
+            + "} // interface Server\n";
+
+    private OutputNormalizer normalizer;
+
+    @Before
+    public void setUpNormalizer() {
+        normalizer = new OutputNormalizer(getDependencies(), new File("src/main/idl"), new File("target/timestamps"));
+    }
+
+    @Test
+    public void whenIdljHeaderNormalized_removeDateAndRelativizePath() {
+        assertThat(normalizer.normalize(IDLJ_SOURCE), equalTo(NORMALIZED_SOURCE));
+    }
+
+    @Test
+    public void whenLinesEndWithCarriageReturns_useNewLines() {
+        assertThat(normalizer.normalize(IDLJ_SOURCE.replace("\n", "\r\n")), equalTo(NORMALIZED_SOURCE));
+    }
+
+    @Test
+    public void whenJacorbHeaderNormalized_removeGenerationDate() {
+        String jacorbSource = "package Demo;\n\n"
+                + "/**\n"
+                + " * Generated from IDL interface \"Server\".\n"
+                + " *\n"
+                + " * @author JacORB IDL compiler V 3.9\n"
+                + " * @version generated at Mar 3, 2020, 10:15:42 AM\n"
+                + " */\n\n"
+                + "public interface Server {}\n";
+
+        assertThat(normalizer.normalize(jacorbSource), equalTo(jacorbSource.replaceAll(" \\* @version.*\n", "")));
+    }
+
+    @Test
+    public void whenCommentCopiedFromIdl_leaveItUnchanged() {
+        String source = "/**\n * Opens at 10:15 every day.\n */\npublic interface Shop {}\n";
+
+        assertThat(normalizer.normalize(source), equalTo(source));
+    }
+
+    @Test
+    public void whenGeneratorCommentHoldsTimeOutsideBanner_keepIt() {
+        String version = " * @version generated at Mar 3, 2020, 10:15:42 AM\n";
+        String source = "/**\n"
+                + " * Generated from IDL interface \"Shop\".\n"
+                + " * Opens at 10:15 every day.\n"
+                + " *\n"
+                + " * @author JacORB IDL compiler V 3.9\n"
+                + version
+                + " */\n"
+                + "public interface Shop {}\n";
+
+        assertThat(normalizer.normalize(source), equalTo(source.replace(version, "")));
+    }
+
+    @Test
+    public void whenSourceAlreadyNormalized_leaveItUnchanged() {
+        assertThat(normalizer.normalize(NORMALIZED_SOURCE), equalTo(NORMALIZED_SOURCE));
+    }
+
+    @Test
+    public void byDefault_leaveGeneratedSourcesUnchanged() throws Exception {
+        defineGeneratedSource(GENERATED_PATH, IDLJ_SOURCE);
+
+        mojo.execute();
+
+        assertThat(getFileContents(new File(GENERATED_PATH)), equalTo(IDLJ_SOURCE));
+    }
+
+    @Test
+    public void whenNormalizationEnabled_normalizeGeneratedSources() throws Exception {
+        setNormalizeGeneratedSources(true);
+        defineGeneratedSource(GENERATED_PATH, IDLJ_SOURCE);
+
+        mojo.execute();
+
+        assertThat(getFileContents(new File(GENERATED_PATH)), equalTo(NORMALIZED_SOURCE));
+    }
+
+    @Test
+    public void whenRegeneratedSourceIsUnchanged_keepItsModificationTime() throws Exception {
+        setNormalizeGeneratedSources(true);
+        defineGeneratedSource(GENERATED_PATH, IDLJ_SOURCE);
+        mojo.execute();
+        long firstGenerated = getDependencies().lastModified(new File(GENERATED_PATH));
+
+        defineGeneratedSource(GENERATED_PATH, IDLJ_SOURCE.replace("Tuesday, March 3", "Wednesday, March 4"));
+        mojo.execute();
+
+        assertThat(getDependencies().lastModified(new File(GENERATED_PATH)), equalTo(firstGenerated));
+    }
+
+    @Test
+    public void whenRegeneratedSourceChanged_updateItsModificationTime() throws Exception {
+        setNormalizeGeneratedSources(true);
+        defineGeneratedSource(GENERATED_PATH, IDLJ_SOURCE);
+        mojo.execute();
+        long firstGenerated = getDependencies().lastModified(new File(GENERATED_PATH));
+
+        defineGeneratedSource(GENERATED_PATH, IDLJ_SOURCE.replace("{\n}", "{\n  void stop ();\n}"));
+        mojo.execute();
+
+        assertThat(getDependencies().lastModified(new File(GENERATED_PATH)), not(equalTo(firstGenerated)));
+    }
+
+    @Test
+    public void whenAllPostProcessingEnabled_listGeneratedSourcesOnlyBeforeAndAfterCompiling() throws Exception {
+        setNormalizeGeneratedSources(true);
+        Source source = createSource();
+        setOptimizeHelpers(source, true);
+        setOmittedClasses(source, "holder");
+        defineGeneratedSource(GENERATED_PATH, IDLJ_SOURCE);
+
+        mojo.execute();
+
+        assertThat(getListingCount("target/main/generatedSources/idl"), equalTo(2));
+    }
+}
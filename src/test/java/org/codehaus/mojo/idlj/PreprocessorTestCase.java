@@ -0,0 +1,178 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for compiling IDL files preprocessed by the plugin.
+ */
+public class PreprocessorTestCase extends IDLJTestBase {
+    private static final String STAGING_DIRECTORY = "target/main/timeStamps/idlj-preprocessed/";
+    private static final String COMMON_IDL = "#ifndef COMMON\n"
+            + "#define COMMON\n"
+            + "#define NAME_LENGTH 32\n"
+            + "typedef string<NAME_LENGTH> Name;\n"
+            + "#endif\n";
+
+    private Source source;
+
+    @Before
+    public void setUpSources() throws Exception {
+        removeDefaultIdlFile();
+        source = createSource();
+        setPreprocess(source, true);
+        defineFileContents(new File("src/main/idl/common.idl"), COMMON_IDL);
+    }
+
+    @Test
+    public void whenPreprocessing_compilePreprocessedFile() throws Exception {
+        defineStaleIdlFile("src/main/idl/bank.idl", "module Bank {};\n");
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains(STAGING_DIRECTORY + "sources/bank.idl"));
+    }
+
+    @Test
+    public void whenDefineHasValue_replaceItInText() throws Exception {
+        createDefine(source, "VERSION", "3");
+        defineStaleIdlFile(
+                "src/main/idl/bank.idl", "const long V = VERSION; // VERSION\nconst string S = \"VERSION\";\n");
+
+        mojo.execute();
+
+        assertEquals(
+                "const long V = 3; // VERSION\nconst string S = \"VERSION\";\n",
+                getFileContents(new File(STAGING_DIRECTORY + "sources/bank.idl")));
+    }
+
+    @Test
+    public void whenDefineHasValue_doNotPassDefinesToCompiler() throws Exception {
+        createDefine(source, "VERSION", "3");
+        defineStaleIdlFile("src/main/idl/bank.idl", "module Bank {};\n");
+
+        mojo.execute();
+
+        assertArgumentsDoesNotContain("-d");
+    }
+
+    @Test
+    public void whenConditionUsesValues_keepLinesOfSelectedBranch() throws Exception {
+        createDefine(source, "VERSION", "3");
+        defineStaleIdlFile(
+                "src/main/idl/bank.idl",
+                "#if VERSION >= 2 && defined(VERSION)\ninterface New {};\n#else\ninterface Old {};\n#endif\n");
+
+        mojo.execute();
+
+        assertEquals("\ninterface New {};\n\n\n\n", getFileContents(new File(STAGING_DIRECTORY + "sources/bank.idl")));
+    }
+
+    @Test
+    public void whenOperandCannotAffectCondition_doNotEvaluateIt() throws Exception {
+        setFailOnError();
+        defineStaleIdlFile(
+                "src/main/idl/bank.idl",
+                "#if 0 && 1 / 0\ninterface A {};\n#elif 1 || 1 % 0\ninterface B {};\n#endif\n"
+                        + "#if 1 ? 2 : 1 / 0\ninterface C {};\n#endif\n");
+
+        mojo.execute();
+
+        assertEquals(
+                "\n\n\ninterface B {};\n\n\ninterface C {};\n\n",
+                getFileContents(new File(STAGING_DIRECTORY + "sources/bank.idl")));
+    }
+
+    @Test
+    public void whenDirectiveContinuedInFileWithCrlfLineEnds_joinItsLines() throws Exception {
+        createDefine(source, "VERSION", "3");
+        defineStaleIdlFile(
+                "src/main/idl/bank.idl",
+                "#if VERSION >= 2 && \\\r\n    VERSION < 4\r\ninterface New {};\r\n#endif\r\n");
+
+        mojo.execute();
+
+        assertThat(getFileContents(new File(STAGING_DIRECTORY + "sources/bank.idl")), containsString("interface New"));
+    }
+
+    @Test
+    public void whenFileIncluded_compileWithStagedCopy() throws Exception {
+        defineStaleIdlFile("src/main/idl/bank.idl", "#include \"common.idl\"\nmodule Bank { typedef Name Owner; };\n");
+
+        mojo.execute();
+
+        String bank = getFileContents(new File(STAGING_DIRECTORY + "sources/bank.idl"));
+        assertThat(bank, containsString("#include \""));
+        assertThat(bank, containsString("/common.idl\"\n"));
+        List<File> staged = getDependencies().listFiles(new File(STAGING_DIRECTORY + "includes"));
+        assertThat(staged, hasSize(1));
+        assertThat(getFileContents(staged.get(0)), containsString("typedef string<32> Name;"));
+        assertArgumentsContains("-i", new File(STAGING_DIRECTORY + "includes").toString());
+    }
+
+    @Test
+    public void whenSeveralFilesIncludeSameFile_preprocessItOnce() throws Exception {
+        defineStaleIdlFile("src/main/idl/a.idl", "#include \"common.idl\"\ninterface A { Name name(); };\n");
+        defineStaleIdlFile("src/main/idl/b.idl", "#include \"common.idl\"\ninterface B { Name name(); };\n");
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), hasSize(2));
+        assertThat(getDependencies().listFiles(new File(STAGING_DIRECTORY + "includes")), hasSize(1));
+    }
+
+    @Test
+    public void whenGuardedFileIncludedTwice_secondCopyIsEmpty() throws Exception {
+        defineStaleIdlFile("src/main/idl/bank.idl", "#include \"common.idl\"\n#include \"common.idl\"\n");
+
+        mojo.execute();
+
+        List<File> staged = getDependencies().listFiles(new File(STAGING_DIRECTORY + "includes"));
+        assertThat(staged, hasSize(2));
+        String first = getFileContents(staged.get(0));
+        String second = getFileContents(staged.get(1));
+        assertThat(first + second, containsString("typedef string<32> Name;"));
+        assertThat(first.trim().isEmpty() || second.trim().isEmpty(), is(true));
+    }
+
+    @Test
+    public void whenIncludeNotFound_leaveItToCompiler() throws Exception {
+        defineStaleIdlFile("src/main/idl/bank.idl", "#include <orb.idl>\n#pragma prefix \"acme.com\"\n");
+
+        mojo.execute();
+
+        assertEquals(
+                "#include <orb.idl>\n#pragma prefix \"acme.com\"\n",
+                getFileContents(new File(STAGING_DIRECTORY + "sources/bank.idl")));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void whenFunctionLikeMacroDefined_fail() throws Exception {
+        setFailOnError();
+        defineStaleIdlFile("src/main/idl/bank.idl", "#define MAX(a, b) a\n");
+
+        mojo.execute();
+    }
+
+    @Test
+    public void whenPreprocessingFailsAndFailOnErrorDisabled_skipFile() throws Exception {
+        defineStaleIdlFile("src/main/idl/bank.idl", "#if 1\ninterface A {};\n");
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), empty());
+        assertThat(getBuildMessages(), contains(getCurrentDir() + "/src/main/idl/bank.idl:1:error:Missing #endif"));
+    }
+}
@@ -0,0 +1,186 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the order in which stale IDL files are compiled.
+ */
+public class SchedulingTestCase extends IDLJTestBase {
+
+    private static final File COST_FILE = new File("target/main/timeStamps", CompilationCostModel.COST_FILE_NAME);
+
+    @Before
+    public void setUpSources() {
+        removeDefaultIdlFile();
+    }
+
+    @Test
+    public void whenNoHistoryRecorded_compileLargestFilesFirst() throws Exception {
+        defineStaleIdlFile("src/main/idl/small.idl", "module small {};");
+        defineStaleIdlFile("src/main/idl/large.idl", moduleWithConstants("large", 100));
+        defineStaleIdlFile("src/main/idl/medium.idl", moduleWithConstants("medium", 10));
+
+        mojo.execute();
+
+        assertThat(
+                getCompiledFiles(),
+                contains("src/main/idl/large.idl", "src/main/idl/medium.idl", "src/main/idl/small.idl"));
+    }
+
+    @Test
+    public void whenFileIncludesOthers_scheduleAheadOfLargerFile() throws Exception {
+        defineStaleIdlFile("src/main/idl/large.idl", moduleWithConstants("large", 100));
+        defineStaleIdlFile("src/main/idl/includer.idl", "#include \"a.idl\"\n#include \"b.idl\"\nmodule includer {};");
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains("src/main/idl/includer.idl", "src/main/idl/large.idl"));
+    }
+
+    @Test
+    public void whenHistoryRecorded_useRecordedDurations() throws Exception {
+        defineStaleIdlFile("src/main/idl/small.idl", "module small {};");
+        defineStaleIdlFile("src/main/idl/large.idl", moduleWithConstants("large", 100));
+        defineFileContents(COST_FILE, "small.idl=5000\nlarge.idl=20\n");
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains("src/main/idl/small.idl", "src/main/idl/large.idl"));
+    }
+
+    @Test
+    public void whenFilesShareIncludes_compileThemTogether() throws Exception {
+        defineFileContents(new File("src/main/idl/common.idl"), "module common {};");
+        defineStaleIdlFile("src/main/idl/a.idl", "#include \"common.idl\"\n" + moduleWithConstants("a", 300));
+        defineStaleIdlFile("src/main/idl/b.idl", moduleWithConstants("b", 250));
+        defineStaleIdlFile("src/main/idl/c.idl", "#include \"common.idl\"\nmodule c {};");
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains("src/main/idl/a.idl", "src/main/idl/c.idl", "src/main/idl/b.idl"));
+    }
+
+    @Test
+    public void whenFilesShareIncludesIndirectly_compileThemTogether() throws Exception {
+        defineIncludePaths("src/main/idl-include");
+        defineFileContents(new File("src/main/idl-include/orb.idl"), "module CORBA {};");
+        defineFileContents(new File("src/main/idl-include/common.idl"), "#include <orb.idl>\nmodule common {};");
+        defineStaleIdlFile("src/main/idl/a.idl", "#include <common.idl>\n" + moduleWithConstants("a", 300));
+        defineStaleIdlFile("src/main/idl/b.idl", moduleWithConstants("b", 250));
+        defineStaleIdlFile("src/main/idl/c.idl", "#include <orb.idl>\nmodule c {};");
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains("src/main/idl/a.idl", "src/main/idl/c.idl", "src/main/idl/b.idl"));
+    }
+
+    @Test
+    public void afterCompilation_recordDurationsInTimestampDirectory() throws Exception {
+        defineStaleIdlFile("src/main/idl/small.idl", "module small {};");
+
+        mojo.execute();
+
+        assertThat(getFileContents(COST_FILE), containsString("small.idl="));
+    }
+
+    @Test
+    public void afterCompilation_forgetDurationsOfRemovedFiles() throws Exception {
+        defineStaleIdlFile("src/main/idl/small.idl", "module small {};");
+        defineFileContents(COST_FILE, "small.idl=5\nremoved.idl=20\n");
+
+        mojo.execute();
+
+        assertThat(getFileContents(COST_FILE), containsString("small.idl="));
+        assertThat(getFileContents(COST_FILE), not(containsString("removed.idl")));
+    }
+
+    @Test
+    public void whenBatchesCompiledConcurrently_compileEachFileOnceAndBatchesInOrder() throws Exception {
+        List<CompilationBatch> batches = createBatches("a1", "a2", "b1", "c1", "c2", "c3");
+        final List<String> compiled = Collections.synchronizedList(new ArrayList<String>());
+
+        CompilationBatch.compileConcurrently(batches, 3, idlFile -> compiled.add(idlFile.getName()));
+
+        assertThat(compiled, containsInAnyOrder("a1.idl", "a2.idl", "b1.idl", "c1.idl", "c2.idl", "c3.idl"));
+        assertThat(compiled.indexOf("a1.idl"), lessThan(compiled.indexOf("a2.idl")));
+        assertThat(compiled.indexOf("c1.idl"), lessThan(compiled.indexOf("c2.idl")));
+        assertThat(compiled.indexOf("c2.idl"), lessThan(compiled.indexOf("c3.idl")));
+    }
+
+    @Test
+    public void whenBatchesCompiledConcurrently_runThemAtTheSameTime() throws Exception {
+        List<CompilationBatch> batches = createBatches("a1", "b1", "c1");
+        final CountDownLatch started = new CountDownLatch(batches.size());
+
+        CompilationBatch.compileConcurrently(batches, batches.size(), idlFile -> {
+            started.countDown();
+            try {
+                assertThat(started.await(10, TimeUnit.SECONDS), equalTo(true));
+            } catch (InterruptedException e) {
+                throw new MojoExecutionException("Interrupted", e);
+            }
+        });
+    }
+
+    @Test
+    public void whenConcurrentCompilationFails_compileNoFurtherFiles() throws Exception {
+        List<CompilationBatch> batches = createBatches("a1", "a2", "a3");
+        final List<String> compiled = Collections.synchronizedList(new ArrayList<String>());
+
+        try {
+            CompilationBatch.compileConcurrently(batches, 2, idlFile -> {
+                compiled.add(idlFile.getName());
+                if (idlFile.getName().equals("a2.idl")) {
+                    throw new MojoExecutionException("IDL Compilation failure");
+                }
+            });
+            fail("Expected the failure to be reported");
+        } catch (MojoExecutionException e) {
+            assertThat(e.getMessage(), equalTo("IDL Compilation failure"));
+        }
+        assertThat(compiled, contains("a1.idl", "a2.idl"));
+    }
+
+    /**
+     * Creates batches of files whose names start with the same letter, by making those files include a common file.
+     */
+    private List<CompilationBatch> createBatches(String... names) {
+        List<File> idlFiles = new ArrayList<>();
+        for (String name : names) {
+            File idlFile = new File("src/main/idl/" + name + ".idl");
+            defineFileContents(idlFile, "#include \"" + name.charAt(0) + ".idl\"\nmodule " + name + " {};");
+            defineFileContents(new File("src/main/idl/" + name.charAt(0) + ".idl"), "module common {};");
+            idlFiles.add(idlFile);
+        }
+        IncludeGraph includeGraph = new IncludeGraph(
+                getDependencies(),
+                new IncludeIndex(getDependencies(), Collections.singletonList(new File("src/main/idl"))),
+                new SystemStreamLog());
+        return CompilationBatch.createBatches(idlFiles, includeGraph, Collections.<File, Double>emptyMap());
+    }
+
+    private String moduleWithConstants(String name, int numConstants) {
+        StringBuilder sb = new StringBuilder("module ").append(name).append(" {\n");
+        for (int i = 0; i < numConstants; i++) sb.append("  const long x").append(i).append(" = 1;\n");
+        return sb.append("};").toString();
+    }
+}
@@ -0,0 +1,213 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for spreading the compilation of stale IDL files across several shards.
+ */
+public class ShardingTestCase extends IDLJTestBase {
+
+    private static final int NUM_FILES = 20;
+    private static final String SHARD_ROOT = "target/main/shards/";
+    private static final String MERGED = "target/main/generatedSources/idl/";
+    private static final List<String> HOLDER = Collections.singletonList("holder");
+    private static final List<ShardManifest.Omission> NO_OMISSIONS = Collections.emptyList();
+
+    @Before
+    public void setUpSources() {
+        removeDefaultIdlFile();
+        for (int i = 0; i < NUM_FILES; i++) {
+            defineStaleIdlFile("src/main/idl/file" + i + ".idl", "module m" + i + " {};");
+        }
+    }
+
+    @Test
+    public void whenShardsRun_compileEachFileExactlyOnce() throws Exception {
+        List<String> compiled = new ArrayList<>();
+        for (int shardIndex = 0; shardIndex < 3; shardIndex++) {
+            defineShard(shardIndex, 3);
+            mojo.execute();
+            compiled.addAll(getCompiledFiles());
+            getCompiledFiles().clear();
+        }
+
+        assertThat(compiled, hasSize(NUM_FILES));
+        assertThat(new HashSet<>(compiled), hasSize(NUM_FILES));
+    }
+
+    @Test
+    public void whenShardRunsTwice_selectSameFiles() throws Exception {
+        defineShard(1, 3);
+        mojo.execute();
+        Set<String> firstRun = new HashSet<>(getCompiledFiles());
+        getCompiledFiles().clear();
+
+        mojo.execute();
+
+        assertThat(new HashSet<>(getCompiledFiles()), equalTo(firstRun));
+    }
+
+    @Test
+    public void whenSharded_writeOutputBelowShardDirectory() throws Exception {
+        defineShard(2, 3);
+
+        mojo.execute();
+
+        assertArgumentsContains("-td", SHARD_ROOT + "shard-2/sources");
+    }
+
+    @Test
+    public void whenSharded_neitherCompileNorPublishGeneratedSources() throws Exception {
+        RecordingProjectHelper projectHelper = new RecordingProjectHelper();
+        enableGeneratedSourceCompilation(new File("target/idlj-classes"), new File("target/idl.jar"), projectHelper);
+        enableStubPublication(new File("target/idl-stubs.jar"), projectHelper);
+        defineGeneratedSource(SHARD_ROOT + "shard-1/sources/m1/Server.java", "package m1; public interface Server {}");
+        defineShard(1, 3);
+
+        mojo.execute();
+
+        assertThat(projectHelper.getAttachedClassifiers(), empty());
+        assertThat(getDependencies().exists(new File("target/idl-stubs.jar")), equalTo(false));
+        assertThat(getDependencies().exists(new File("target/idl.jar")), equalTo(false));
+    }
+
+    @Test
+    public void whenSharded_keepOmittedClasses() throws Exception {
+        setOmittedClasses(createSource(), "holder");
+        String holderPath = SHARD_ROOT + "shard-1/sources/m1/ServerHolder.java";
+        defineGeneratedSource(holderPath, "package m1; class ServerHolder {}");
+        defineShard(1, 3);
+
+        mojo.execute();
+
+        assertThat(getDependencies().exists(new File(holderPath)), equalTo(true));
+        List<ShardManifest.Omission> omissions = readShardManifest(1).getOmissions();
+        assertThat(omissions, hasSize(1));
+        assertThat(omissions.get(0).getPatterns(), contains("holder"));
+        assertThat(omissions.get(0).getCandidates(), contains("m1/ServerHolder.java"));
+    }
+
+    @Test
+    public void whenPathsContainCommas_readThemBackFromManifest() throws Exception {
+        List<String> idlFiles = Arrays.asList("a,b.idl", "c.idl");
+        List<String> generatedFiles = Arrays.asList("m/A.java", "m/B.java");
+        new ShardManifest(0, 2, idlFiles, generatedFiles, NO_OMISSIONS)
+                .write(getDependencies(), new File(SHARD_ROOT + "shard-0"));
+
+        ShardManifest manifest = readShardManifest(0);
+
+        assertThat(manifest.getIdlFiles(), equalTo(idlFiles));
+        assertThat(manifest.getGeneratedFiles(), equalTo(generatedFiles));
+    }
+
+    @Test
+    public void whenSharded_writeManifestListingCompiledFiles() throws Exception {
+        defineShard(0, 3);
+
+        mojo.execute();
+
+        String manifest = getFileContents(new File(SHARD_ROOT + "shard-0/" + ShardManifest.FILE_NAME));
+        assertThat(manifest, containsString("shardCount=3"));
+        assertThat(manifest, containsString(getCompiledFiles().get(0).replace("src/main/idl/", "")));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void whenShardIndexOutOfRange_throwException() throws Exception {
+        defineShard(3, 3);
+
+        mojo.execute();
+    }
+
+    @Test
+    public void whenShardsMerged_copyGeneratedFilesToOutputDirectory() throws Exception {
+        defineShardOutput(0, "a.idl", NO_OMISSIONS, "m/A.java", "m/AHelper.java");
+        defineShardOutput(1, "b.idl", NO_OMISSIONS, "m/B.java");
+
+        createMergeShardsMojo().execute();
+
+        assertEquals("content of m/A.java", getFileContents(new File("target/main/generatedSources/idl/m/A.java")));
+        assertEquals("content of m/B.java", getFileContents(new File("target/main/generatedSources/idl/m/B.java")));
+    }
+
+    @Test
+    public void whenShardsMerged_pruneOmittedClassesNoMergedClassUses() throws Exception {
+        List<ShardManifest.Omission> omissions =
+                Collections.singletonList(new ShardManifest.Omission(HOLDER, Arrays.asList("m/AHolder.java")));
+        defineShardOutput(0, "a.idl", omissions, "m/A.java", "m/AHelper.java", "m/AHolder.java");
+        defineShardOutput(1, "b.idl", NO_OMISSIONS, "m/B.java");
+
+        createMergeShardsMojo().execute();
+
+        assertThat(getDependencies().exists(new File(MERGED + "m/A.java")), equalTo(true));
+        assertThat(getDependencies().exists(new File(MERGED + "m/AHolder.java")), equalTo(false));
+    }
+
+    @Test
+    public void whenClassOfOtherShardUsesOmittedClass_keepItInMerge() throws Exception {
+        List<ShardManifest.Omission> omissions =
+                Collections.singletonList(new ShardManifest.Omission(HOLDER, Arrays.asList("m/AHolder.java")));
+        defineShardOutput(0, "a.idl", omissions, "m/A.java", "m/AHelper.java", "m/AHolder.java");
+        defineShardOutput(1, "b.idl", NO_OMISSIONS, "m/B.java");
+        defineFileContents(
+                new File(SHARD_ROOT + "shard-1/sources/m/B.java"),
+                "package m; public interface B { void get(AHolder a); }");
+
+        createMergeShardsMojo().execute();
+
+        assertThat(getDependencies().exists(new File(MERGED + "m/AHolder.java")), equalTo(true));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void whenShardMissing_mergeFails() throws Exception {
+        new ShardManifest(0, 2, Arrays.asList("a.idl"), Collections.<String>emptyList(), NO_OMISSIONS)
+                .write(getDependencies(), new File(SHARD_ROOT + "shard-0"));
+
+        createMergeShardsMojo().execute();
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void whenShardsGenerateConflictingFiles_mergeFails() throws Exception {
+        defineShardOutput(0, "a.idl", NO_OMISSIONS, "m/A.java");
+        defineShardOutput(1, "b.idl", NO_OMISSIONS, "m/A.java");
+        defineFileContents(new File(SHARD_ROOT + "shard-1/sources/m/A.java"), "something else");
+
+        createMergeShardsMojo().execute();
+    }
+
+    /**
+     * Defines the output of one of two shards: its manifest, and generated files holding "content of" their path.
+     */
+    private void defineShardOutput(
+            int shardIndex, String idlFile, List<ShardManifest.Omission> omissions, String... generatedFiles)
+            throws IOException {
+        String shard = SHARD_ROOT + "shard-" + shardIndex + "/";
+        new ShardManifest(shardIndex, 2, Arrays.asList(idlFile), Arrays.asList(generatedFiles), omissions)
+                .write(getDependencies(), new File(shard));
+        for (String path : generatedFiles) {
+            defineFileContents(new File(shard + "sources/" + path), "content of " + path);
+        }
+    }
+
+    private ShardManifest readShardManifest(int shardIndex) throws IOException {
+        return ShardManifest.read(getDependencies(), new File(SHARD_ROOT + "shard-" + shardIndex));
+    }
+}
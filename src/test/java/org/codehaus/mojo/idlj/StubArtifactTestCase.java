@@ -0,0 +1,168 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+import java.util.TimeZone;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests for publishing generated sources, and for using published sources instead of compiling.
+ */
+public class StubArtifactTestCase extends IDLJTestBase {
+
+    private static final File STUBS_JAR = new File("repository/org/acme/vendor/1.0/vendor-1.0-idl-stubs.jar");
+    private static final String IDL_PATH = "src/main/idl/vendor.idl";
+    private static final String IDL = "module Vendor { interface Server {}; };";
+    private static final String GENERATED_PATH = "target/main/generatedSources/idl/Vendor/Server.java";
+    private static final String GENERATED = "package Vendor; public interface Server {}";
+
+    private final RecordingProjectHelper projectHelper = new RecordingProjectHelper();
+
+    @Before
+    public void setUpSources() {
+        removeDefaultIdlFile();
+        defineStaleIdlFile(IDL_PATH, IDL);
+        defineGeneratedSource(GENERATED_PATH, GENERATED);
+    }
+
+    @Test
+    public void whenPublishStubsEnabled_attachJarOfSourcesAndDescriptor() throws Exception {
+        enableStubPublication(STUBS_JAR, projectHelper);
+
+        mojo.execute();
+
+        String jar = getFileContents(STUBS_JAR);
+        assertThat(jar, containsString(StubArtifact.DESCRIPTOR));
+        assertThat(jar, containsString(StubArtifact.SOURCES_DIRECTORY + "Vendor/Server.java"));
+        assertThat(projectHelper.getAttachedClassifiers(), contains("idl-stubs"));
+    }
+
+    @Test
+    public void whenStubsPublishedInOtherTimeZone_writeSameBytes() throws Exception {
+        enableStubPublication(STUBS_JAR, projectHelper);
+        TimeZone defaultZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+            mojo.execute();
+            String firstJar = getFileContents(STUBS_JAR);
+
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+            mojo.execute();
+
+            assertThat(getFileContents(STUBS_JAR), equalTo(firstJar));
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
+    @Test
+    public void whenStubArtifactMatches_useItsSourcesInsteadOfCompiling() throws Exception {
+        publishStubs();
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), empty());
+        assertThat(getFileContents(new File(GENERATED_PATH)), equalTo(GENERATED));
+    }
+
+    @Test
+    public void whenIdlChanged_compileDespiteStubArtifact() throws Exception {
+        publishStubs();
+        defineStaleIdlFile(IDL_PATH, IDL.replace("Server", "Client"));
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains(IDL_PATH));
+    }
+
+    @Test
+    public void whenOptionsChanged_compileDespiteStubArtifact() throws Exception {
+        publishStubs();
+        defineAdditionalArguments(createSource(), "-keep");
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains(IDL_PATH));
+    }
+
+    @Test
+    public void whenAutoSelectsAnotherCompiler_changeFingerprint() throws Exception {
+        System.setProperty("java.version", "11.0.21");
+        String glassfishFingerprint = mojo.computeStubFingerprint();
+
+        System.setProperty("java.version", "1.8.0_392");
+
+        assertThat(mojo.computeStubFingerprint(), not(equalTo(glassfishFingerprint)));
+    }
+
+    @Test
+    public void whenJdkVersionChanged_changeFingerprintOfBuiltInCompiler() throws Exception {
+        defineCompiler("idlj");
+        System.setProperty("java.version", "1.8.0_391");
+        String previousFingerprint = mojo.computeStubFingerprint();
+
+        System.setProperty("java.version", "1.8.0_392");
+
+        assertThat(mojo.computeStubFingerprint(), not(equalTo(previousFingerprint)));
+    }
+
+    @Test
+    public void whenStubArtifactGeneratedByAnotherCompiler_compileDespiteIt() throws Exception {
+        System.setProperty("java.version", "11.0.21");
+        publishStubs();
+
+        System.setProperty("java.version", "1.8.0_392");
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), contains(IDL_PATH));
+    }
+
+    @Test
+    public void whenStubArtifactHoldsClasses_generateNothing() throws Exception {
+        mojo.execute();
+        StubArtifact.write(
+                getDependencies(),
+                STUBS_JAR,
+                mojo.computeStubFingerprint(),
+                new File("target/main/generatedSources/idl"),
+                new File("target/classes"),
+                ReproducibleJar.DEFAULT_TIME);
+        clearGeneratedOutput();
+
+        mojo.execute();
+
+        assertThat(getCompiledFiles(), empty());
+        assertFalse(getDependencies().exists(new File(GENERATED_PATH)));
+    }
+
+    /**
+     * Publishes the sources generated by a first build, and prepares a new build which lists them as a stub artifact.
+     */
+    private void publishStubs() throws Exception {
+        mojo.execute();
+        StubArtifact.write(
+                getDependencies(),
+                STUBS_JAR,
+                mojo.computeStubFingerprint(),
+                new File("target/main/generatedSources/idl"),
+                null,
+                ReproducibleJar.DEFAULT_TIME);
+        clearGeneratedOutput();
+    }
+
+    private void clearGeneratedOutput() throws Exception {
+        getDependencies().deleteFile(new File(GENERATED_PATH));
+        defineGeneratedSource(GENERATED_PATH, "");
+        getCompiledFiles().clear();
+        defineStubArtifact("org.acme", "vendor", "idl-stubs", STUBS_JAR);
+    }
+}
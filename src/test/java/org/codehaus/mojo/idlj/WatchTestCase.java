@@ -0,0 +1,138 @@
+package org.codehaus.mojo.idlj;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+
+/**
+ * Tests for the watch goal, which recompiles IDL files as they change.
+ */
+public class WatchTestCase extends IDLJTestBase {
+
+    private WatchMojo watchMojo;
+
+    @Override
+    IDLJMojo createMojo(DependenciesFacade dependencies) {
+        return watchMojo = new WatchMojo(dependencies);
+    }
+
+    @Before
+    public void setUpSources() throws Exception {
+        removeDefaultIdlFile();
+        defineIncludePaths("src/include");
+        defineFileContents(new File("src/main/idl/common.idl"), "module common { typedef long Id; };");
+        defineFileContents(new File("src/main/idl/a.idl"), "#include \"common.idl\"\nmodule a {};");
+        defineFileContents(new File("src/main/idl/b.idl"), "#include \"a.idl\"\nmodule b {};");
+        defineFileContents(new File("src/main/idl/c.idl"), "#include <shared.idl>\nmodule c {};");
+        defineFileContents(new File("src/include/shared.idl"), "module shared {};");
+    }
+
+    @Test
+    public void whenIdlFileChanges_recompileOnlyThatFile() throws Exception {
+        watchMojo.recompileChanges(changes("src/main/idl/b.idl"));
+
+        assertThat(getCompiledFiles(), containsInAnyOrder(getCurrentDir() + "/src/main/idl/b.idl"));
+    }
+
+    @Test
+    public void whenIncludedFileChanges_recompileDirectAndIndirectIncluders() throws Exception {
+        watchMojo.recompileChanges(changes("src/main/idl/common.idl"));
+
+        assertThat(
+                getCompiledFiles(),
+                containsInAnyOrder(
+                        getCurrentDir() + "/src/main/idl/common.idl",
+                        getCurrentDir() + "/src/main/idl/a.idl",
+                        getCurrentDir() + "/src/main/idl/b.idl"));
+    }
+
+    @Test
+    public void whenFileInIncludeDirectoryChanges_recompileIncluders() throws Exception {
+        watchMojo.recompileChanges(changes("src/include/shared.idl"));
+
+        assertThat(getCompiledFiles(), containsInAnyOrder(getCurrentDir() + "/src/main/idl/c.idl"));
+    }
+
+    @Test
+    public void whenPreprocessedIncludeChanges_compileIncludersWithItsNewContents() throws Exception {
+        setPreprocess(createSource(), true);
+        watchMojo.recompileChanges(changes("src/main/idl/a.idl"));
+        defineFileContents(new File("src/main/idl/common.idl"), "module common { typedef string Id; };");
+
+        watchMojo.recompileChanges(changes("src/main/idl/common.idl"));
+
+        List<String> stagedCommon = new ArrayList<>();
+        for (File staged : getDependencies().listFiles(new File("target/main/timeStamps/idlj-preprocessed/includes"))) {
+            if (staged.getName().equals("common.idl")) {
+                stagedCommon.add(getFileContents(staged));
+            }
+        }
+        assertThat(stagedCommon, hasSize(1));
+        assertThat(stagedCommon.get(0), containsString("typedef string Id;"));
+    }
+
+    @Test
+    public void whenUnrelatedFileChanges_compileNothing() throws Exception {
+        watchMojo.recompileChanges(changes("src/main/idl/README.txt"));
+
+        assertThat(getCompiledFiles(), empty());
+    }
+
+    @Test
+    public void whenCompilationFails_continueWatching() throws Exception {
+        setFailOnError();
+        TestIdlCompiler.defineErrorMessage("(line 1): oops");
+        try {
+            assertThat(watchMojo.recompileChanges(changes("src/main/idl/c.idl")), empty());
+        } finally {
+            TestIdlCompiler.defineErrorMessage(null);
+        }
+
+        watchMojo.recompileChanges(changes("src/main/idl/c.idl"));
+
+        assertThat(getCompiledFiles(), hasItem(getCurrentDir() + "/src/main/idl/c.idl"));
+    }
+
+    @Test(timeout = 10000)
+    public void whenFilesSavedInBurst_reportThemTogether() throws Exception {
+        Path root = Files.createTempDirectory("idlj-watch");
+        try (SourceWatcher watcher =
+                new SourceWatcher(Collections.singletonList(root.toFile()), new SystemStreamLog())) {
+            Path first = Files.write(root.resolve("first.idl"), "module first {};".getBytes("UTF-8"));
+            Path second = Files.write(root.resolve("second.idl"), "module second {};".getBytes("UTF-8"));
+
+            Set<File> changes = watcher.awaitChanges(200);
+
+            assertThat(changes, hasItem(first.toFile()));
+            assertThat(changes, hasItem(second.toFile()));
+        } finally {
+            Files.deleteIfExists(root.resolve("first.idl"));
+            Files.deleteIfExists(root.resolve("second.idl"));
+            Files.delete(root);
+        }
+    }
+
+    private Set<File> changes(String... paths) {
+        Set<File> files = new HashSet<>();
+        for (String path : paths) {
+            files.add(new File(path).getAbsoluteFile());
+        }
+        return files;
+    }
+}